@@ -24,7 +24,6 @@ import java.io.IOException;
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.io.IOUtils;
-import org.apache.log4j.Logger;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -33,11 +32,12 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import com.adyen.v6.constants.AdyenControllerConstants;
 import com.adyen.v6.security.AdyenNotificationAuthenticationProvider;
 import com.adyen.v6.service.AdyenNotificationService;
+import com.adyen.v6.util.AdyenLogger;
 
 @Controller
 @RequestMapping(value = AdyenControllerConstants.NOTIFICATION_PREFIX)
 public class AdyenNotificationController {
-    private static final Logger LOG = Logger.getLogger(AdyenNotificationController.class);
+    private static final AdyenLogger LOG = AdyenLogger.getLogger(AdyenNotificationController.class);
 
     @Resource(name = "adyenNotificationAuthenticationProvider")
     private AdyenNotificationAuthenticationProvider adyenNotificationAuthenticationProvider;
@@ -60,7 +60,7 @@ public class AdyenNotificationController {
             return RESPONSE_NOT_ACCEPTED;
         }
 
-        LOG.debug("Received Adyen notification:" + requestString);
+        LOG.debug("Received Adyen notification:", requestString);
         if (! adyenNotificationAuthenticationProvider.authenticateBasic(request)) {
             throw new AccessDeniedException("Wrong credentials");
         }
@@ -44,6 +44,7 @@ import com.adyen.service.exception.ApiException;
 import com.adyen.v6.constants.AdyenControllerConstants;
 import com.adyen.v6.exceptions.AdyenNonAuthorizedPaymentException;
 import com.adyen.v6.facades.AdyenCheckoutFacade;
+import com.adyen.v6.service.PaymentMethodCapabilityRegistry;
 import de.hybris.platform.acceleratorservices.enums.CheckoutPciOptionEnum;
 import de.hybris.platform.acceleratorservices.urlresolver.SiteBaseUrlResolutionService;
 import de.hybris.platform.acceleratorstorefrontcommons.annotations.PreValidateCheckoutStep;
@@ -64,7 +65,6 @@ import de.hybris.platform.commercefacades.product.data.ProductData;
 import de.hybris.platform.commerceservices.order.CommerceCartModificationException;
 import de.hybris.platform.order.InvalidCartException;
 import de.hybris.platform.site.BaseSiteService;
-import static com.adyen.v6.constants.Adyenv6coreConstants.OPENINVOICE_METHODS_API;
 import static com.adyen.v6.constants.Adyenv6coreConstants.PAYMENT_METHOD_BOLETO;
 import static com.adyen.v6.constants.Adyenv6coreConstants.PAYMENT_METHOD_CC;
 import static com.adyen.v6.constants.Adyenv6coreConstants.PAYMENT_METHOD_ONECLICK;
@@ -87,6 +87,9 @@ public class AdyenSummaryCheckoutStepController extends AbstractCheckoutStepCont
     @Resource(name = "adyenCheckoutFacade")
     private AdyenCheckoutFacade adyenCheckoutFacade;
 
+    @Resource(name = "adyenPaymentMethodCapabilityRegistry")
+    private PaymentMethodCapabilityRegistry paymentMethodCapabilityRegistry;
+
     @Resource(name = "orderFacade")
     private OrderFacade orderFacade;
 
@@ -276,9 +279,10 @@ public class AdyenSummaryCheckoutStepController extends AbstractCheckoutStepCont
 
         apiPaymentMethods.add(PAYMENT_METHOD_CC);
         apiPaymentMethods.add(PAYMENT_METHOD_BOLETO);
-        apiPaymentMethods.addAll(OPENINVOICE_METHODS_API);
 
-        return (paymentMethod.indexOf(PAYMENT_METHOD_ONECLICK) == 0 || apiPaymentMethods.contains(paymentMethod));
+        return (paymentMethod.indexOf(PAYMENT_METHOD_ONECLICK) == 0
+                || apiPaymentMethods.contains(paymentMethod)
+                || paymentMethodCapabilityRegistry.supports(paymentMethod, PaymentMethodCapabilityRegistry.Capability.OPEN_INVOICE));
     }
 
     private String redirectToSummaryWithError(final RedirectAttributes redirectModel, final String messageKey) {
@@ -20,11 +20,9 @@
  */
 package com.adyen.v6.controllers.pages.checkout.steps;
 
-import java.text.SimpleDateFormat;
+import java.time.Year;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.GregorianCalendar;
+import java.util.Collections;
 import java.util.List;
 import javax.annotation.Resource;
 import javax.validation.Valid;
@@ -37,6 +35,7 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import com.adyen.v6.constants.AdyenControllerConstants;
 import com.adyen.v6.facades.AdyenCheckoutFacade;
 import com.adyen.v6.forms.AdyenPaymentForm;
+import com.adyen.v6.util.AdyenDateUtil;
 import de.hybris.platform.acceleratorstorefrontcommons.annotations.RequireHardLogIn;
 import de.hybris.platform.acceleratorstorefrontcommons.checkout.steps.CheckoutStep;
 import de.hybris.platform.acceleratorstorefrontcommons.controllers.pages.checkout.steps.AbstractCheckoutStepController;
@@ -60,11 +59,16 @@ public class SelectPaymentMethodCheckoutStepController extends AbstractCheckoutS
     protected static final String ADYEN_PAYMENT_FORM = "adyenPaymentForm";
     protected static final String CSE_GENERATION_TIME = "generationTime";
 
+    private static final int EXPIRY_YEARS = 11;
+
     private static final String CART_DATA_ATTR = "cartData";
 
     @Resource(name = "adyenCheckoutFacade")
     private AdyenCheckoutFacade adyenCheckoutFacade;
 
+    // Rebuilt when the year changes
+    private volatile List<String> expiryYears;
+
     /**
      * {@inheritDoc}
      */
@@ -80,7 +84,7 @@ public class SelectPaymentMethodCheckoutStepController extends AbstractCheckoutS
         model.addAttribute(BREADCRUMBS_KEY, getResourceBreadcrumbBuilder().getBreadcrumbs(CHECKOUT_MULTI_PAYMENT_METHOD_BREADCRUMB));
         model.addAttribute(ADYEN_PAYMENT_FORM, new AdyenPaymentForm());
 
-        model.addAttribute(CSE_GENERATION_TIME, fromCalendar(Calendar.getInstance()));
+        model.addAttribute(CSE_GENERATION_TIME, AdyenDateUtil.getGenerationTime());
         model.addAttribute(CART_DATA_ATTR, cartData);
         model.addAttribute("expiryYears", getExpiryYears());
 
@@ -116,24 +120,23 @@ public class SelectPaymentMethodCheckoutStepController extends AbstractCheckoutS
         return getCheckoutStep().nextStep();
     }
 
-    private String fromCalendar(final Calendar calendar) {
-        final Date date = calendar.getTime();
-        final String formatted = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ").format(date);
-        return formatted.substring(0, 22) + ":" + formatted.substring(22);
-    }
-
     /**
      * Returns a list with CC expiry years
      */
     public List<String> getExpiryYears() {
-        final List<String> expiryYears = new ArrayList<>();
-        final Calendar calender = new GregorianCalendar();
-
-        for (int i = calender.get(Calendar.YEAR); i < calender.get(Calendar.YEAR) + 11; i++) {
-            expiryYears.add(String.valueOf(i));
+        final int currentYear = Year.now().getValue();
+        List<String> years = expiryYears;
+
+        if (years == null || Integer.parseInt(years.get(0)) != currentYear) {
+            final List<String> newYears = new ArrayList<>(EXPIRY_YEARS);
+            for (int i = currentYear; i < currentYear + EXPIRY_YEARS; i++) {
+                newYears.add(String.valueOf(i));
+            }
+            years = Collections.unmodifiableList(newYears);
+            expiryYears = years;
         }
 
-        return expiryYears;
+        return years;
     }
 
     /**
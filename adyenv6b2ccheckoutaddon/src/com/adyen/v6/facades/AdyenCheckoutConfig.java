@@ -0,0 +1,78 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.facades;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import com.adyen.v6.enums.AdyenCardTypeEnum;
+
+/**
+ * Immutable snapshot of the checkout page settings of a BaseStore
+ * Only holds values that depend on the store configuration
+ * Cart dependent values and payment method capabilities (refreshable, see PaymentMethodCapabilityRegistry) are resolved per request
+ */
+public class AdyenCheckoutConfig {
+    private final Date modifiedTime;
+    private final String cseUrl;
+    private final Set<AdyenCardTypeEnum> allowedCards;
+    private final boolean boletoEnabled;
+
+    /**
+     * @param modifiedTime  modification time of the BaseStore the snapshot was taken from
+     * @param cseUrl        CSE script URL, null when no CSE ID is configured
+     * @param allowedCards  allowed card types, may be null
+     * @param boletoEnabled whether Boleto is enabled on the store
+     */
+    public AdyenCheckoutConfig(final Date modifiedTime,
+                               final String cseUrl,
+                               final Collection<AdyenCardTypeEnum> allowedCards,
+                               final boolean boletoEnabled) {
+        this.modifiedTime = modifiedTime == null ? null : new Date(modifiedTime.getTime());
+        this.cseUrl = cseUrl;
+        this.allowedCards = allowedCards == null ? Collections.emptySet() : Collections.unmodifiableSet(new LinkedHashSet<>(allowedCards));
+        this.boletoEnabled = boletoEnabled;
+    }
+
+    /**
+     * Whether the snapshot was taken from the given version of the store
+     */
+    public boolean isCurrent(final Date storeModifiedTime) {
+        if (modifiedTime == null || storeModifiedTime == null) {
+            return false;
+        }
+        return modifiedTime.getTime() == storeModifiedTime.getTime();
+    }
+
+    public String getCseUrl() {
+        return cseUrl;
+    }
+
+    public Set<AdyenCardTypeEnum> getAllowedCards() {
+        return allowedCards;
+    }
+
+    public boolean isBoletoEnabled() {
+        return boletoEnabled;
+    }
+}
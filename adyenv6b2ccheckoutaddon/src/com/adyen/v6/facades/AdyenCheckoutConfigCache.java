@@ -0,0 +1,82 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.facades;
+
+import com.adyen.v6.util.LruCache;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.store.BaseStoreModel;
+
+/**
+ * Checkout config snapshots per BaseStore
+ * A snapshot is dropped as soon as the store's modification time changes, so saving the store refreshes it
+ */
+public class AdyenCheckoutConfigCache {
+    private static final int DEFAULT_MAX_SIZE = 100;
+
+    private final LruCache<PK, AdyenCheckoutConfig> configs;
+
+    public AdyenCheckoutConfigCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public AdyenCheckoutConfigCache(final int maxSize) {
+        configs = new LruCache<>(maxSize);
+    }
+
+    /**
+     * Returns the snapshot of the store or null if absent or outdated
+     */
+    public AdyenCheckoutConfig get(final BaseStoreModel baseStore) {
+        PK pk = baseStore.getPk();
+        if (pk == null) {
+            return null;
+        }
+
+        AdyenCheckoutConfig config = configs.get(pk);
+        if (config == null || ! config.isCurrent(baseStore.getModifiedtime())) {
+            return null;
+        }
+        return config;
+    }
+
+    /**
+     * Stores the snapshot, unsaved stores are not cached
+     */
+    public void put(final BaseStoreModel baseStore, final AdyenCheckoutConfig config) {
+        PK pk = baseStore.getPk();
+        if (pk == null) {
+            return;
+        }
+
+        configs.put(pk, config);
+    }
+
+    public void invalidate(final BaseStoreModel baseStore) {
+        PK pk = baseStore.getPk();
+        if (pk != null) {
+            configs.remove(pk);
+        }
+    }
+
+    public void clear() {
+        configs.clear();
+    }
+}
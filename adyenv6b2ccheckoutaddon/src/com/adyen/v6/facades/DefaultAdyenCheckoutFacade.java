@@ -33,6 +33,7 @@ import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
 import org.springframework.ui.Model;
 import org.springframework.util.Assert;
 import org.springframework.validation.BindingResult;
@@ -55,6 +56,8 @@ import com.adyen.v6.repository.OrderRepository;
 import com.adyen.v6.service.AdyenOrderService;
 import com.adyen.v6.service.AdyenPaymentService;
 import com.adyen.v6.service.AdyenTransactionService;
+import com.adyen.v6.service.PaymentMethodCapabilityRegistry;
+import com.adyen.v6.util.HmacSignerCache;
 import de.hybris.platform.commercefacades.order.CheckoutFacade;
 import de.hybris.platform.commercefacades.order.OrderFacade;
 import de.hybris.platform.commercefacades.order.data.CartData;
@@ -86,7 +89,6 @@ import static com.adyen.constants.HPPConstants.Fields.SESSION_VALIDITY;
 import static com.adyen.constants.HPPConstants.Fields.SHIP_BEFORE_DATE;
 import static com.adyen.constants.HPPConstants.Fields.SKIN_CODE;
 import static com.adyen.v6.constants.Adyenv6coreConstants.OPENINVOICE_METHODS_ALLOW_SOCIAL_SECURITY_NUMBER;
-import static com.adyen.v6.constants.Adyenv6coreConstants.OPENINVOICE_METHODS_API;
 import static com.adyen.v6.constants.Adyenv6coreConstants.PAYMENT_METHOD_BOLETO;
 import static de.hybris.platform.order.impl.DefaultCartService.SESSION_CART_PARAMETER_NAME;
 
@@ -104,8 +106,11 @@ public class DefaultAdyenCheckoutFacade implements AdyenCheckoutFacade {
     private AdyenOrderService adyenOrderService;
     private CheckoutCustomerStrategy checkoutCustomerStrategy;
     private HMACValidator hmacValidator;
+    private HmacSignerCache hmacSignerCache;
+    private AdyenCheckoutConfigCache checkoutConfigCache;
     private AdyenPaymentServiceFactory adyenPaymentServiceFactory;
     private ModelService modelService;
+    private PaymentMethodCapabilityRegistry paymentMethodCapabilityRegistry;
 
     public static final String SESSION_LOCKED_CART = "adyen_cart";
     public static final String SESSION_MD = "adyen_md";
@@ -136,7 +141,7 @@ public class DefaultAdyenCheckoutFacade implements AdyenCheckoutFacade {
         Assert.notNull(hmacKey);
 
         String dataToSign = getHmacValidator().getDataToSign(hppResponseData);
-        String calculatedMerchantSig = getHmacValidator().calculateHMAC(dataToSign, hmacKey);
+        String calculatedMerchantSig = getHmacSignerCache().getSigner(baseStore.getUid(), hmacKey).sign(dataToSign);
         LOGGER.debug("Calculated signature: " + calculatedMerchantSig);
         if (! calculatedMerchantSig.equals(merchantSig)) {
             LOGGER.error("Signature does not match!");
@@ -146,12 +151,10 @@ public class DefaultAdyenCheckoutFacade implements AdyenCheckoutFacade {
 
     @Override
     public String getCSEUrl() {
-        BaseStoreModel baseStore = baseStoreService.getCurrentBaseStore();
-
-        String cseId = baseStore.getAdyenCSEID();
-        Assert.notNull(cseId);
+        String cseUrl = getCheckoutConfig().getCseUrl();
+        Assert.notNull(cseUrl);
 
-        return getAdyenPaymentService().getHppEndpoint() + "/cse/js/" + cseId + ".shtml";
+        return cseUrl;
     }
 
     @Override
@@ -317,7 +320,7 @@ public class DefaultAdyenCheckoutFacade implements AdyenCheckoutFacade {
         hppFormData.put(DF_VALUE, cartData.getAdyenDfValue());
 
         String dataToSign = getHmacValidator().getDataToSign(hppFormData);
-        String merchantSig = getHmacValidator().calculateHMAC(dataToSign, hmacKey);
+        String merchantSig = getHmacSignerCache().getSigner(baseStore.getUid(), hmacKey).sign(dataToSign);
 
         hppFormData.put(MERCHANT_SIG, merchantSig);
 
@@ -390,9 +393,6 @@ public class DefaultAdyenCheckoutFacade implements AdyenCheckoutFacade {
             LOGGER.error(ExceptionUtils.getStackTrace(e));
         }
 
-        //Set allowed cards from BaseStore configuration
-        BaseStoreModel baseStore = baseStoreService.getCurrentBaseStore();
-
         List<RecurringDetail> storedCards = new ArrayList<>();
         boolean showRememberTheseDetails = showRememberDetails();
         if (showRememberTheseDetails) {
@@ -413,8 +413,9 @@ public class DefaultAdyenCheckoutFacade implements AdyenCheckoutFacade {
         //Set HPP payment methods
         model.addAttribute(MODEL_PAYMENT_METHODS, alternativePaymentMethods);
 
-        //Set allowed Credit Cards
-        model.addAttribute(MODEL_ALLOWED_CARDS, baseStore.getAdyenAllowedCards());
+        //Set allowed Credit Cards from BaseStore configuration
+        AdyenCheckoutConfig checkoutConfig = getCheckoutConfig();
+        model.addAttribute(MODEL_ALLOWED_CARDS, checkoutConfig.getAllowedCards());
 
         model.addAttribute(MODEL_REMEMBER_DETAILS, showRememberTheseDetails);
         model.addAttribute(MODEL_STORED_CARDS, storedCards);
@@ -429,8 +430,11 @@ public class DefaultAdyenCheckoutFacade implements AdyenCheckoutFacade {
         CartModel cartModel = cartService.getSessionCart();
         cartModel.setAdyenStoredCards(recurringDetailReferences);
 
-        // OpenInvoice Methods
-        List<String> openInvoiceMethods = OPENINVOICE_METHODS_API;
+        // OpenInvoice Methods, among the payment methods offered, including the prefix entries of the registry (e.g. afterpay_*)
+        Set<String> openInvoiceMethods = alternativePaymentMethods.stream()
+                                                                  .map(PaymentMethod::getBrandCode)
+                                                                  .filter(brandCode -> getPaymentMethodCapabilityRegistry().supports(brandCode, PaymentMethodCapabilityRegistry.Capability.OPEN_INVOICE))
+                                                                  .collect(Collectors.toSet());
         model.addAttribute(MODEL_OPEN_INVOICE_METHODS, openInvoiceMethods);
 
         // retrieve shipping Country to define if social security number needs to be shown or date of birth field for openinvoice methods
@@ -444,9 +448,8 @@ public class DefaultAdyenCheckoutFacade implements AdyenCheckoutFacade {
 
     @Override
     public boolean showBoleto() {
-        BaseStoreModel baseStore = baseStoreService.getCurrentBaseStore();
         //Check base store settings
-        if (baseStore.getAdyenBoleto() == null || ! baseStore.getAdyenBoleto()) {
+        if (! getCheckoutConfig().isBoletoEnabled()) {
             return false;
         }
 
@@ -458,6 +461,34 @@ public class DefaultAdyenCheckoutFacade implements AdyenCheckoutFacade {
         return "BRL".equals(currency) && "BR".equals(country);
     }
 
+    /**
+     * Returns the checkout config snapshot of the current BaseStore, taking a new one when the store was modified
+     */
+    public AdyenCheckoutConfig getCheckoutConfig() {
+        BaseStoreModel baseStore = baseStoreService.getCurrentBaseStore();
+
+        AdyenCheckoutConfig checkoutConfig = getCheckoutConfigCache().get(baseStore);
+        if (checkoutConfig == null) {
+            checkoutConfig = createCheckoutConfig(baseStore);
+            getCheckoutConfigCache().put(baseStore, checkoutConfig);
+        }
+
+        return checkoutConfig;
+    }
+
+    protected AdyenCheckoutConfig createCheckoutConfig(final BaseStoreModel baseStore) {
+        String cseId = baseStore.getAdyenCSEID();
+        String cseUrl = null;
+        if (cseId != null) {
+            cseUrl = getAdyenPaymentServiceFactory().createFromBaseStore(baseStore).getHppEndpoint() + "/cse/js/" + cseId + ".shtml";
+        }
+
+        return new AdyenCheckoutConfig(baseStore.getModifiedtime(),
+                                       cseUrl,
+                                       baseStore.getAdyenAllowedCards(),
+                                       Boolean.TRUE.equals(baseStore.getAdyenBoleto()));
+    }
+
     @Override
     public boolean showRememberDetails() {
         BaseStoreModel baseStore = baseStoreService.getCurrentBaseStore();
@@ -527,7 +558,10 @@ public class DefaultAdyenCheckoutFacade implements AdyenCheckoutFacade {
         boolean showRememberDetails = showRememberDetails();
         boolean showSocialSecurityNumber = showSocialSecurityNumber();
 
-        AdyenPaymentFormValidator adyenPaymentFormValidator = new AdyenPaymentFormValidator(cartModel.getAdyenStoredCards(), showRememberDetails, showSocialSecurityNumber);
+        AdyenPaymentFormValidator adyenPaymentFormValidator = new AdyenPaymentFormValidator(cartModel.getAdyenStoredCards(),
+                                                                                            showRememberDetails,
+                                                                                            showSocialSecurityNumber,
+                                                                                            paymentMethod -> getPaymentMethodCapabilityRegistry().supports(paymentMethod, PaymentMethodCapabilityRegistry.Capability.OPEN_INVOICE));
         adyenPaymentFormValidator.validate(adyenPaymentForm, bindingResult);
 
         if (bindingResult.hasErrors()) {
@@ -632,6 +666,28 @@ public class DefaultAdyenCheckoutFacade implements AdyenCheckoutFacade {
         this.hmacValidator = hmacValidator;
     }
 
+    public HmacSignerCache getHmacSignerCache() {
+        if (hmacSignerCache == null) {
+            hmacSignerCache = new HmacSignerCache();
+        }
+        return hmacSignerCache;
+    }
+
+    public void setHmacSignerCache(HmacSignerCache hmacSignerCache) {
+        this.hmacSignerCache = hmacSignerCache;
+    }
+
+    public AdyenCheckoutConfigCache getCheckoutConfigCache() {
+        if (checkoutConfigCache == null) {
+            checkoutConfigCache = new AdyenCheckoutConfigCache();
+        }
+        return checkoutConfigCache;
+    }
+
+    public void setCheckoutConfigCache(AdyenCheckoutConfigCache checkoutConfigCache) {
+        this.checkoutConfigCache = checkoutConfigCache;
+    }
+
     public AdyenPaymentServiceFactory getAdyenPaymentServiceFactory() {
         return adyenPaymentServiceFactory;
     }
@@ -647,4 +703,13 @@ public class DefaultAdyenCheckoutFacade implements AdyenCheckoutFacade {
     public void setModelService(ModelService modelService) {
         this.modelService = modelService;
     }
-}
\ No newline at end of file
+
+    public PaymentMethodCapabilityRegistry getPaymentMethodCapabilityRegistry() {
+        return paymentMethodCapabilityRegistry;
+    }
+
+    @Required
+    public void setPaymentMethodCapabilityRegistry(PaymentMethodCapabilityRegistry paymentMethodCapabilityRegistry) {
+        this.paymentMethodCapabilityRegistry = paymentMethodCapabilityRegistry;
+    }
+}
@@ -21,20 +21,25 @@
 package com.adyen.v6.forms.validation;
 
 import java.util.Set;
+import java.util.function.Predicate;
 import org.springframework.validation.Errors;
 import org.springframework.validation.Validator;
 import com.adyen.v6.forms.AdyenPaymentForm;
-import static com.adyen.v6.constants.Adyenv6coreConstants.OPENINVOICE_METHODS_API;
 
 public class AdyenPaymentFormValidator implements Validator {
     private Set<String> storedCards;
     private boolean showRememberTheseDetails;
     private boolean showSocialSecurityNumber;
+    private Predicate<String> isOpenInvoiceMethod;
 
-    public AdyenPaymentFormValidator(Set<String> storedCards, boolean showRememberTheseDetails, boolean showSocialSecurityNumber) {
+    /**
+     * @param isOpenInvoiceMethod whether a payment method is open invoice, requiring the date of birth and social security number
+     */
+    public AdyenPaymentFormValidator(Set<String> storedCards, boolean showRememberTheseDetails, boolean showSocialSecurityNumber, Predicate<String> isOpenInvoiceMethod) {
         this.storedCards = storedCards;
         this.showRememberTheseDetails = showRememberTheseDetails;
         this.showSocialSecurityNumber = showSocialSecurityNumber;
+        this.isOpenInvoiceMethod = isOpenInvoiceMethod;
     }
 
     @Override
@@ -68,7 +73,7 @@ public class AdyenPaymentFormValidator implements Validator {
         }
 
         // check if date or social seucrity number is set
-        if (OPENINVOICE_METHODS_API.contains(form.getPaymentMethod())) {
+        if (isOpenInvoiceMethod.test(form.getPaymentMethod())) {
 
             if (showSocialSecurityNumber) {
                 if (form.getSocialSecurityNumber().isEmpty()) {
@@ -23,6 +23,7 @@ package com.adyen.v6.facades;
 import java.math.BigDecimal;
 import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
+import java.util.Date;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -42,7 +43,9 @@ import com.adyen.v6.repository.OrderRepository;
 import com.adyen.v6.service.AdyenOrderService;
 import com.adyen.v6.service.AdyenTransactionService;
 import com.adyen.v6.service.DefaultAdyenPaymentService;
+import com.adyen.v6.service.PaymentMethodCapabilityRegistry;
 import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
 import de.hybris.platform.commercefacades.order.CheckoutFacade;
 import de.hybris.platform.commercefacades.order.OrderFacade;
 import de.hybris.platform.commercefacades.order.data.CartData;
@@ -59,6 +62,7 @@ import de.hybris.platform.servicelayer.session.SessionService;
 import de.hybris.platform.store.BaseStoreModel;
 import de.hybris.platform.store.services.BaseStoreService;
 import static com.adyen.constants.HPPConstants.Fields.CURRENCY_CODE;
+import static com.adyen.constants.HPPConstants.Fields.MERCHANT_SIG;
 import static com.adyen.constants.HPPConstants.Fields.PAYMENT_AMOUNT;
 import static com.adyen.v6.facades.DefaultAdyenCheckoutFacade.SESSION_LOCKED_CART;
 import static com.adyen.v6.facades.DefaultAdyenCheckoutFacade.SESSION_MD;
@@ -66,14 +70,19 @@ import static com.adyen.v6.facades.DefaultAdyenCheckoutFacade.THREE_D_MD;
 import static com.adyen.v6.facades.DefaultAdyenCheckoutFacade.THREE_D_PARES;
 import static de.hybris.platform.order.impl.DefaultCartService.SESSION_CART_PARAMETER_NAME;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @UnitTest
 @RunWith(MockitoJUnitRunner.class)
 public class AdyenCheckoutFacadeTest {
+    private static final String HMAC_KEY = "4468D9782DEF54FCD706C9100C71EC43932B1EBC2ACF6BA0560C05AAA7550C48";
+
     @Mock
     private BaseStoreService baseStoreServiceMock;
 
@@ -117,6 +126,8 @@ public class AdyenCheckoutFacadeTest {
 
     private PaymentResult paymentResultMock;
 
+    private String merchantSig;
+
     @Before
     public void setUp() throws SignatureException, InvalidCartException {
         BaseStoreModel baseStoreModelMock = mock(BaseStoreModel.class);
@@ -124,12 +135,14 @@ public class AdyenCheckoutFacadeTest {
         OrderData orderDataMock = mock(OrderData.class);
         paymentResultMock = mock(PaymentResult.class);
 
-        when(baseStoreModelMock.getAdyenSkinHMAC()).thenReturn("hmacKey");
+        when(baseStoreModelMock.getUid()).thenReturn("baseStore");
+        when(baseStoreModelMock.getAdyenSkinHMAC()).thenReturn(HMAC_KEY);
         when(baseStoreModelMock.getAdyenMerchantAccount()).thenReturn("merchantAccount");
         when(baseStoreModelMock.getAdyenSkinCode()).thenReturn("skinCode");
         when(baseStoreServiceMock.getCurrentBaseStore()).thenReturn(baseStoreModelMock);
 
-        when(hmacValidatorMock.calculateHMAC(null, "hmacKey")).thenReturn("merchantSig");
+        when(hmacValidatorMock.getDataToSign(any(SortedMap.class))).thenReturn("dataToSign");
+        merchantSig = new HMACValidator().calculateHMAC("dataToSign", HMAC_KEY);
 
         when(cartModelMock.getCode()).thenReturn("code");
         when(cartServiceMock.getSessionCart()).thenReturn(cartModelMock);
@@ -141,6 +154,8 @@ public class AdyenCheckoutFacadeTest {
         when(paymentResultMock.getMd()).thenReturn("md");
 
         when(adyenPaymentServiceFactoryMock.createFromBaseStore(baseStoreModelMock)).thenReturn(adyenPaymentServiceMock);
+
+        adyenCheckoutFacade.setPaymentMethodCapabilityRegistry(new PaymentMethodCapabilityRegistry());
     }
 
     @Test
@@ -162,7 +177,7 @@ public class AdyenCheckoutFacadeTest {
     public void testValidateHPPResponse() throws NoSuchAlgorithmException, SignatureException {
         SortedMap<String, String> hppResponseData = new TreeMap<String, String>();
 
-        adyenCheckoutFacade.validateHPPResponse(hppResponseData, "merchantSig");
+        adyenCheckoutFacade.validateHPPResponse(hppResponseData, merchantSig);
 
         try {
             adyenCheckoutFacade.validateHPPResponse(hppResponseData, "wrongMerchantSig");
@@ -184,7 +199,7 @@ public class AdyenCheckoutFacadeTest {
         when(requestMock.getParameter(HPPConstants.Response.PSP_REFERENCE)).thenReturn("pspReference");
         when(requestMock.getParameter(HPPConstants.Response.SHOPPER_LOCALE)).thenReturn("shopperLocale");
         when(requestMock.getParameter(HPPConstants.Response.SKIN_CODE)).thenReturn("skinCode");
-        when(requestMock.getParameter(HPPConstants.Response.MERCHANT_SIG)).thenReturn("merchantSig");
+        when(requestMock.getParameter(HPPConstants.Response.MERCHANT_SIG)).thenReturn(merchantSig);
 
         OrderData existingOrderDataMock = mock(OrderData.class);
         when(orderFacadeMock.getOrderDetailsForCode("merchantReference")).thenReturn(existingOrderDataMock);
@@ -320,6 +335,47 @@ public class AdyenCheckoutFacadeTest {
 
         assertEquals("1234", hppFormData.get(PAYMENT_AMOUNT));
         assertEquals("EUR", hppFormData.get(CURRENCY_CODE));
+        assertEquals(merchantSig, hppFormData.get(MERCHANT_SIG));
+    }
+
+    @Test
+    public void testCheckoutConfigCache() {
+        BaseStoreModel baseStoreModel = mock(BaseStoreModel.class);
+        when(baseStoreModel.getPk()).thenReturn(PK.fromLong(1L));
+        when(baseStoreModel.getModifiedtime()).thenReturn(new Date(1000L));
+        when(baseStoreModel.getAdyenCSEID()).thenReturn("cseId");
+        when(baseStoreModel.getAdyenBoleto()).thenReturn(true);
+        when(baseStoreServiceMock.getCurrentBaseStore()).thenReturn(baseStoreModel);
+        when(adyenPaymentServiceFactoryMock.createFromBaseStore(baseStoreModel)).thenReturn(adyenPaymentServiceMock);
+        when(adyenPaymentServiceMock.getHppEndpoint()).thenReturn("https://test.adyen.com/hpp");
+
+        assertEquals("https://test.adyen.com/hpp/cse/js/cseId.shtml", adyenCheckoutFacade.getCSEUrl());
+        assertTrue(adyenCheckoutFacade.getCheckoutConfig().isBoletoEnabled());
+        assertEquals("https://test.adyen.com/hpp/cse/js/cseId.shtml", adyenCheckoutFacade.getCSEUrl());
+
+        //Snapshot is served until the store is modified
+        verify(adyenPaymentServiceFactoryMock, times(1)).createFromBaseStore(baseStoreModel);
+
+        when(baseStoreModel.getModifiedtime()).thenReturn(new Date(2000L));
+        when(baseStoreModel.getAdyenCSEID()).thenReturn("newCseId");
+
+        assertEquals("https://test.adyen.com/hpp/cse/js/newCseId.shtml", adyenCheckoutFacade.getCSEUrl());
+        verify(adyenPaymentServiceFactoryMock, times(2)).createFromBaseStore(baseStoreModel);
+    }
+
+    @Test
+    public void testCheckoutConfigOfUnsavedStore() {
+        BaseStoreModel baseStoreModel = mock(BaseStoreModel.class);
+        when(baseStoreModel.getModifiedtime()).thenReturn(new Date(1000L));
+        when(baseStoreModel.getAdyenCSEID()).thenReturn("cseId");
+        when(baseStoreServiceMock.getCurrentBaseStore()).thenReturn(baseStoreModel);
+        when(adyenPaymentServiceFactoryMock.createFromBaseStore(baseStoreModel)).thenReturn(adyenPaymentServiceMock);
+        when(adyenPaymentServiceMock.getHppEndpoint()).thenReturn("https://test.adyen.com/hpp");
+
+        //Stores without PK are not cached
+        assertEquals("https://test.adyen.com/hpp/cse/js/cseId.shtml", adyenCheckoutFacade.getCSEUrl());
+        assertEquals("https://test.adyen.com/hpp/cse/js/cseId.shtml", adyenCheckoutFacade.getCSEUrl());
+        verify(adyenPaymentServiceFactoryMock, times(2)).createFromBaseStore(baseStoreModel);
     }
 
     private void verifyAuthorized(OrderModel orderModelMock) throws InvalidCartException {
@@ -0,0 +1,209 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.log4j.Logger;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded stand-in for the Adyen API, so load tests don't hit Adyen
+ * Point BaseStore.adyenAPIEndpoint to getEndpoint() and the HPP endpoint to getHppEndpoint()
+ * Every action answers with a canned response after the configured latency, or with an API error at the configured error rate
+ */
+public class AdyenApiStubServer {
+    private static final Logger LOG = Logger.getLogger(AdyenApiStubServer.class);
+
+    public static final String AUTHORISE = "authorise";
+    public static final String AUTHORISE_3D = "authorise3d";
+    public static final String CAPTURE = "capture";
+    public static final String REFUND = "refund";
+    public static final String CANCEL_OR_REFUND = "cancelOrRefund";
+    public static final String LIST_RECURRING_DETAILS = "listRecurringDetails";
+    public static final String DISABLE = "disable";
+    public static final String DIRECTORY_LOOKUP = "directory.shtml";
+
+    /**
+     * Replaced by a unique pspReference in every response
+     */
+    public static final String PSP_REFERENCE_PLACEHOLDER = "${pspReference}";
+
+    private static final String ERROR_RESPONSE = "{\"status\":500,\"errorCode\":\"901\",\"message\":\"Stubbed error\",\"errorType\":\"internal\"}";
+
+    private final Map<String, String> responses = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+    private final AtomicLong pspReferenceSequence = new AtomicLong(8800000000000000L);
+
+    private volatile long latencyMillis;
+    private volatile long latencyJitterMillis;
+    private volatile double errorRate;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public AdyenApiStubServer() {
+        responses.put(AUTHORISE, "{\"pspReference\":\"" + PSP_REFERENCE_PLACEHOLDER + "\",\"resultCode\":\"Authorised\",\"authCode\":\"12345\"}");
+        responses.put(AUTHORISE_3D, "{\"pspReference\":\"" + PSP_REFERENCE_PLACEHOLDER + "\",\"resultCode\":\"Authorised\",\"authCode\":\"12345\"}");
+        responses.put(CAPTURE, "{\"pspReference\":\"" + PSP_REFERENCE_PLACEHOLDER + "\",\"response\":\"[capture-received]\"}");
+        responses.put(REFUND, "{\"pspReference\":\"" + PSP_REFERENCE_PLACEHOLDER + "\",\"response\":\"[refund-received]\"}");
+        responses.put(CANCEL_OR_REFUND, "{\"pspReference\":\"" + PSP_REFERENCE_PLACEHOLDER + "\",\"response\":\"[cancelOrRefund-received]\"}");
+        responses.put(LIST_RECURRING_DETAILS,
+                      "{\"shopperReference\":\"shopper\",\"details\":[{\"RecurringDetail\":{\"recurringDetailReference\":\"8315000000000000\",\"variant\":\"visa\","
+                              + "\"card\":{\"expiryMonth\":\"8\",\"expiryYear\":\"2030\",\"holderName\":\"Jan Jansen\",\"number\":\"1111\"}}}]}");
+        responses.put(DISABLE, "{\"response\":\"[detail-successfully-disabled]\",\"details\":[{\"recurringDetailReference\":\"8315000000000000\"}]}");
+        responses.put(DIRECTORY_LOOKUP, "{\"paymentMethods\":[{\"brandCode\":\"ideal\",\"name\":\"iDEAL\"},{\"brandCode\":\"klarna\",\"name\":\"Klarna\"}]}");
+    }
+
+    /**
+     * Start listening on a free local port
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "adyen-api-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        LOG.info("Adyen API stub listening on " + getEndpoint());
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    public String getEndpoint() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public String getHppEndpoint() {
+        return getEndpoint() + "/hpp";
+    }
+
+    public long getRequestCount(String action) {
+        LongAdder count = requestCounts.get(action);
+        return count != null ? count.sum() : 0;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            drain(exchange.getRequestBody());
+
+            String path = exchange.getRequestURI().getPath();
+            String action = path.substring(path.lastIndexOf('/') + 1);
+            requestCounts.computeIfAbsent(action, key -> new LongAdder()).increment();
+
+            sleep();
+
+            String response = responses.get(action);
+            if (response == null) {
+                respond(exchange, 404, "{\"status\":404,\"errorCode\":\"000\",\"message\":\"Unknown action " + action + "\",\"errorType\":\"validation\"}");
+            } else if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                respond(exchange, 500, ERROR_RESPONSE);
+            } else {
+                respond(exchange, 200, response.replace(PSP_REFERENCE_PLACEHOLDER, String.valueOf(pspReferenceSequence.incrementAndGet())));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sleep() {
+        long delay = latencyMillis;
+        if (latencyJitterMillis > 0) {
+            delay += ThreadLocalRandom.current().nextLong(latencyJitterMillis + 1);
+        }
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[4096];
+        while (inputStream.read(buffer) != -1) {
+            // discard the request body
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    /**
+     * Override the canned response of an action, e.g. a Refused authorisation
+     */
+    public void setResponse(String action, String response) {
+        responses.put(action, response);
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public long getLatencyJitterMillis() {
+        return latencyJitterMillis;
+    }
+
+    public void setLatencyJitterMillis(long latencyJitterMillis) {
+        this.latencyJitterMillis = latencyJitterMillis;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+}
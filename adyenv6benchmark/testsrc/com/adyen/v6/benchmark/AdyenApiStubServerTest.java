@@ -0,0 +1,98 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.adyen.model.PaymentResult;
+import com.adyen.model.modification.ModificationResult;
+import com.adyen.service.exception.ApiException;
+import com.adyen.v6.service.DefaultAdyenPaymentService;
+import de.hybris.bootstrap.annotations.UnitTest;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+@UnitTest
+public class AdyenApiStubServerTest {
+    private AdyenApiStubServer stubServer;
+    private DefaultAdyenPaymentService adyenPaymentService;
+
+    @Before
+    public void setUp() throws Exception {
+        stubServer = new AdyenApiStubServer();
+        stubServer.start();
+        adyenPaymentService = AdyenPaymentLoadDriver.createPaymentService(stubServer);
+    }
+
+    @After
+    public void tearDown() {
+        stubServer.stop();
+    }
+
+    @Test
+    public void testCannedResponses() throws Exception {
+        PaymentResult paymentResult = adyenPaymentService.authorise(BenchmarkCartDataFactory.createCardCart(), BenchmarkCartDataFactory.createHttpRequest(), null);
+        assertTrue(paymentResult.isAuthorised());
+
+        ModificationResult first = adyenPaymentService.capture(new BigDecimal("10.00"), Currency.getInstance("EUR"), "8813000000000000", "code");
+        ModificationResult second = adyenPaymentService.capture(new BigDecimal("10.00"), Currency.getInstance("EUR"), "8813000000000000", "code");
+        assertEquals(ModificationResult.ResponseEnum.CAPTURE_RECEIVED_, first.getResponse());
+        assertNotEquals(first.getPspReference(), second.getPspReference());
+
+        assertEquals(1, adyenPaymentService.getStoredCards("shopper").size());
+        assertTrue(adyenPaymentService.disableStoredCard("shopper", "8315000000000000"));
+        assertFalse(adyenPaymentService.getPaymentMethods(new BigDecimal("10.00"), "EUR", "NL").isEmpty());
+
+        assertEquals(1, stubServer.getRequestCount(AdyenApiStubServer.AUTHORISE));
+        assertEquals(2, stubServer.getRequestCount(AdyenApiStubServer.CAPTURE));
+        assertEquals(Long.valueOf(2), adyenPaymentService.getAdyenPaymentMetrics().getCallCounts().get("capture/merchantAccount/[capture-received]"));
+    }
+
+    @Test(expected = ApiException.class)
+    public void testErrorRate() throws Exception {
+        stubServer.setErrorRate(1);
+        try {
+            adyenPaymentService.getStoredCards("shopper");
+        } finally {
+            assertEquals(1, adyenPaymentService.getAdyenPaymentMetrics().getErrorCount());
+        }
+    }
+
+    @Test
+    public void testLoadDriver() throws Exception {
+        AdyenPaymentLoadDriver loadDriver = new AdyenPaymentLoadDriver(adyenPaymentService);
+        loadDriver.setThreads(2);
+        loadDriver.setIterationsPerThread(5);
+        loadDriver.setOperations(Collections.singletonList(AdyenPaymentLoadDriver.Operation.REFUND));
+
+        AdyenPaymentLoadDriver.LoadResult result = loadDriver.run();
+
+        assertEquals(10, result.getCount(AdyenPaymentLoadDriver.Operation.REFUND));
+        assertEquals(0, result.getErrors(AdyenPaymentLoadDriver.Operation.REFUND));
+        assertEquals(10, stubServer.getRequestCount(AdyenApiStubServer.REFUND));
+    }
+}
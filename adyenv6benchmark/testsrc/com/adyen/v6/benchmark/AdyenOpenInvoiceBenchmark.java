@@ -0,0 +1,72 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.adyen.model.PaymentRequest;
+import com.adyen.v6.enums.RecurringContractMode;
+import com.adyen.v6.factory.AdyenRequestFactory;
+import com.adyen.v6.service.PaymentMethodCapabilityRegistry;
+import de.hybris.platform.commercefacades.order.data.CartData;
+import static com.adyen.v6.benchmark.BenchmarkCartDataFactory.MERCHANT_ACCOUNT;
+
+/**
+ * OpenInvoice authorisation request building, scaling with the number of cart entries
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AdyenOpenInvoiceBenchmark {
+    @Param({"1", "50", "500"})
+    private int lines;
+
+    private AdyenRequestFactory adyenRequestFactory;
+    private HttpServletRequest request;
+    private CartData cartData;
+
+    @Setup
+    public void setUp() {
+        adyenRequestFactory = new AdyenRequestFactory();
+        adyenRequestFactory.setPaymentMethodCapabilityRegistry(new PaymentMethodCapabilityRegistry());
+        request = BenchmarkCartDataFactory.createHttpRequest();
+        cartData = BenchmarkCartDataFactory.createOpenInvoiceCart(lines);
+    }
+
+    @Benchmark
+    public PaymentRequest openInvoice() {
+        return adyenRequestFactory.createAuthorizationRequest(MERCHANT_ACCOUNT, cartData, request, null, RecurringContractMode.NONE);
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import com.adyen.v6.factory.AdyenRequestFactory;
+import com.adyen.v6.service.AdyenPaymentService;
+import com.adyen.v6.service.DefaultAdyenPaymentService;
+import com.adyen.v6.service.PaymentMethodCapabilityRegistry;
+import de.hybris.platform.commercefacades.order.data.CartData;
+import de.hybris.platform.store.BaseStoreModel;
+
+/**
+ * Drives DefaultAdyenPaymentService from concurrent threads and reports throughput and latency percentiles per operation
+ * Runs against AdyenApiStubServer, or against any endpoint configured on the given BaseStore
+ *
+ * Usage: AdyenPaymentLoadDriver [threads] [iterationsPerThread] [stubLatencyMillis] [stubErrorRate]
+ */
+public class AdyenPaymentLoadDriver {
+    public enum Operation {
+        AUTHORISE, CAPTURE, REFUND, CANCEL_OR_REFUND, STORED_CARDS, DISABLE_STORED_CARD, PAYMENT_METHODS
+    }
+
+    private static final Currency EUR = Currency.getInstance(BenchmarkCartDataFactory.CURRENCY);
+    private static final BigDecimal AMOUNT = new BigDecimal("100.00");
+
+    private final AdyenPaymentService adyenPaymentService;
+    private final CartData cartData = BenchmarkCartDataFactory.createCardCart();
+    private final HttpServletRequest request = BenchmarkCartDataFactory.createHttpRequest();
+
+    private int threads = 8;
+    private int iterationsPerThread = 100;
+    private List<Operation> operations = Arrays.asList(Operation.values());
+
+    public AdyenPaymentLoadDriver(final AdyenPaymentService adyenPaymentService) {
+        this.adyenPaymentService = adyenPaymentService;
+    }
+
+    public static void main(String[] args) throws Exception {
+        AdyenApiStubServer stubServer = new AdyenApiStubServer();
+        stubServer.setLatencyMillis(args.length > 2 ? Long.parseLong(args[2]) : 50);
+        stubServer.setLatencyJitterMillis(stubServer.getLatencyMillis() / 2);
+        stubServer.setErrorRate(args.length > 3 ? Double.parseDouble(args[3]) : 0.01);
+        stubServer.start();
+
+        try {
+            AdyenPaymentLoadDriver loadDriver = new AdyenPaymentLoadDriver(createPaymentService(stubServer));
+            loadDriver.setThreads(args.length > 0 ? Integer.parseInt(args[0]) : 8);
+            loadDriver.setIterationsPerThread(args.length > 1 ? Integer.parseInt(args[1]) : 100);
+
+            LoadResult result = loadDriver.run();
+            System.out.println(result);
+        } finally {
+            stubServer.stop();
+        }
+    }
+
+    /**
+     * Payment service of a BaseStore pointing to the stub
+     */
+    public static DefaultAdyenPaymentService createPaymentService(AdyenApiStubServer stubServer) {
+        BaseStoreModel baseStore = new BaseStoreModel();
+        baseStore.setUid("loadtest");
+        baseStore.setAdyenMerchantAccount(BenchmarkCartDataFactory.MERCHANT_ACCOUNT);
+        baseStore.setAdyenUsername("ws@Company.LoadTest");
+        baseStore.setAdyenPassword("password");
+        baseStore.setAdyenSkinCode("skinCode");
+        baseStore.setAdyenSkinHMAC("4468D9782DEF54FCD706C9100C71EC43932B1EBC2ACF6BA0560C05AAA7550C48");
+        baseStore.setAdyenAPIEndpoint(stubServer.getEndpoint());
+        baseStore.setAdyenHppTest(true);
+
+        AdyenRequestFactory adyenRequestFactory = new AdyenRequestFactory();
+        adyenRequestFactory.setPaymentMethodCapabilityRegistry(new PaymentMethodCapabilityRegistry());
+
+        DefaultAdyenPaymentService adyenPaymentService = new DefaultAdyenPaymentService(baseStore);
+        adyenPaymentService.setAdyenRequestFactory(adyenRequestFactory);
+        adyenPaymentService.getConfig().setHppEndpoint(stubServer.getHppEndpoint());
+        return adyenPaymentService;
+    }
+
+    /**
+     * Run every thread through the operations in turn, iterationsPerThread times
+     */
+    public LoadResult run() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Map<Operation, Recorder>>> futures = new ArrayList<>(threads);
+            long start = System.nanoTime();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(this::runThread));
+            }
+
+            Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+            for (Future<Map<Operation, Recorder>> future : futures) {
+                future.get().forEach((operation, recorder) -> recorders.computeIfAbsent(operation, key -> new Recorder()).addAll(recorder));
+            }
+
+            return new LoadResult(recorders, System.nanoTime() - start);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Map<Operation, Recorder> runThread() {
+        Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+        for (int i = 0; i < iterationsPerThread; i++) {
+            for (Operation operation : operations) {
+                Recorder recorder = recorders.computeIfAbsent(operation, key -> new Recorder());
+                long start = System.nanoTime();
+                try {
+                    execute(operation);
+                    recorder.record(System.nanoTime() - start, false);
+                } catch (Exception e) {
+                    recorder.record(System.nanoTime() - start, true);
+                }
+            }
+        }
+        return recorders;
+    }
+
+    private void execute(Operation operation) throws Exception {
+        switch (operation) {
+            case AUTHORISE:
+                adyenPaymentService.authorise(cartData, request, null);
+                break;
+            case CAPTURE:
+                adyenPaymentService.capture(AMOUNT, EUR, "8813000000000000", cartData.getCode());
+                break;
+            case REFUND:
+                adyenPaymentService.refund(AMOUNT, EUR, "8813000000000000", cartData.getCode());
+                break;
+            case CANCEL_OR_REFUND:
+                adyenPaymentService.cancelOrRefund("8813000000000000", cartData.getCode());
+                break;
+            case STORED_CARDS:
+                adyenPaymentService.getStoredCards("shopper");
+                break;
+            case DISABLE_STORED_CARD:
+                adyenPaymentService.disableStoredCard("shopper", "8315000000000000");
+                break;
+            case PAYMENT_METHODS:
+                adyenPaymentService.getPaymentMethods(AMOUNT, EUR.getCurrencyCode(), "NL");
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported operation " + operation);
+        }
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getIterationsPerThread() {
+        return iterationsPerThread;
+    }
+
+    public void setIterationsPerThread(int iterationsPerThread) {
+        this.iterationsPerThread = iterationsPerThread;
+    }
+
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<Operation> operations) {
+        this.operations = operations;
+    }
+
+    /**
+     * Latencies of one operation, in nanoseconds
+     */
+    static class Recorder {
+        private long[] latencies = new long[256];
+        private int size;
+        private long errors;
+
+        void record(long latency, boolean error) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latency;
+            if (error) {
+                errors++;
+            }
+        }
+
+        void addAll(Recorder other) {
+            for (int i = 0; i < other.size; i++) {
+                record(other.latencies[i], false);
+            }
+            errors += other.errors;
+        }
+    }
+
+    public static class LoadResult {
+        private final Map<Operation, Recorder> recorders;
+        private final long elapsedNanos;
+
+        LoadResult(Map<Operation, Recorder> recorders, long elapsedNanos) {
+            this.recorders = recorders;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getCount(Operation operation) {
+            Recorder recorder = recorders.get(operation);
+            return recorder != null ? recorder.size : 0;
+        }
+
+        public long getErrors(Operation operation) {
+            Recorder recorder = recorders.get(operation);
+            return recorder != null ? recorder.errors : 0;
+        }
+
+        public long getTotalCount() {
+            return recorders.values().stream().mapToLong(recorder -> recorder.size).sum();
+        }
+
+        public double getThroughput() {
+            return getTotalCount() / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * Latency percentile (0-100) of the operation, in milliseconds
+         */
+        public double getLatencyMillis(Operation operation, double percentile) {
+            Recorder recorder = recorders.get(operation);
+            if (recorder == null) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(recorder.latencies, recorder.size);
+            Arrays.sort(sorted);
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = Math.min(Math.max((int) Math.ceil(percentile / 100 * sorted.length) - 1, 0), sorted.length - 1);
+            return sorted[index] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d requests in %.1f s, %.1f req/s%n", getTotalCount(), elapsedNanos / 1e9, getThroughput()));
+            sb.append(String.format("%-20s %8s %8s %10s %10s %10s %10s%n", "operation", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+            for (Operation operation : recorders.keySet()) {
+                sb.append(String.format("%-20s %8d %8d %10.2f %10.2f %10.2f %10.2f%n",
+                                        operation,
+                                        getCount(operation),
+                                        getErrors(operation),
+                                        getLatencyMillis(operation, 50),
+                                        getLatencyMillis(operation, 90),
+                                        getLatencyMillis(operation, 99),
+                                        getLatencyMillis(operation, 100)));
+            }
+            return sb.toString();
+        }
+    }
+}
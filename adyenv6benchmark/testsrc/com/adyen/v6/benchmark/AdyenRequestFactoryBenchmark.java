@@ -0,0 +1,111 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.adyen.model.PaymentRequest;
+import com.adyen.model.modification.CaptureRequest;
+import com.adyen.model.modification.RefundRequest;
+import com.adyen.v6.enums.RecurringContractMode;
+import com.adyen.v6.factory.AdyenRequestFactory;
+import com.adyen.v6.service.PaymentMethodCapabilityRegistry;
+import de.hybris.platform.commercefacades.order.data.CartData;
+import static com.adyen.v6.benchmark.BenchmarkCartDataFactory.MERCHANT_ACCOUNT;
+
+/**
+ * Request building cost of AdyenRequestFactory per payment method
+ * cardWithoutAddresses vs card isolates the address mapping
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AdyenRequestFactoryBenchmark {
+    private static final Currency EUR = Currency.getInstance(BenchmarkCartDataFactory.CURRENCY);
+    private static final BigDecimal AMOUNT = new BigDecimal("100.00");
+
+    private AdyenRequestFactory adyenRequestFactory;
+    private HttpServletRequest request;
+
+    private CartData cardCart;
+    private CartData cardCartWithoutAddresses;
+    private CartData oneClickCart;
+    private CartData boletoCart;
+
+    @Setup
+    public void setUp() {
+        adyenRequestFactory = new AdyenRequestFactory();
+        adyenRequestFactory.setPaymentMethodCapabilityRegistry(new PaymentMethodCapabilityRegistry());
+        request = BenchmarkCartDataFactory.createHttpRequest();
+
+        cardCart = BenchmarkCartDataFactory.createCardCart();
+        cardCartWithoutAddresses = BenchmarkCartDataFactory.createCardCart();
+        cardCartWithoutAddresses.setDeliveryAddress(null);
+        cardCartWithoutAddresses.getPaymentInfo().setBillingAddress(null);
+        oneClickCart = BenchmarkCartDataFactory.createOneClickCart();
+        boletoCart = BenchmarkCartDataFactory.createBoletoCart();
+    }
+
+    @Benchmark
+    public PaymentRequest card() {
+        return adyenRequestFactory.createAuthorizationRequest(MERCHANT_ACCOUNT, cardCart, request, null, RecurringContractMode.ONECLICK);
+    }
+
+    @Benchmark
+    public PaymentRequest cardWithoutAddresses() {
+        return adyenRequestFactory.createAuthorizationRequest(MERCHANT_ACCOUNT, cardCartWithoutAddresses, request, null, RecurringContractMode.ONECLICK);
+    }
+
+    @Benchmark
+    public PaymentRequest oneClick() {
+        return adyenRequestFactory.createAuthorizationRequest(MERCHANT_ACCOUNT, oneClickCart, request, null, RecurringContractMode.ONECLICK);
+    }
+
+    @Benchmark
+    public PaymentRequest boleto() {
+        return adyenRequestFactory.createAuthorizationRequest(MERCHANT_ACCOUNT, boletoCart, request, null, RecurringContractMode.NONE);
+    }
+
+    @Benchmark
+    public CaptureRequest capture() {
+        return adyenRequestFactory.createCaptureRequest(MERCHANT_ACCOUNT, AMOUNT, EUR, "8513147988756818", "00012345");
+    }
+
+    @Benchmark
+    public RefundRequest refund() {
+        return adyenRequestFactory.createRefundRequest(MERCHANT_ACCOUNT, AMOUNT, EUR, "8513147988756818", "00012345");
+    }
+}
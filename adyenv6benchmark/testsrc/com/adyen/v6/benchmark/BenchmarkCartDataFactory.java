@@ -0,0 +1,159 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import de.hybris.platform.commercefacades.order.data.CCPaymentInfoData;
+import de.hybris.platform.commercefacades.order.data.CartData;
+import de.hybris.platform.commercefacades.order.data.OrderEntryData;
+import de.hybris.platform.commercefacades.product.data.PriceData;
+import de.hybris.platform.commercefacades.product.data.ProductData;
+import de.hybris.platform.commercefacades.user.data.AddressData;
+import de.hybris.platform.commercefacades.user.data.CountryData;
+import de.hybris.platform.commercefacades.user.data.RegionData;
+import de.hybris.platform.util.TaxValue;
+import static com.adyen.v6.constants.Adyenv6coreConstants.KLARNA;
+import static com.adyen.v6.constants.Adyenv6coreConstants.PAYMENT_METHOD_BOLETO_SANTANDER;
+import static com.adyen.v6.constants.Adyenv6coreConstants.PAYMENT_METHOD_CC;
+
+/**
+ * Builds plain (non-mock) checkout data for the benchmarks, so that only the request building is measured
+ */
+final class BenchmarkCartDataFactory {
+    static final String MERCHANT_ACCOUNT = "merchantAccount";
+    static final String CURRENCY = "EUR";
+
+    private BenchmarkCartDataFactory() {
+    }
+
+    static HttpServletRequest createHttpRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("User-Agent", "Mozilla/5.0 (benchmark)");
+        request.addHeader("Accept", "text/html");
+        request.setRemoteAddr("1.2.3.4");
+        return request;
+    }
+
+    static CartData createCardCart() {
+        CartData cartData = createCart(PAYMENT_METHOD_CC, 1);
+        cartData.setAdyenCseToken("adyenjs_0_1_18$" + String.join("", Collections.nCopies(40, "cseToken")));
+        cartData.setAdyenRememberTheseDetails(true);
+        return cartData;
+    }
+
+    static CartData createOneClickCart() {
+        CartData cartData = createCardCart();
+        cartData.setAdyenSelectedReference("8313147988756818");
+        return cartData;
+    }
+
+    static CartData createOpenInvoiceCart(int lines) {
+        CartData cartData = createCart(KLARNA, lines);
+        cartData.setAdyenDob(new Date(0));
+        cartData.setAdyenSocialSecurityNumber("811228-9874");
+        cartData.setAdyenDfValue("dfValue");
+        cartData.setDeliveryCost(createPrice(new BigDecimal("4.95")));
+        return cartData;
+    }
+
+    static CartData createBoletoCart() {
+        CartData cartData = createCart(PAYMENT_METHOD_BOLETO_SANTANDER, 1);
+        cartData.setAdyenSocialSecurityNumber("56861752509");
+        cartData.setAdyenFirstName("José");
+        cartData.setAdyenLastName("Silva");
+        return cartData;
+    }
+
+    static CartData createCart(String paymentMethod, int lines) {
+        CartData cartData = new CartData();
+        cartData.setCode("00012345");
+        cartData.setAdyenPaymentMethod(paymentMethod);
+        cartData.setAdyenCseToken("");
+
+        List<OrderEntryData> entries = new ArrayList<>(lines);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < lines; i++) {
+            OrderEntryData entry = createEntry(i);
+            entries.add(entry);
+            total = total.add(entry.getTotalPrice().getValue());
+        }
+        cartData.setEntries(entries);
+        cartData.setTotalPrice(createPrice(total));
+
+        cartData.setDeliveryAddress(createAddress("Amsterdam", "NL"));
+
+        CCPaymentInfoData paymentInfo = new CCPaymentInfoData();
+        paymentInfo.setBillingAddress(createAddress("Rotterdam", "NL"));
+        cartData.setPaymentInfo(paymentInfo);
+
+        return cartData;
+    }
+
+    private static OrderEntryData createEntry(int index) {
+        ProductData product = new ProductData();
+        product.setCode("product" + index);
+        product.setName("Product " + index);
+
+        long quantity = 1 + index % 3;
+        BigDecimal totalPrice = new BigDecimal("12.10").multiply(BigDecimal.valueOf(quantity));
+
+        OrderEntryData entry = new OrderEntryData();
+        entry.setProduct(product);
+        entry.setQuantity(quantity);
+        entry.setTotalPrice(createPrice(totalPrice));
+        entry.setTaxValues(Collections.singletonList(new TaxValue("vat-full", 0.21, false, 2.10 * quantity, CURRENCY)));
+        return entry;
+    }
+
+    private static PriceData createPrice(BigDecimal value) {
+        PriceData priceData = new PriceData();
+        priceData.setValue(value);
+        priceData.setCurrencyIso(CURRENCY);
+        return priceData;
+    }
+
+    private static AddressData createAddress(String town, String countryIsoCode) {
+        CountryData country = new CountryData();
+        country.setIsocode(countryIsoCode);
+
+        RegionData region = new RegionData();
+        region.setIsocode(countryIsoCode + "-NH");
+
+        AddressData address = new AddressData();
+        address.setFirstName("Jan");
+        address.setLastName("Jansen");
+        address.setTitleCode("mr");
+        address.setTown(town);
+        address.setCountry(country);
+        address.setRegion(region);
+        address.setLine1("Simon Carmiggeltstraat");
+        address.setLine2("6-50");
+        address.setPostalCode("1011 DJ");
+        address.setPhone("+31 20 0000000");
+        return address;
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.benchmark;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import com.adyen.model.notification.NotificationRequestItem;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Generates reproducible Adyen notification batches in the JSON format posted to AdyenNotificationController
+ * Every order gets an AUTHORISATION, followed by a CAPTURE, REFUND or CANCEL_OR_REFUND according to the configured mix
+ * Duplicates are re-sent later in the stream and out-of-order modifications are sent before their authorisation
+ */
+public class NotificationFirehose {
+    private final Random random;
+
+    private String merchantAccount = BenchmarkCartDataFactory.MERCHANT_ACCOUNT;
+    private String currency = BenchmarkCartDataFactory.CURRENCY;
+    private long orderCodeOffset = 10000000L;
+    private int batchSize = 1;
+    private double refusalRate = 0.05;
+    private double captureRate = 0.6;
+    private double refundRate = 0.1;
+    private double cancelOrRefundRate = 0.1;
+    private double duplicateRate = 0.05;
+    private double outOfOrderRate = 0.02;
+
+    private long pspReferenceSequence = 8800000000000000L;
+
+    public NotificationFirehose(final long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Notification items of the given number of orders, in sending order
+     */
+    public List<JsonObject> generateItems(final int orders) {
+        List<JsonObject> items = new ArrayList<>(orders * 2);
+        List<JsonObject> duplicates = new ArrayList<>();
+
+        for (int i = 0; i < orders; i++) {
+            String merchantReference = String.format("%08d", orderCodeOffset + i);
+            String authorisationPspReference = nextPspReference();
+            long value = 100 + random.nextInt(100000);
+            boolean authorised = random.nextDouble() >= refusalRate;
+
+            JsonObject authorisation = createItem(NotificationRequestItem.EVENT_CODE_AUTHORISATION, authorisationPspReference, null, merchantReference, value, authorised);
+            JsonObject modification = authorised ? createModification(authorisationPspReference, merchantReference, value) : null;
+
+            if (modification != null && random.nextDouble() < outOfOrderRate) {
+                items.add(modification);
+                items.add(authorisation);
+            } else {
+                items.add(authorisation);
+                if (modification != null) {
+                    items.add(modification);
+                }
+            }
+
+            if (random.nextDouble() < duplicateRate) {
+                duplicates.add(authorisation);
+            }
+            if (modification != null && random.nextDouble() < duplicateRate) {
+                duplicates.add(modification);
+            }
+
+            // re-send the duplicates a few orders later, as Adyen does on retries
+            if (! duplicates.isEmpty() && random.nextInt(10) == 0) {
+                items.addAll(duplicates);
+                duplicates.clear();
+            }
+        }
+        items.addAll(duplicates);
+
+        return items;
+    }
+
+    /**
+     * Notification request bodies of the given number of orders, batchSize items each
+     */
+    public List<String> generateBatches(final int orders) {
+        List<JsonObject> items = generateItems(orders);
+        List<String> batches = new ArrayList<>(items.size() / batchSize + 1);
+
+        for (int start = 0; start < items.size(); start += batchSize) {
+            JsonArray notificationItems = new JsonArray();
+            for (JsonObject item : items.subList(start, Math.min(start + batchSize, items.size()))) {
+                JsonObject container = new JsonObject();
+                container.add("NotificationRequestItem", item);
+                notificationItems.add(container);
+            }
+
+            JsonObject request = new JsonObject();
+            request.addProperty("live", "false");
+            request.add("notificationItems", notificationItems);
+            batches.add(request.toString());
+        }
+
+        return batches;
+    }
+
+    private JsonObject createModification(final String originalReference, final String merchantReference, final long value) {
+        double draw = random.nextDouble();
+        if (draw < captureRate) {
+            return createItem(NotificationRequestItem.EVENT_CODE_CAPTURE, nextPspReference(), originalReference, merchantReference, value, true);
+        }
+        draw -= captureRate;
+        if (draw < refundRate) {
+            return createItem(NotificationRequestItem.EVENT_CODE_REFUND, nextPspReference(), originalReference, merchantReference, value, true);
+        }
+        draw -= refundRate;
+        if (draw < cancelOrRefundRate) {
+            return createItem(NotificationRequestItem.EVENT_CODE_CANCEL_OR_REFUND, nextPspReference(), originalReference, merchantReference, value, true);
+        }
+        return null;
+    }
+
+    private JsonObject createItem(final String eventCode,
+                                  final String pspReference,
+                                  final String originalReference,
+                                  final String merchantReference,
+                                  final long value,
+                                  final boolean success) {
+        JsonObject amount = new JsonObject();
+        amount.addProperty("value", value);
+        amount.addProperty("currency", currency);
+
+        JsonObject item = new JsonObject();
+        item.add("amount", amount);
+        item.addProperty("eventCode", eventCode);
+        item.addProperty("eventDate", formatDate(new Date()));
+        item.addProperty("merchantAccountCode", merchantAccount);
+        item.addProperty("merchantReference", merchantReference);
+        if (originalReference != null) {
+            item.addProperty("originalReference", originalReference);
+        }
+        item.addProperty("pspReference", pspReference);
+        item.addProperty("paymentMethod", "visa");
+        item.addProperty("reason", success ? "12345:1111:8/2030" : "Refused");
+        item.addProperty("success", String.valueOf(success));
+        return item;
+    }
+
+    private String nextPspReference() {
+        return String.valueOf(pspReferenceSequence++);
+    }
+
+    private static String formatDate(final Date date) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return dateFormat.format(date);
+    }
+
+    public String getMerchantAccount() {
+        return merchantAccount;
+    }
+
+    public void setMerchantAccount(String merchantAccount) {
+        this.merchantAccount = merchantAccount;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public long getOrderCodeOffset() {
+        return orderCodeOffset;
+    }
+
+    public void setOrderCodeOffset(long orderCodeOffset) {
+        this.orderCodeOffset = orderCodeOffset;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public double getRefusalRate() {
+        return refusalRate;
+    }
+
+    public void setRefusalRate(double refusalRate) {
+        this.refusalRate = refusalRate;
+    }
+
+    public double getCaptureRate() {
+        return captureRate;
+    }
+
+    public void setCaptureRate(double captureRate) {
+        this.captureRate = captureRate;
+    }
+
+    public double getRefundRate() {
+        return refundRate;
+    }
+
+    public void setRefundRate(double refundRate) {
+        this.refundRate = refundRate;
+    }
+
+    public double getCancelOrRefundRate() {
+        return cancelOrRefundRate;
+    }
+
+    public void setCancelOrRefundRate(double cancelOrRefundRate) {
+        this.cancelOrRefundRate = cancelOrRefundRate;
+    }
+
+    public double getDuplicateRate() {
+        return duplicateRate;
+    }
+
+    public void setDuplicateRate(double duplicateRate) {
+        this.duplicateRate = duplicateRate;
+    }
+
+    public double getOutOfOrderRate() {
+        return outOfOrderRate;
+    }
+
+    public void setOutOfOrderRate(double outOfOrderRate) {
+        this.outOfOrderRate = outOfOrderRate;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import com.adyen.model.notification.NotificationRequestItem;
+import com.adyen.notification.NotificationHandler;
+import de.hybris.bootstrap.annotations.UnitTest;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@UnitTest
+public class NotificationFirehoseTest {
+    @Test
+    public void testGenerateBatches() {
+        NotificationFirehose firehose = new NotificationFirehose(42);
+        firehose.setBatchSize(10);
+        firehose.setDuplicateRate(0.2);
+        firehose.setOutOfOrderRate(0.2);
+
+        List<String> batches = firehose.generateBatches(200);
+
+        NotificationHandler notificationHandler = new NotificationHandler();
+        List<NotificationRequestItem> items = new ArrayList<>();
+        for (String batch : batches) {
+            List<NotificationRequestItem> batchItems = notificationHandler.handleNotificationJson(batch).getNotificationItems();
+            assertTrue(batchItems.size() <= 10);
+            items.addAll(batchItems);
+        }
+
+        List<NotificationRequestItem> authorisations = items.stream()
+                                                            .filter(item -> NotificationRequestItem.EVENT_CODE_AUTHORISATION.equals(item.getEventCode()))
+                                                            .collect(Collectors.toList());
+        assertEquals(200, authorisations.stream().map(NotificationRequestItem::getMerchantReference).distinct().count());
+
+        //duplicates are re-sent
+        Set<String> seen = new HashSet<>();
+        long duplicates = items.stream().filter(item -> ! seen.add(item.getPspReference() + item.getEventCode())).count();
+        assertTrue(duplicates > 0);
+
+        //some modifications arrive before their authorisation
+        Set<String> authorised = new HashSet<>();
+        boolean outOfOrder = false;
+        for (NotificationRequestItem item : items) {
+            if (NotificationRequestItem.EVENT_CODE_AUTHORISATION.equals(item.getEventCode())) {
+                authorised.add(item.getPspReference());
+            } else if (! authorised.contains(item.getOriginalReference())) {
+                outOfOrder = true;
+            }
+        }
+        assertTrue(outOfOrder);
+    }
+
+    @Test
+    public void testReproducible() {
+        List<String> first = new NotificationFirehose(7).generateItems(50).stream().map(item -> item.get("pspReference").getAsString() + item.get("eventCode")).collect(Collectors.toList());
+        List<String> second = new NotificationFirehose(7).generateItems(50).stream().map(item -> item.get("pspReference").getAsString() + item.get("eventCode")).collect(Collectors.toList());
+
+        assertEquals(first, second);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+/**
+ * End-to-end throughput of the notification pipeline on a running storefront
+ * Posts NotificationFirehose batches to AdyenNotificationController (ingest rate), then follows AdyenNotificationMetrics over JMX
+ * while AdyenProcessNotificationCronJob drains the backlog (drain rate, queue wait and latency to the order process event)
+ *
+ * Usage: NotificationThroughputBenchmark notificationUrl username password [orders] [batchSize] [threads] [jmxUrl]
+ * e.g. http://localhost:9001/electronics/en/adyen/v6/notification/json adyen secret 10000 5 8 service:jmx:rmi:///jndi/rmi://localhost:9003/jmxrmi
+ */
+public class NotificationThroughputBenchmark {
+    private static final String METRICS_OBJECT_NAME = "com.adyen.v6:type=NotificationMetrics";
+    private static final long DRAIN_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: NotificationThroughputBenchmark notificationUrl username password [orders] [batchSize] [threads] [jmxUrl]");
+            System.exit(1);
+        }
+
+        URL notificationUrl = new URL(args[0]);
+        String authorization = "Basic " + Base64.getEncoder().encodeToString((args[1] + ":" + args[2]).getBytes(StandardCharsets.UTF_8));
+        int orders = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        int batchSize = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : 4;
+        String jmxUrl = args.length > 6 ? args[6] : null;
+
+        NotificationFirehose firehose = new NotificationFirehose(orders);
+        firehose.setBatchSize(batchSize);
+        // keep the merchant references of consecutive runs apart
+        firehose.setOrderCodeOffset(System.currentTimeMillis() % 100000 * 1000000L);
+        List<String> batches = firehose.generateBatches(orders);
+        int items = batches.stream().mapToInt(batch -> countItems(batch)).sum();
+
+        JMXConnector jmxConnector = jmxUrl != null ? JMXConnectorFactory.connect(new JMXServiceURL(jmxUrl)) : null;
+        try {
+            MBeanServerConnection connection = jmxConnector != null ? jmxConnector.getMBeanServerConnection() : null;
+            ObjectName metrics = new ObjectName(METRICS_OBJECT_NAME);
+            long processedBefore = connection != null ? (Long) connection.getAttribute(metrics, "ProcessedCount") : 0;
+
+            ingest(notificationUrl, authorization, batches, items, threads);
+
+            if (connection != null) {
+                drain(connection, metrics, processedBefore, items);
+            }
+        } finally {
+            if (jmxConnector != null) {
+                jmxConnector.close();
+            }
+        }
+    }
+
+    private static void ingest(URL notificationUrl, String authorization, List<String> batches, int items, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        try {
+            long start = System.nanoTime();
+            List<Future<long[]>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    long[] latencies = new long[batches.size()];
+                    int count = 0;
+                    for (int index = next.getAndIncrement(); index < batches.size(); index = next.getAndIncrement()) {
+                        long postStart = System.nanoTime();
+                        if (! post(notificationUrl, authorization, batches.get(index))) {
+                            rejected.incrementAndGet();
+                        }
+                        latencies[count++] = System.nanoTime() - postStart;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+
+            long[] latencies = new long[0];
+            for (Future<long[]> future : futures) {
+                long[] threadLatencies = future.get();
+                int offset = latencies.length;
+                latencies = Arrays.copyOf(latencies, offset + threadLatencies.length);
+                System.arraycopy(threadLatencies, 0, latencies, offset, threadLatencies.length);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(latencies);
+
+            System.out.println(String.format("Ingest: %d batches, %d items in %.1f s, %.1f items/s, %d rejected",
+                                             batches.size(),
+                                             items,
+                                             seconds,
+                                             items / seconds,
+                                             rejected.get()));
+            System.out.println(String.format("Ingest latency ms: p50=%.1f p90=%.1f p99=%.1f max=%.1f",
+                                             percentileMillis(latencies, 50),
+                                             percentileMillis(latencies, 90),
+                                             percentileMillis(latencies, 99),
+                                             percentileMillis(latencies, 100)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void drain(MBeanServerConnection connection, ObjectName metrics, long processedBefore, int items) throws Exception {
+        long start = System.currentTimeMillis();
+        long processed = 0;
+        while (processed < items && System.currentTimeMillis() - start < DRAIN_TIMEOUT_MILLIS) {
+            TimeUnit.SECONDS.sleep(1);
+            processed = (Long) connection.getAttribute(metrics, "ProcessedCount") - processedBefore;
+            System.out.println(String.format("Drain: %d/%d processed, backlog %s", processed, items, connection.getAttribute(metrics, "BacklogSize")));
+        }
+        double seconds = (System.currentTimeMillis() - start) / 1000.0;
+
+        System.out.println(String.format("Drain: %d items in %.1f s, %.1f items/s", processed, seconds, processed / seconds));
+        System.out.println("Duplicates: " + connection.getAttribute(metrics, "DuplicateCount") + ", failures: " + connection.getAttribute(metrics, "FailuresByEventCode"));
+        System.out.println("Queue wait ms: " + connection.getAttribute(metrics, "QueueWait"));
+        System.out.println("Processing latency ms: " + connection.getAttribute(metrics, "ProcessingLatency"));
+        System.out.println("End-to-end latency ms: " + connection.getAttribute(metrics, "EventLatency"));
+    }
+
+    private static boolean post(URL notificationUrl, String authorization, String body) throws IOException {
+        HttpURLConnection httpConnection = (HttpURLConnection) notificationUrl.openConnection();
+        try {
+            httpConnection.setRequestMethod("POST");
+            httpConnection.setDoOutput(true);
+            httpConnection.setRequestProperty("Authorization", authorization);
+            httpConnection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream outputStream = httpConnection.getOutputStream()) {
+                outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+
+            if (httpConnection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                return false;
+            }
+            try (InputStream inputStream = httpConnection.getInputStream()) {
+                byte[] response = new byte[64];
+                int length = inputStream.read(response);
+                return length > 0 && new String(response, 0, length, StandardCharsets.UTF_8).contains("[accepted]");
+            }
+        } finally {
+            httpConnection.disconnect();
+        }
+    }
+
+    private static int countItems(String batch) {
+        int count = 0;
+        for (int index = batch.indexOf("\"NotificationRequestItem\""); index >= 0; index = batch.indexOf("\"NotificationRequestItem\"", index + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = Math.min(Math.max((int) Math.ceil(percentile / 100 * sorted.length) - 1, 0), sorted.length - 1);
+        return sorted[index] / 1e6;
+    }
+}
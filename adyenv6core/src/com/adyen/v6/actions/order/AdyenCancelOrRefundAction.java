@@ -20,6 +20,7 @@
  */
 package com.adyen.v6.actions.order;
 
+import com.adyen.v6.commands.AdyenCommandContext;
 import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.orderprocessing.model.OrderProcessModel;
 import de.hybris.platform.payment.PaymentService;
@@ -48,7 +49,7 @@ public class AdyenCancelOrRefundAction extends AbstractProceduralAction<OrderPro
                 continue;
             }
 
-            PaymentTransactionEntryModel cancelledTransaction = paymentService.cancel(transactionModel.getEntries().get(0));
+            PaymentTransactionEntryModel cancelledTransaction = AdyenCommandContext.withOrder(order, () -> paymentService.cancel(transactionModel.getEntries().get(0)));
         }
     }
 
@@ -20,18 +20,20 @@
  */
 package com.adyen.v6.actions.order;
 
+import com.adyen.v6.data.PaymentTransactionEntrySummaryData;
+import com.adyen.v6.repository.PaymentTransactionRepository;
+import com.adyen.v6.service.AdyenTransactionService;
 import de.hybris.platform.core.enums.OrderStatus;
 import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.core.model.order.payment.PaymentInfoModel;
 import de.hybris.platform.orderprocessing.model.OrderProcessModel;
 import de.hybris.platform.payment.dto.TransactionStatus;
 import de.hybris.platform.payment.enums.PaymentTransactionType;
-import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
-import de.hybris.platform.payment.model.PaymentTransactionModel;
 import de.hybris.platform.processengine.action.AbstractAction;
 import org.apache.log4j.Logger;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -40,6 +42,8 @@ import java.util.Set;
 public class AdyenCheckAuthorizationAction extends AbstractAction<OrderProcessModel> {
     private static final Logger LOG = Logger.getLogger(AdyenCheckAuthorizationAction.class);
 
+    private PaymentTransactionRepository paymentTransactionRepository;
+
     public enum Transition {
         OK, NOK, WAIT;
 
@@ -76,13 +80,15 @@ public class AdyenCheckAuthorizationAction extends AbstractAction<OrderProcessMo
             return Transition.OK.toString();
         }
 
+        final List<PaymentTransactionEntrySummaryData> entrySummaries = paymentTransactionRepository.getEntrySummaries(order);
+
         //No transactions means that is not authorized yet
-        if (order.getPaymentTransactions().isEmpty()) {
+        if (entrySummaries.isEmpty()) {
             LOG.debug("Process: " + process.getCode() + " Order Waiting");
             return Transition.WAIT.toString();
         }
 
-        boolean orderAuthorized = isOrderAuthorized(order);
+        boolean orderAuthorized = isOrderAuthorized(entrySummaries);
 
         //Continue if all transactions are authorised
         if (orderAuthorized) {
@@ -100,9 +106,9 @@ public class AdyenCheckAuthorizationAction extends AbstractAction<OrderProcessMo
         return Transition.NOK.toString();
     }
 
-    private boolean isTransactionAuthorized(final PaymentTransactionModel paymentTransactionModel) {
-        for (final PaymentTransactionEntryModel entry : paymentTransactionModel.getEntries()) {
-            if (entry.getType().equals(PaymentTransactionType.AUTHORIZATION)
+    private boolean isTransactionAuthorized(final List<PaymentTransactionEntrySummaryData> transactionEntries) {
+        for (final PaymentTransactionEntrySummaryData entry : transactionEntries) {
+            if (PaymentTransactionType.AUTHORIZATION.equals(entry.getType())
                     && TransactionStatus.ACCEPTED.name().equals(entry.getTransactionStatus())) {
                 return true;
             }
@@ -111,14 +117,22 @@ public class AdyenCheckAuthorizationAction extends AbstractAction<OrderProcessMo
         return false;
     }
 
-    private boolean isOrderAuthorized(final OrderModel order) {
+    private boolean isOrderAuthorized(final List<PaymentTransactionEntrySummaryData> entrySummaries) {
         //A single not authorized transaction means not authorized
-        for (final PaymentTransactionModel paymentTransactionModel : order.getPaymentTransactions()) {
-            if (!isTransactionAuthorized(paymentTransactionModel)) {
+        for (final List<PaymentTransactionEntrySummaryData> transactionEntries : AdyenTransactionService.groupByTransaction(entrySummaries).values()) {
+            if (!isTransactionAuthorized(transactionEntries)) {
                 return false;
             }
         }
 
         return true;
     }
+
+    public PaymentTransactionRepository getPaymentTransactionRepository() {
+        return paymentTransactionRepository;
+    }
+
+    public void setPaymentTransactionRepository(PaymentTransactionRepository paymentTransactionRepository) {
+        this.paymentTransactionRepository = paymentTransactionRepository;
+    }
 }
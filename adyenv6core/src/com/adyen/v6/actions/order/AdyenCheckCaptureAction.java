@@ -21,6 +21,8 @@
 package com.adyen.v6.actions.order;
 
 import com.adyen.v6.actions.AbstractWaitableAction;
+import com.adyen.v6.data.PaymentTransactionEntrySummaryData;
+import com.adyen.v6.repository.PaymentTransactionRepository;
 import com.adyen.v6.service.AdyenTransactionService;
 import de.hybris.platform.core.enums.OrderStatus;
 import de.hybris.platform.core.model.order.OrderModel;
@@ -28,11 +30,10 @@ import de.hybris.platform.orderprocessing.model.OrderProcessModel;
 import de.hybris.platform.payment.dto.TransactionStatus;
 import de.hybris.platform.payment.dto.TransactionStatusDetails;
 import de.hybris.platform.payment.enums.PaymentTransactionType;
-import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
-import de.hybris.platform.payment.model.PaymentTransactionModel;
 import org.apache.log4j.Logger;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -41,6 +42,8 @@ import java.util.Set;
 public class AdyenCheckCaptureAction extends AbstractWaitableAction<OrderProcessModel> {
     private static final Logger LOG = Logger.getLogger(AdyenCheckCaptureAction.class);
 
+    private PaymentTransactionRepository paymentTransactionRepository;
+
     @Override
     public Set<String> getTransitions() {
         return Transition.getStringValues();
@@ -65,33 +68,28 @@ public class AdyenCheckCaptureAction extends AbstractWaitableAction<OrderProcess
         modelService.save(order);
 
         BigDecimal remainingAmount = new BigDecimal(order.getTotalPrice());
-        for (final PaymentTransactionModel paymentTransactionModel : order.getPaymentTransactions()) {
-            boolean isRejected = AdyenTransactionService.getTransactionEntry(
-                    paymentTransactionModel,
-                    PaymentTransactionType.CAPTURE,
-                    TransactionStatus.REJECTED
-            ) != null;
-
-            boolean isErroneous = AdyenTransactionService.getTransactionEntry(
-                    paymentTransactionModel,
-                    PaymentTransactionType.CAPTURE,
-                    TransactionStatus.ERROR
-            ) != null;
+        final List<PaymentTransactionEntrySummaryData> entrySummaries = paymentTransactionRepository.getEntrySummaries(order);
+        for (final List<PaymentTransactionEntrySummaryData> transactionEntries : AdyenTransactionService.groupByTransaction(entrySummaries).values()) {
+            final PaymentTransactionEntrySummaryData transaction = transactionEntries.get(0);
+
+            //Transactions created before the running totals need to be scanned
+            if (transaction.getAuthorisedAmount() == null) {
+                remainingAmount = subtractScannedCapture(transactionEntries, remainingAmount);
+                if (remainingAmount == null) {
+                    LOG.debug("Process: " + process.getCode() + " Order Not Captured");
+                    return Transition.NOK.toString();
+                }
+                continue;
+            }
 
             //Fail if capture is rejected
-            if (isErroneous || isRejected) {
+            if (Boolean.TRUE.equals(transaction.getCaptureFailed())) {
                 LOG.debug("Process: " + process.getCode() + " Order Not Captured");
                 return Transition.NOK.toString();
             }
 
-            PaymentTransactionEntryModel transactionEntry = AdyenTransactionService.getTransactionEntry(
-                    paymentTransactionModel,
-                    PaymentTransactionType.CAPTURE,
-                    TransactionStatus.ACCEPTED,
-                    TransactionStatusDetails.SUCCESFULL);
-
-            if (transactionEntry != null) {
-                remainingAmount = remainingAmount.subtract(transactionEntry.getAmount());
+            if (transaction.getCapturedAmount() != null) {
+                remainingAmount = remainingAmount.subtract(transaction.getCapturedAmount());
                 LOG.debug("Remaining amount: " + remainingAmount);
             }
         }
@@ -114,4 +112,45 @@ public class AdyenCheckCaptureAction extends AbstractWaitableAction<OrderProcess
         LOG.debug("Process: " + process.getCode() + " Order Waiting");
         return Transition.WAIT.toString();
     }
+
+    /**
+     * Subtract the successful capture of a transaction without running totals
+     *
+     * @return remaining amount or null if the capture failed
+     */
+    private BigDecimal subtractScannedCapture(final List<PaymentTransactionEntrySummaryData> transactionEntries, final BigDecimal remainingAmount) {
+        PaymentTransactionEntrySummaryData successfulCapture = null;
+        for (final PaymentTransactionEntrySummaryData entry : transactionEntries) {
+            if (! PaymentTransactionType.CAPTURE.equals(entry.getType())) {
+                continue;
+            }
+
+            if (TransactionStatus.REJECTED.name().equals(entry.getTransactionStatus()) || TransactionStatus.ERROR.name().equals(entry.getTransactionStatus())) {
+                return null;
+            }
+
+            if (successfulCapture == null
+                    && TransactionStatus.ACCEPTED.name().equals(entry.getTransactionStatus())
+                    && TransactionStatusDetails.SUCCESFULL.name().equals(entry.getTransactionStatusDetails())) {
+                successfulCapture = entry;
+            }
+        }
+
+        if (successfulCapture == null) {
+            return remainingAmount;
+        }
+
+        BigDecimal result = remainingAmount.subtract(successfulCapture.getAmount());
+        LOG.debug("Remaining amount: " + result);
+
+        return result;
+    }
+
+    public PaymentTransactionRepository getPaymentTransactionRepository() {
+        return paymentTransactionRepository;
+    }
+
+    public void setPaymentTransactionRepository(PaymentTransactionRepository paymentTransactionRepository) {
+        this.paymentTransactionRepository = paymentTransactionRepository;
+    }
 }
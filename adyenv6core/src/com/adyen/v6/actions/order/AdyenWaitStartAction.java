@@ -0,0 +1,65 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.actions.order;
+
+import java.util.Date;
+import org.apache.log4j.Logger;
+import de.hybris.platform.orderprocessing.model.OrderProcessModel;
+import de.hybris.platform.processengine.action.AbstractProceduralAction;
+import de.hybris.platform.processengine.helpers.ProcessParameterHelper;
+
+/**
+ * Step of order-process right before an Adyen wait (authorization/capture)
+ * Records when the process started waiting, AdyenWaitTimeoutAction measures maxWaitMinutes from this time
+ */
+public class AdyenWaitStartAction extends AbstractProceduralAction<OrderProcessModel> {
+    private static final Logger LOG = Logger.getLogger(AdyenWaitStartAction.class);
+
+    private ProcessParameterHelper processParameterHelper;
+    private String waitName;
+
+    @Override
+    public void executeAction(final OrderProcessModel process) {
+        final String parameterName = AdyenWaitTimeoutAction.getParameterName(waitName);
+
+        //Keep the first start when the process re-enters the wait after a re-check
+        if (processParameterHelper.getProcessParameterByName(process, parameterName) == null) {
+            LOG.debug("Process: " + process.getCode() + " starts waiting for Adyen " + waitName);
+            processParameterHelper.setProcessParameter(process, parameterName, new Date());
+        }
+    }
+
+    public ProcessParameterHelper getProcessParameterHelper() {
+        return processParameterHelper;
+    }
+
+    public void setProcessParameterHelper(ProcessParameterHelper processParameterHelper) {
+        this.processParameterHelper = processParameterHelper;
+    }
+
+    public String getWaitName() {
+        return waitName;
+    }
+
+    public void setWaitName(String waitName) {
+        this.waitName = waitName;
+    }
+}
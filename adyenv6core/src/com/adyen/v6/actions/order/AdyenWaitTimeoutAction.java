@@ -0,0 +1,114 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.actions.order;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.log4j.Logger;
+import de.hybris.platform.orderprocessing.model.OrderProcessModel;
+import de.hybris.platform.processengine.action.AbstractSimpleDecisionAction;
+import de.hybris.platform.processengine.helpers.ProcessParameterHelper;
+import de.hybris.platform.processengine.model.BusinessProcessParameterModel;
+
+/**
+ * Step of order-process triggered by the timeout of an Adyen wait (authorization/capture)
+ * Returns OK to re-check the payment status and wait again, or NOK once the process has waited longer than maxWaitMinutes
+ * The start of the wait is recorded by AdyenWaitStartAction
+ */
+public class AdyenWaitTimeoutAction extends AbstractSimpleDecisionAction<OrderProcessModel> {
+    private static final Logger LOG = Logger.getLogger(AdyenWaitTimeoutAction.class);
+    private static final String PARAMETER_PREFIX = "adyenWaitTimeoutStart_";
+
+    private ProcessParameterHelper processParameterHelper;
+    private String waitName;
+    private long maxWaitMinutes;
+
+    @Override
+    public Transition executeAction(final OrderProcessModel process) {
+        LOG.debug("Process: " + process.getCode() + " in step " + getClass().getSimpleName());
+
+        final String parameterName = getParameterName(waitName);
+        final Date now = new Date();
+
+        Date waitStart = now;
+        final BusinessProcessParameterModel parameter = processParameterHelper.getProcessParameterByName(process, parameterName);
+        if (parameter != null && parameter.getValue() instanceof Date) {
+            waitStart = (Date) parameter.getValue();
+        } else {
+            //Processes that entered the wait before AdyenWaitStartAction was added
+            processParameterHelper.setProcessParameter(process, parameterName, now);
+        }
+
+        final long waitedMinutes = (now.getTime() - waitStart.getTime()) / 60000;
+        if (waitedMinutes >= maxWaitMinutes) {
+            LOG.warn("Process: " + process.getCode() + " gave up waiting for Adyen " + waitName + " after " + waitedMinutes + " minutes");
+            return Transition.NOK;
+        }
+
+        LOG.debug("Process: " + process.getCode() + " re-checking Adyen " + waitName + ", waiting since " + waitStart);
+        return Transition.OK;
+    }
+
+    /**
+     * Name of the process parameter holding the start of the wait
+     */
+    public static String getParameterName(final String waitName) {
+        return PARAMETER_PREFIX + waitName;
+    }
+
+    /**
+     * Names of the process parameters holding the start of the waits, by wait node id
+     *
+     * @param waitNames waitName of each wait node id
+     */
+    public static Map<String, String> getParameterNames(final Map<String, String> waitNames) {
+        final Map<String, String> parameterNames = new LinkedHashMap<>();
+        for (Map.Entry<String, String> waitName : waitNames.entrySet()) {
+            parameterNames.put(waitName.getKey(), getParameterName(waitName.getValue()));
+        }
+        return parameterNames;
+    }
+
+    public ProcessParameterHelper getProcessParameterHelper() {
+        return processParameterHelper;
+    }
+
+    public void setProcessParameterHelper(ProcessParameterHelper processParameterHelper) {
+        this.processParameterHelper = processParameterHelper;
+    }
+
+    public String getWaitName() {
+        return waitName;
+    }
+
+    public void setWaitName(String waitName) {
+        this.waitName = waitName;
+    }
+
+    public long getMaxWaitMinutes() {
+        return maxWaitMinutes;
+    }
+
+    public void setMaxWaitMinutes(long maxWaitMinutes) {
+        this.maxWaitMinutes = maxWaitMinutes;
+    }
+}
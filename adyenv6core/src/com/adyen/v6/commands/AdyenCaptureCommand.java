@@ -24,11 +24,16 @@ import java.math.BigDecimal;
 import java.util.Currency;
 import java.util.Date;
 import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
 import org.springframework.util.Assert;
 import com.adyen.model.modification.ModificationResult;
 import com.adyen.v6.factory.AdyenPaymentServiceFactory;
+import com.adyen.v6.model.AdyenModificationRecordModel;
 import com.adyen.v6.repository.OrderRepository;
+import com.adyen.v6.service.AdyenModificationService;
 import com.adyen.v6.service.AdyenPaymentService;
+import com.adyen.v6.service.AdyenTransactionService;
+import com.adyen.v6.service.PaymentMethodCapabilityRegistry;
 import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.core.model.order.payment.PaymentInfoModel;
 import de.hybris.platform.payment.commands.CaptureCommand;
@@ -36,6 +41,8 @@ import de.hybris.platform.payment.commands.request.CaptureRequest;
 import de.hybris.platform.payment.commands.result.CaptureResult;
 import de.hybris.platform.payment.dto.TransactionStatus;
 import de.hybris.platform.payment.dto.TransactionStatusDetails;
+import de.hybris.platform.payment.enums.PaymentTransactionType;
+import de.hybris.platform.payment.model.PaymentTransactionModel;
 import de.hybris.platform.store.BaseStoreModel;
 
 /**
@@ -46,6 +53,9 @@ public class AdyenCaptureCommand implements CaptureCommand {
 
     private AdyenPaymentServiceFactory adyenPaymentServiceFactory;
     private OrderRepository orderRepository;
+    private AdyenModificationService adyenModificationService;
+    private AdyenTransactionService adyenTransactionService;
+    private PaymentMethodCapabilityRegistry paymentMethodCapabilityRegistry;
 
     /**
      * {@inheritDoc}
@@ -63,7 +73,10 @@ public class AdyenCaptureCommand implements CaptureCommand {
         final BigDecimal amount = request.getTotalAmount();
         final Currency currency = request.getCurrency();
 
-        OrderModel order = orderRepository.getOrderModel(reference);
+        OrderModel order = AdyenCommandContext.getOrder(reference);
+        if (order == null) {
+            order = orderRepository.getOrderModel(reference);
+        }
         if (order == null) {
             LOG.error("Order model with code: " + reference + " cannot be found");
             result.setTransactionStatus(TransactionStatus.ERROR);
@@ -80,24 +93,46 @@ public class AdyenCaptureCommand implements CaptureCommand {
         boolean isImmediateCapture = baseStore.getAdyenImmediateCapture();
         Assert.notNull(isImmediateCapture);
 
-        boolean autoCapture = isImmediateCapture || ! supportsManualCapture(paymentInfo.getAdyenPaymentMethod());
+        boolean autoCapture = isImmediateCapture
+                || ! getPaymentMethodCapabilityRegistry().supports(paymentInfo.getAdyenPaymentMethod(), PaymentMethodCapabilityRegistry.Capability.MANUAL_CAPTURE);
 
         if (autoCapture) {
             result.setTransactionStatus(TransactionStatus.ACCEPTED);
             result.setTransactionStatusDetails(TransactionStatusDetails.SUCCESFULL);
+            //The whole authorisation is captured, set rather than added so that repeated runs don't count it twice
+            final PaymentTransactionModel paymentTransaction = getPaymentTransaction(order, originalPSPReference);
+            if (paymentTransaction != null) {
+                adyenTransactionService.markFullyCaptured(paymentTransaction);
+            }
         } else {
-            try {
-                ModificationResult modificationResult = adyenPaymentService.capture(amount, currency, originalPSPReference, reference);
-
-                if (modificationResult.getResponse() == ModificationResult.ResponseEnum.CAPTURE_RECEIVED_) {
-                    result.setTransactionStatus(TransactionStatus.ACCEPTED);  //Accepted so that TakePaymentAction doesn't fail
-                    result.setTransactionStatusDetails(TransactionStatusDetails.REVIEW_NEEDED);
-                } else {
-                    result.setTransactionStatus(TransactionStatus.REJECTED);
-                    result.setTransactionStatusDetails(TransactionStatusDetails.UNKNOWN_CODE);
+            AdyenModificationRecordModel modificationRecord = adyenModificationService.claim(originalPSPReference, AdyenModificationService.TYPE_CAPTURE, amount, currency);
+
+            if (modificationRecord == null) {
+                //Same capture already sent, wait for its notification
+                result.setTransactionStatus(TransactionStatus.ACCEPTED);
+                result.setTransactionStatusDetails(TransactionStatusDetails.REVIEW_NEEDED);
+            } else {
+                try {
+                    ModificationResult modificationResult = adyenPaymentService.capture(amount, currency, originalPSPReference, reference);
+
+                    if (modificationResult.getResponse() == ModificationResult.ResponseEnum.CAPTURE_RECEIVED_) {
+                        result.setTransactionStatus(TransactionStatus.ACCEPTED);  //Accepted so that TakePaymentAction doesn't fail
+                        result.setTransactionStatusDetails(TransactionStatusDetails.REVIEW_NEEDED);
+                        adyenModificationService.complete(modificationRecord, true, modificationResult.getPspReference());
+                    } else {
+                        result.setTransactionStatus(TransactionStatus.REJECTED);
+                        result.setTransactionStatusDetails(TransactionStatusDetails.UNKNOWN_CODE);
+                        adyenModificationService.complete(modificationRecord, false, modificationResult.getPspReference());
+                        final PaymentTransactionModel paymentTransaction = getPaymentTransaction(order, originalPSPReference);
+                        if (paymentTransaction != null) {
+                            adyenTransactionService.updateRunningTotals(paymentTransaction, PaymentTransactionType.CAPTURE, amount, false);
+                        }
+                    }
+                } catch (Exception e) {
+                    //The capture may have reached Adyen, the record stays in flight until it times out
+                    LOG.error("Capture Exception for modification record: " + modificationRecord.getCode() + ": " + e, e);
+                    adyenModificationService.recordError(modificationRecord, e);
                 }
-            } catch (Exception e) {
-                LOG.error("Capture Exception: " + e, e);
             }
         }
 
@@ -106,6 +141,20 @@ public class AdyenCaptureCommand implements CaptureCommand {
         return result;
     }
 
+    /**
+     * Apply the capture result to the running totals of the captured transaction
+     */
+    private PaymentTransactionModel getPaymentTransaction(final OrderModel order, final String originalPSPReference) {
+        if (order.getPaymentTransactions() == null) {
+            return null;
+        }
+
+        return order.getPaymentTransactions().stream()
+                .filter(paymentTransaction -> originalPSPReference.equals(paymentTransaction.getRequestId()))
+                .findFirst()
+                .orElse(null);
+    }
+
     private CaptureResult createCaptureResultFromRequest(CaptureRequest request) {
         CaptureResult result = new CaptureResult();
 
@@ -123,35 +172,6 @@ public class AdyenCaptureCommand implements CaptureCommand {
         return result;
     }
 
-    private boolean supportsManualCapture(String paymentMethod) {
-        switch (paymentMethod) {
-            case "cup":
-            case "cartebancaire":
-            case "visa":
-            case "mc":
-            case "uatp":
-            case "amex":
-            case "maestro":
-            case "maestrouk":
-            case "diners":
-            case "discover":
-            case "jcb":
-            case "laser":
-            case "paypal":
-            case "klarna":
-            case "afterpay_default":
-            case "sepadirectdebit":
-                return true;
-        }
-
-        //        // To be sure check if it payment method starts with afterpay_ then manualCapture is allowed
-        //        if (strlen($this->_paymentMethod) >= 9 && substr($this->_paymentMethod, 0, 9) == "afterpay_") {
-        //            $manualCaptureAllowed = true;
-        //        }
-
-        return false;
-    }
-
     public AdyenPaymentServiceFactory getAdyenPaymentServiceFactory() {
         return adyenPaymentServiceFactory;
     }
@@ -167,4 +187,29 @@ public class AdyenCaptureCommand implements CaptureCommand {
     public void setOrderRepository(OrderRepository orderRepository) {
         this.orderRepository = orderRepository;
     }
+
+    public AdyenModificationService getAdyenModificationService() {
+        return adyenModificationService;
+    }
+
+    public void setAdyenModificationService(AdyenModificationService adyenModificationService) {
+        this.adyenModificationService = adyenModificationService;
+    }
+
+    public AdyenTransactionService getAdyenTransactionService() {
+        return adyenTransactionService;
+    }
+
+    public void setAdyenTransactionService(AdyenTransactionService adyenTransactionService) {
+        this.adyenTransactionService = adyenTransactionService;
+    }
+
+    public PaymentMethodCapabilityRegistry getPaymentMethodCapabilityRegistry() {
+        return paymentMethodCapabilityRegistry;
+    }
+
+    @Required
+    public void setPaymentMethodCapabilityRegistry(PaymentMethodCapabilityRegistry paymentMethodCapabilityRegistry) {
+        this.paymentMethodCapabilityRegistry = paymentMethodCapabilityRegistry;
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.commands;
+
+import java.util.function.Supplier;
+import de.hybris.platform.core.model.order.OrderModel;
+
+/**
+ * Carries the order of a payment service call (capture/cancel/refund) to the Adyen commands of the same thread
+ * The commands only receive the order code, this saves them from loading the order again
+ */
+public final class AdyenCommandContext {
+    private static final ThreadLocal<OrderModel> ORDER = new ThreadLocal<>();
+
+    private AdyenCommandContext() {
+    }
+
+    /**
+     * Run a payment service call with the order available to the commands
+     */
+    public static <T> T withOrder(final OrderModel order, final Supplier<T> call) {
+        final OrderModel previous = ORDER.get();
+        ORDER.set(order);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                ORDER.remove();
+            } else {
+                ORDER.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Order of the current call
+     *
+     * @param code order code of the command request
+     * @return OrderModel or null if the current call is not for this order
+     */
+    public static OrderModel getOrder(final String code) {
+        final OrderModel order = ORDER.get();
+        if (order != null && code != null && code.equals(order.getCode())) {
+            return order;
+        }
+        return null;
+    }
+}
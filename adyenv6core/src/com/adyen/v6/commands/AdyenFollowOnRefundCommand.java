@@ -24,16 +24,20 @@ import java.math.BigDecimal;
 import java.util.Currency;
 import java.util.Date;
 import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
 import com.adyen.model.modification.ModificationResult;
 import com.adyen.v6.factory.AdyenPaymentServiceFactory;
-import com.adyen.v6.repository.BaseStoreRepository;
+import com.adyen.v6.repository.OrderRepository;
 import com.adyen.v6.service.AdyenPaymentService;
+import com.adyen.v6.service.PaymentMethodCapabilityRegistry;
+import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.payment.commands.FollowOnRefundCommand;
 import de.hybris.platform.payment.commands.request.FollowOnRefundRequest;
 import de.hybris.platform.payment.commands.result.RefundResult;
 import de.hybris.platform.store.BaseStoreModel;
 import static de.hybris.platform.payment.dto.TransactionStatus.ACCEPTED;
 import static de.hybris.platform.payment.dto.TransactionStatus.ERROR;
+import static de.hybris.platform.payment.dto.TransactionStatus.REJECTED;
 import static de.hybris.platform.payment.dto.TransactionStatusDetails.REVIEW_NEEDED;
 import static de.hybris.platform.payment.dto.TransactionStatusDetails.UNKNOWN_CODE;
 
@@ -44,7 +48,8 @@ public class AdyenFollowOnRefundCommand implements FollowOnRefundCommand<FollowO
     private static final Logger LOG = Logger.getLogger(AdyenFollowOnRefundCommand.class);
 
     private AdyenPaymentServiceFactory adyenPaymentServiceFactory;
-    private BaseStoreRepository baseStoreRepository;
+    private OrderRepository orderRepository;
+    private PaymentMethodCapabilityRegistry paymentMethodCapabilityRegistry;
 
     @Override
     public RefundResult perform(FollowOnRefundRequest request) {
@@ -64,10 +69,23 @@ public class AdyenFollowOnRefundCommand implements FollowOnRefundCommand<FollowO
         final BigDecimal amount = request.getTotalAmount();
         final Currency currency = request.getCurrency();
 
-        BaseStoreModel baseStore = baseStoreRepository.findByOrder(reference);
-        if (baseStore == null) {
+        OrderModel order = AdyenCommandContext.getOrder(reference);
+        if (order == null) {
+            order = orderRepository.getOrderModel(reference);
+        }
+        if (order == null) {
+            LOG.error("Order with code: " + reference + " was not found");
             return result;
         }
+
+        String paymentMethod = order.getPaymentInfo() != null ? order.getPaymentInfo().getAdyenPaymentMethod() : null;
+        if (paymentMethod != null && ! getPaymentMethodCapabilityRegistry().supports(paymentMethod, PaymentMethodCapabilityRegistry.Capability.REFUND)) {
+            LOG.warn("Payment method: " + paymentMethod + " does not support refunds");
+            result.setTransactionStatus(REJECTED);
+            return result;
+        }
+
+        BaseStoreModel baseStore = order.getStore();
         AdyenPaymentService adyenPaymentService = adyenPaymentServiceFactory.createFromBaseStore(baseStore);
 
         try {
@@ -97,11 +115,20 @@ public class AdyenFollowOnRefundCommand implements FollowOnRefundCommand<FollowO
         this.adyenPaymentServiceFactory = adyenPaymentServiceFactory;
     }
 
-    public BaseStoreRepository getBaseStoreRepository() {
-        return baseStoreRepository;
+    public OrderRepository getOrderRepository() {
+        return orderRepository;
+    }
+
+    public void setOrderRepository(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    public PaymentMethodCapabilityRegistry getPaymentMethodCapabilityRegistry() {
+        return paymentMethodCapabilityRegistry;
     }
 
-    public void setBaseStoreRepository(BaseStoreRepository baseStoreRepository) {
-        this.baseStoreRepository = baseStoreRepository;
+    @Required
+    public void setPaymentMethodCapabilityRegistry(PaymentMethodCapabilityRegistry paymentMethodCapabilityRegistry) {
+        this.paymentMethodCapabilityRegistry = paymentMethodCapabilityRegistry;
     }
 }
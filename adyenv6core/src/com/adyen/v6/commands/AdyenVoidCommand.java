@@ -26,6 +26,7 @@ import com.adyen.model.modification.ModificationResult;
 import com.adyen.v6.factory.AdyenPaymentServiceFactory;
 import com.adyen.v6.repository.BaseStoreRepository;
 import com.adyen.v6.service.AdyenPaymentService;
+import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.payment.commands.VoidCommand;
 import de.hybris.platform.payment.commands.request.VoidRequest;
 import de.hybris.platform.payment.commands.result.VoidResult;
@@ -54,7 +55,8 @@ public class AdyenVoidCommand implements VoidCommand {
         String authReference = request.getRequestId();
         String reference = request.getRequestToken();
 
-        BaseStoreModel baseStore = baseStoreRepository.findByOrder(reference);
+        OrderModel order = AdyenCommandContext.getOrder(reference);
+        BaseStoreModel baseStore = order != null ? order.getStore() : baseStoreRepository.findByOrder(reference);
         if (baseStore == null) {
             return result;
         }
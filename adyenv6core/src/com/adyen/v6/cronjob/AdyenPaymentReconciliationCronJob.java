@@ -0,0 +1,240 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.cronjob;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.log4j.Logger;
+import com.adyen.model.notification.NotificationRequestItem;
+import com.adyen.v6.actions.order.AdyenWaitTimeoutAction;
+import com.adyen.v6.repository.BusinessProcessRepository;
+import com.adyen.v6.repository.NotificationItemRepository;
+import com.adyen.v6.repository.OrderRepository;
+import com.adyen.v6.service.AdyenNotificationService;
+import com.adyen.v6.service.AdyenPaymentStatusProvider;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.cronjob.enums.CronJobResult;
+import de.hybris.platform.cronjob.enums.CronJobStatus;
+import de.hybris.platform.cronjob.model.CronJobModel;
+import de.hybris.platform.servicelayer.cronjob.AbstractJobPerformable;
+import de.hybris.platform.servicelayer.cronjob.PerformResult;
+
+/**
+ * Resolves the payment status of orders waiting on Adyen notifications for too long
+ * The resolved statuses are saved as notifications, which are then handled by adyenProcessNotificationCronJob
+ * Each run continues after the last order of the previous run, so orders that cannot be resolved do not starve the rest
+ * The statuses come from the adyenPaymentStatusProvider extension point, the default provider resolves none
+ */
+public class AdyenPaymentReconciliationCronJob extends AbstractJobPerformable<CronJobModel> {
+    private static final Logger LOG = Logger.getLogger(AdyenPaymentReconciliationCronJob.class);
+    public static final String ADDITIONAL_DATA_RECONCILIATION = "hybrisReconciliation";
+
+    private BusinessProcessRepository businessProcessRepository;
+    private OrderRepository orderRepository;
+    private NotificationItemRepository notificationItemRepository;
+    private AdyenNotificationService adyenNotificationService;
+    private AdyenPaymentStatusProvider adyenPaymentStatusProvider;
+    /**
+     * Wait node ids mapped to the waitName of their AdyenWaitStartAction
+     */
+    private Map<String, String> waitNames;
+    private long waitingMinutes;
+    private int maxOrdersPerRun;
+    private int batchSize;
+    private long batchIntervalMillis;
+
+    /**
+     * Last order code checked, null to start over from the first waiting order
+     * Kept in memory only, a restart begins from the start again
+     */
+    private volatile String lastOrderCode;
+
+    @Override
+    public PerformResult perform(final CronJobModel cronJob) {
+        final Date waitingSince = new Date(System.currentTimeMillis() - waitingMinutes * 60000);
+        final List<String> orderCodes = businessProcessRepository.getWaitingOrderCodes(AdyenWaitTimeoutAction.getParameterNames(waitNames), waitingSince, lastOrderCode, maxOrdersPerRun);
+
+        LOG.debug(orderCodes.size() + " orders waiting on " + waitNames.keySet() + " for more than " + waitingMinutes + " minutes after order: " + lastOrderCode);
+
+        //Wrap around once the last page is reached
+        lastOrderCode = orderCodes.isEmpty() || orderCodes.size() < maxOrdersPerRun ? null : orderCodes.get(orderCodes.size() - 1);
+
+        final int step = Math.max(1, batchSize);
+        int saved = 0;
+        for (int from = 0; from < orderCodes.size(); from += step) {
+            if (from > 0 && ! pause()) {
+                return new PerformResult(CronJobResult.UNKNOWN, CronJobStatus.ABORTED);
+            }
+
+            final List<String> batch = orderCodes.subList(from, Math.min(from + step, orderCodes.size()));
+            final Map<String, OrderModel> orders = orderRepository.getOrderModels(batch);
+
+            final List<NotificationRequestItem> statuses;
+            try {
+                statuses = adyenPaymentStatusProvider.getPaymentStatuses(new ArrayList<>(orders.values()));
+            } catch (Exception e) {
+                LOG.error("Failed to resolve the payment status of orders " + batch, e);
+                continue;
+            }
+
+            for (final NotificationRequestItem status : statuses) {
+                if (saveNotification(status)) {
+                    saved++;
+                }
+            }
+        }
+
+        LOG.info("Reconciled " + saved + " of " + orderCodes.size() + " orders waiting on Adyen notifications");
+
+        return new PerformResult(CronJobResult.SUCCESS, CronJobStatus.FINISHED);
+    }
+
+    /**
+     * Saves the resolved status as a notification, unless Adyen already sent it
+     */
+    private boolean saveNotification(NotificationRequestItem status) {
+        if (notificationItemRepository.notificationReceived(status.getPspReference(), status.getEventCode(), status.isSuccess())) {
+            LOG.debug("Notification already received for order: " + status.getMerchantReference());
+            return false;
+        }
+
+        final Map<String, String> additionalData = status.getAdditionalData() == null ? new HashMap<>() : new HashMap<>(status.getAdditionalData());
+        additionalData.put(ADDITIONAL_DATA_RECONCILIATION, "true");
+        status.setAdditionalData(additionalData);
+
+        if (status.getEventDate() == null) {
+            status.setEventDate(new Date());
+        }
+
+        LOG.debug("Saving reconciled " + status.getEventCode() + " notification for order: " + status.getMerchantReference());
+        adyenNotificationService.saveFromNotificationRequest(status);
+
+        return true;
+    }
+
+    /**
+     * Rate limit between the status provider calls
+     */
+    private boolean pause() {
+        if (batchIntervalMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(batchIntervalMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Reconciliation interrupted");
+            return false;
+        }
+    }
+
+    public BusinessProcessRepository getBusinessProcessRepository() {
+        return businessProcessRepository;
+    }
+
+    public void setBusinessProcessRepository(BusinessProcessRepository businessProcessRepository) {
+        this.businessProcessRepository = businessProcessRepository;
+    }
+
+    public OrderRepository getOrderRepository() {
+        return orderRepository;
+    }
+
+    public void setOrderRepository(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    public NotificationItemRepository getNotificationItemRepository() {
+        return notificationItemRepository;
+    }
+
+    public void setNotificationItemRepository(NotificationItemRepository notificationItemRepository) {
+        this.notificationItemRepository = notificationItemRepository;
+    }
+
+    public AdyenNotificationService getAdyenNotificationService() {
+        return adyenNotificationService;
+    }
+
+    public void setAdyenNotificationService(AdyenNotificationService adyenNotificationService) {
+        this.adyenNotificationService = adyenNotificationService;
+    }
+
+    public AdyenPaymentStatusProvider getAdyenPaymentStatusProvider() {
+        return adyenPaymentStatusProvider;
+    }
+
+    public void setAdyenPaymentStatusProvider(AdyenPaymentStatusProvider adyenPaymentStatusProvider) {
+        this.adyenPaymentStatusProvider = adyenPaymentStatusProvider;
+    }
+
+    public String getLastOrderCode() {
+        return lastOrderCode;
+    }
+
+    public void setLastOrderCode(String lastOrderCode) {
+        this.lastOrderCode = lastOrderCode;
+    }
+
+    public Map<String, String> getWaitNames() {
+        return waitNames;
+    }
+
+    public void setWaitNames(Map<String, String> waitNames) {
+        this.waitNames = waitNames;
+    }
+
+    public long getWaitingMinutes() {
+        return waitingMinutes;
+    }
+
+    public void setWaitingMinutes(long waitingMinutes) {
+        this.waitingMinutes = waitingMinutes;
+    }
+
+    public int getMaxOrdersPerRun() {
+        return maxOrdersPerRun;
+    }
+
+    public void setMaxOrdersPerRun(int maxOrdersPerRun) {
+        this.maxOrdersPerRun = maxOrdersPerRun;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getBatchIntervalMillis() {
+        return batchIntervalMillis;
+    }
+
+    public void setBatchIntervalMillis(long batchIntervalMillis) {
+        this.batchIntervalMillis = batchIntervalMillis;
+    }
+}
@@ -20,12 +20,16 @@
  */
 package com.adyen.v6.cronjob;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import org.apache.log4j.Logger;
+import com.adyen.v6.metrics.AdyenNotificationMetrics;
 import com.adyen.v6.model.NotificationItemModel;
 import com.adyen.v6.repository.NotificationItemRepository;
+import com.adyen.v6.service.AdyenBusinessProcessService;
 import com.adyen.v6.service.AdyenNotificationService;
+import com.adyen.v6.service.NotificationPrefetchData;
+import com.adyen.v6.util.AdyenLogger;
 import de.hybris.platform.cronjob.enums.CronJobResult;
 import de.hybris.platform.cronjob.enums.CronJobStatus;
 import de.hybris.platform.cronjob.model.CronJobModel;
@@ -37,33 +41,59 @@ import de.hybris.platform.servicelayer.model.ModelService;
  * Notification handling cronjob
  */
 public class AdyenProcessNotificationCronJob extends AbstractJobPerformable<CronJobModel> {
-    private static final Logger LOG = Logger.getLogger(AdyenProcessNotificationCronJob.class);
+    private static final AdyenLogger LOG = AdyenLogger.getLogger(AdyenProcessNotificationCronJob.class);
 
     private ModelService modelService;
     private NotificationItemRepository notificationItemRepository;
     private AdyenNotificationService adyenNotificationService;
+    private AdyenBusinessProcessService adyenBusinessProcessService;
+    private AdyenNotificationMetrics adyenNotificationMetrics = new AdyenNotificationMetrics();
 
     @Override
     public PerformResult perform(final CronJobModel cronJob) {
         LOG.debug("Start processing..");
 
-        final List<NotificationItemModel> nonProcessedNotifications = notificationItemRepository.getNonProcessedNotifications();
-
-        for (final NotificationItemModel notificationItemModel : nonProcessedNotifications) {
-            notificationItemModel.setProcessedAt(new Date());
-
-            boolean isDuplicate = notificationItemRepository.notificationProcessed(notificationItemModel.getPspReference(), notificationItemModel.getEventCode(), notificationItemModel.getSuccess());
-
-            LOG.debug("Processing order with code: " + notificationItemModel.getMerchantReference());
+        adyenNotificationMetrics.recordBacklog(notificationItemRepository.countNonProcessedNotifications(), notificationItemRepository.getOldestNonProcessedCreatedAt());
 
-            if (isDuplicate) {
-                LOG.debug("Skipping duplicate notification");
-            } else {
-                adyenNotificationService.processNotification(notificationItemModel);
-                LOG.debug("Notification with PSPReference " + notificationItemModel.getPspReference() + " was processed");
+        final List<NotificationItemModel> nonProcessedNotifications = notificationItemRepository.getNonProcessedNotifications();
+        final NotificationPrefetchData prefetchData = adyenNotificationService.prefetch(nonProcessedNotifications);
+
+        //Creation times of the notifications that triggered a process event
+        final List<Date> triggeringCreatedAt = new ArrayList<>(nonProcessedNotifications.size());
+
+        //Coalesce the process events triggered by this page, each distinct event is sent once after the page is processed
+        adyenBusinessProcessService.beginEventBatch();
+        try {
+            for (final NotificationItemModel notificationItemModel : nonProcessedNotifications) {
+                notificationItemModel.setProcessedAt(new Date());
+                adyenNotificationMetrics.recordQueueWait(notificationItemModel.getCreatedAt(), notificationItemModel.getProcessedAt());
+
+                boolean isDuplicate = notificationItemRepository.notificationProcessed(notificationItemModel.getPspReference(), notificationItemModel.getEventCode(), notificationItemModel.getSuccess());
+
+                LOG.debug(() -> "Processing order with code: " + notificationItemModel.getMerchantReference());
+
+                if (isDuplicate) {
+                    LOG.debug("Skipping duplicate notification");
+                    adyenNotificationMetrics.recordDuplicate();
+                } else {
+                    final int batchedEvents = adyenBusinessProcessService.getBatchedEventCount();
+                    adyenNotificationService.processNotification(notificationItemModel, prefetchData);
+                    if (adyenBusinessProcessService.getBatchedEventCount() > batchedEvents) {
+                        triggeringCreatedAt.add(notificationItemModel.getCreatedAt());
+                    }
+                    LOG.debug(() -> "Notification with PSPReference " + notificationItemModel.getPspReference() + " was processed");
+                }
+
+                modelService.save(notificationItemModel);
             }
+        } finally {
+            adyenBusinessProcessService.flushEventBatch();
+        }
 
-            modelService.save(notificationItemModel);
+        //Only reached when the whole page was processed
+        final Date triggeredAt = new Date();
+        for (final Date createdAt : triggeringCreatedAt) {
+            adyenNotificationMetrics.recordEventLatency(createdAt, triggeredAt);
         }
 
         return new PerformResult(CronJobResult.SUCCESS, CronJobStatus.FINISHED);
@@ -93,4 +123,20 @@ public class AdyenProcessNotificationCronJob extends AbstractJobPerformable<Cron
     public void setAdyenNotificationService(AdyenNotificationService adyenNotificationService) {
         this.adyenNotificationService = adyenNotificationService;
     }
+
+    public AdyenBusinessProcessService getAdyenBusinessProcessService() {
+        return adyenBusinessProcessService;
+    }
+
+    public void setAdyenBusinessProcessService(AdyenBusinessProcessService adyenBusinessProcessService) {
+        this.adyenBusinessProcessService = adyenBusinessProcessService;
+    }
+
+    public AdyenNotificationMetrics getAdyenNotificationMetrics() {
+        return adyenNotificationMetrics;
+    }
+
+    public void setAdyenNotificationMetrics(AdyenNotificationMetrics adyenNotificationMetrics) {
+        this.adyenNotificationMetrics = adyenNotificationMetrics;
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.cronjob;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import org.apache.log4j.Logger;
+import com.adyen.v6.actions.order.AdyenWaitTimeoutAction;
+import com.adyen.v6.repository.BusinessProcessRepository;
+import de.hybris.platform.cronjob.enums.CronJobResult;
+import de.hybris.platform.cronjob.enums.CronJobStatus;
+import de.hybris.platform.cronjob.model.CronJobModel;
+import de.hybris.platform.servicelayer.cronjob.AbstractJobPerformable;
+import de.hybris.platform.servicelayer.cronjob.PerformResult;
+
+/**
+ * Reports the order processes that are waiting for an Adyen authorization/capture for too long
+ */
+public class AdyenWaitingProcessReportCronJob extends AbstractJobPerformable<CronJobModel> {
+    private static final Logger LOG = Logger.getLogger(AdyenWaitingProcessReportCronJob.class);
+    private static final int MAX_REPORTED_CODES = 100;
+
+    private BusinessProcessRepository businessProcessRepository;
+    /**
+     * Wait node ids mapped to the waitName of their AdyenWaitStartAction
+     */
+    private Map<String, String> waitNames;
+    private long waitingMinutes;
+
+    @Override
+    public PerformResult perform(final CronJobModel cronJob) {
+        final Date waitingSince = new Date(System.currentTimeMillis() - waitingMinutes * 60000);
+        final List<String> processCodes = businessProcessRepository.getWaitingProcessCodes(AdyenWaitTimeoutAction.getParameterNames(waitNames), waitingSince);
+
+        if (processCodes.isEmpty()) {
+            LOG.debug("No processes waiting on " + waitNames.keySet() + " for more than " + waitingMinutes + " minutes");
+        } else {
+            LOG.warn(processCodes.size() + " processes waiting on " + waitNames.keySet() + " for more than " + waitingMinutes + " minutes: "
+                    + processCodes.subList(0, Math.min(processCodes.size(), MAX_REPORTED_CODES)));
+        }
+
+        return new PerformResult(CronJobResult.SUCCESS, CronJobStatus.FINISHED);
+    }
+
+    public BusinessProcessRepository getBusinessProcessRepository() {
+        return businessProcessRepository;
+    }
+
+    public void setBusinessProcessRepository(BusinessProcessRepository businessProcessRepository) {
+        this.businessProcessRepository = businessProcessRepository;
+    }
+
+    public Map<String, String> getWaitNames() {
+        return waitNames;
+    }
+
+    public void setWaitNames(Map<String, String> waitNames) {
+        this.waitNames = waitNames;
+    }
+
+    public long getWaitingMinutes() {
+        return waitingMinutes;
+    }
+
+    public void setWaitingMinutes(long waitingMinutes) {
+        this.waitingMinutes = waitingMinutes;
+    }
+}
@@ -20,12 +20,39 @@
  */
 package com.adyen.v6.factory;
 
+import org.springframework.beans.factory.annotation.Required;
+import com.adyen.v6.metrics.AdyenPaymentMetrics;
 import com.adyen.v6.service.AdyenPaymentService;
 import com.adyen.v6.service.DefaultAdyenPaymentService;
 import de.hybris.platform.store.BaseStoreModel;
 
 public class AdyenPaymentServiceFactory {
+    private AdyenRequestFactory adyenRequestFactory;
+    private AdyenPaymentMetrics adyenPaymentMetrics;
+
     public AdyenPaymentService createFromBaseStore(final BaseStoreModel baseStoreModel) {
-        return new DefaultAdyenPaymentService(baseStoreModel);
+        DefaultAdyenPaymentService adyenPaymentService = new DefaultAdyenPaymentService(baseStoreModel);
+        adyenPaymentService.setAdyenRequestFactory(adyenRequestFactory);
+        if (adyenPaymentMetrics != null) {
+            adyenPaymentService.setAdyenPaymentMetrics(adyenPaymentMetrics);
+        }
+        return adyenPaymentService;
+    }
+
+    public AdyenRequestFactory getAdyenRequestFactory() {
+        return adyenRequestFactory;
+    }
+
+    @Required
+    public void setAdyenRequestFactory(AdyenRequestFactory adyenRequestFactory) {
+        this.adyenRequestFactory = adyenRequestFactory;
+    }
+
+    public AdyenPaymentMetrics getAdyenPaymentMetrics() {
+        return adyenPaymentMetrics;
+    }
+
+    public void setAdyenPaymentMetrics(AdyenPaymentMetrics adyenPaymentMetrics) {
+        this.adyenPaymentMetrics = adyenPaymentMetrics;
     }
 }
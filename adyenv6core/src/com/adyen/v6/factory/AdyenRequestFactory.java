@@ -21,11 +21,13 @@
 package com.adyen.v6.factory;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.util.ArrayList;
 import java.util.Currency;
 import java.util.List;
+import java.util.Objects;
 import javax.servlet.http.HttpServletRequest;
-import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
 import com.adyen.Util.Util;
 import com.adyen.enums.VatCategory;
 import com.adyen.model.AbstractPaymentRequest;
@@ -43,17 +45,22 @@ import com.adyen.model.recurring.DisableRequest;
 import com.adyen.model.recurring.Recurring;
 import com.adyen.model.recurring.RecurringDetailsRequest;
 import com.adyen.v6.enums.RecurringContractMode;
+import com.adyen.v6.service.PaymentMethodCapabilityRegistry;
+import com.adyen.v6.util.AdyenLogger;
 import de.hybris.platform.commercefacades.order.data.CartData;
 import de.hybris.platform.commercefacades.order.data.OrderEntryData;
 import de.hybris.platform.commercefacades.user.data.AddressData;
 import de.hybris.platform.core.model.user.CustomerModel;
-import static com.adyen.v6.constants.Adyenv6coreConstants.OPENINVOICE_METHODS_API;
+import de.hybris.platform.util.TaxValue;
 import static com.adyen.v6.constants.Adyenv6coreConstants.PAYMENT_METHOD_BOLETO;
 import static com.adyen.v6.constants.Adyenv6coreConstants.PAYMENT_METHOD_BOLETO_SANTANDER;
 import static com.adyen.v6.constants.Adyenv6coreConstants.PAYMENT_METHOD_CC;
 
 public class AdyenRequestFactory {
-    private static final Logger LOG = Logger.getLogger(AdyenRequestFactory.class);
+    private static final AdyenLogger LOG = AdyenLogger.getLogger(AdyenRequestFactory.class);
+    private static final String NOT_AVAILABLE = "NA";
+
+    private PaymentMethodCapabilityRegistry paymentMethodCapabilityRegistry;
 
     public PaymentRequest3d create3DAuthorizationRequest(final String merchantAccount, final HttpServletRequest request, final String md, final String paRes) {
         return createBasePaymentRequest(new PaymentRequest3d(), request, merchantAccount).set3DRequestData(md, paRes);
@@ -89,18 +96,27 @@ public class AdyenRequestFactory {
         }
 
         // if address details are provided added it into the request
+        Address deliveryAddress = null;
         if (cartData.getDeliveryAddress() != null) {
-            Address deliveryAddress = setAddressData(cartData.getDeliveryAddress());
+            deliveryAddress = setAddressData(cartData.getDeliveryAddress());
             paymentRequest.setDeliveryAddress(deliveryAddress);
         }
 
-        if (cartData.getPaymentInfo().getBillingAddress() != null) {
+        AddressData billingAddressData = cartData.getPaymentInfo().getBillingAddress();
+        if (billingAddressData != null) {
             // set PhoneNumber if it is provided
-            if (cartData.getPaymentInfo().getBillingAddress().getPhone() != null && ! cartData.getPaymentInfo().getBillingAddress().getPhone().isEmpty()) {
-                paymentRequest.setTelephoneNumber(cartData.getPaymentInfo().getBillingAddress().getPhone());
+            if (billingAddressData.getPhone() != null && ! billingAddressData.getPhone().isEmpty()) {
+                paymentRequest.setTelephoneNumber(billingAddressData.getPhone());
             }
 
-            Address billingAddress = setAddressData(cartData.getPaymentInfo().getBillingAddress());
+            // copy the delivery address when billing and delivery are the same
+            // a copy, as the request fields must not share one mutable Address
+            final Address billingAddress;
+            if (deliveryAddress != null && isSameAddress(cartData.getDeliveryAddress(), billingAddressData)) {
+                billingAddress = copyAddress(deliveryAddress);
+            } else {
+                billingAddress = setAddressData(billingAddressData);
+            }
             paymentRequest.setBillingAddress(billingAddress);
         }
 
@@ -115,7 +131,7 @@ public class AdyenRequestFactory {
         }
 
         // OpenInvoice add required additional data
-        if (OPENINVOICE_METHODS_API.contains(cartData.getAdyenPaymentMethod())) {
+        if (getPaymentMethodCapabilityRegistry().supports(cartData.getAdyenPaymentMethod(), PaymentMethodCapabilityRegistry.Capability.OPEN_INVOICE)) {
             paymentRequest.selectedBrand(cartData.getAdyenPaymentMethod());
             setOpenInvoiceData(paymentRequest, cartData, customerModel);
 
@@ -184,45 +200,60 @@ public class AdyenRequestFactory {
      * @return
      */
     private Address setAddressData(AddressData addressData) {
-
+        // all fields are required into the API, so default to NA when a value is not available
         Address address = new Address();
+        address.setCity(valueOrDefault(addressData.getTown()));
+        address.setCountry(valueOrDefault(getCountryIsocode(addressData)));
+        address.setStreet(valueOrDefault(addressData.getLine1()));
+        address.setHouseNumberOrName(valueOrDefault(addressData.getLine2()));
+        address.setPostalCode(valueOrDefault(addressData.getPostalCode()));
+        address.setStateOrProvince(valueOrDefault(getRegionIsocode(addressData)));
 
-        // set defaults because all fields are required into the API
-        address.setCity("NA");
-        address.setCountry("NA");
-        address.setHouseNumberOrName("NA");
-        address.setPostalCode("NA");
-        address.setStateOrProvince("NA");
-        address.setStreet("NA");
-
-        // set the actual values if they are available
-        if (addressData.getTown() != null && ! addressData.getTown().isEmpty()) {
-            address.setCity(addressData.getTown());
-        }
+        return address;
+    }
 
-        if (addressData.getCountry() != null && ! addressData.getCountry().getIsocode().isEmpty()) {
-            address.setCountry(addressData.getCountry().getIsocode());
-        }
+    private Address copyAddress(Address source) {
+        Address address = new Address();
+        address.setCity(source.getCity());
+        address.setCountry(source.getCountry());
+        address.setStreet(source.getStreet());
+        address.setHouseNumberOrName(source.getHouseNumberOrName());
+        address.setPostalCode(source.getPostalCode());
+        address.setStateOrProvince(source.getStateOrProvince());
 
-        if (addressData.getLine1() != null && ! addressData.getLine1().isEmpty()) {
-            address.setStreet(addressData.getLine1());
-        }
+        return address;
+    }
 
-        if (addressData.getLine2() != null && ! addressData.getLine2().isEmpty()) {
-            address.setHouseNumberOrName(addressData.getLine2());
+    /**
+     * Whether both addresses map to the same API address
+     */
+    private boolean isSameAddress(AddressData addressData, AddressData otherAddressData) {
+        if (addressData == otherAddressData) {
+            return true;
         }
 
-        if (addressData.getPostalCode() != null && ! address.getPostalCode().isEmpty()) {
-            address.setPostalCode(addressData.getPostalCode());
-        }
+        return Objects.equals(valueOrDefault(addressData.getTown()), valueOrDefault(otherAddressData.getTown()))
+                && Objects.equals(valueOrDefault(getCountryIsocode(addressData)), valueOrDefault(getCountryIsocode(otherAddressData)))
+                && Objects.equals(valueOrDefault(addressData.getLine1()), valueOrDefault(otherAddressData.getLine1()))
+                && Objects.equals(valueOrDefault(addressData.getLine2()), valueOrDefault(otherAddressData.getLine2()))
+                && Objects.equals(valueOrDefault(addressData.getPostalCode()), valueOrDefault(otherAddressData.getPostalCode()))
+                && Objects.equals(valueOrDefault(getRegionIsocode(addressData)), valueOrDefault(getRegionIsocode(otherAddressData)));
+    }
 
-        if (addressData.getRegion() != null && ! addressData.getRegion().getIsocode().isEmpty()) {
-            address.setStateOrProvince(addressData.getRegion().getIsocode());
-        }
+    private String getCountryIsocode(AddressData addressData) {
+        return addressData.getCountry() != null ? addressData.getCountry().getIsocode() : null;
+    }
 
-        return address;
+    private String getRegionIsocode(AddressData addressData) {
+        return addressData.getRegion() != null ? addressData.getRegion().getIsocode() : null;
     }
 
+    private String valueOrDefault(String value) {
+        if (value != null && ! value.isEmpty()) {
+            return value;
+        }
+        return NOT_AVAILABLE;
+    }
 
     /**
      * Return Recurring object from RecurringContractMode
@@ -324,33 +355,33 @@ public class AdyenRequestFactory {
         }
 
         // set the invoice lines
-        List<InvoiceLine> invoiceLines = new ArrayList();
+        List<InvoiceLine> invoiceLines = new ArrayList<>(cartData.getEntries().size() + 1);
         String currency = cartData.getTotalPrice().getCurrencyIso();
 
         for (OrderEntryData entry : cartData.getEntries()) {
+            BigDecimal quantity = BigDecimal.valueOf(entry.getQuantity());
 
             // Use totalPrice because the basePrice does include tax as well if you have configured this to be calculated in the price
-            BigDecimal pricePerItem = entry.getTotalPrice().getValue().divide(new BigDecimal(entry.getQuantity()));
+            BigDecimal pricePerItem = entry.getTotalPrice().getValue().divide(quantity, MathContext.DECIMAL64);
 
-
-            String description = "NA";
+            String description = NOT_AVAILABLE;
             if (entry.getProduct().getName() != null && ! entry.getProduct().getName().equals("")) {
                 description = entry.getProduct().getName();
             }
 
-            // Tax of total price (included quantity)
-            Double tax = entry.getTaxValues().stream().map(taxValue -> taxValue.getAppliedValue()).reduce(0.0, (x, y) -> x = x + y);
-
+            // Tax of total price (included quantity) and tax percentage, summed in one pass
+            BigDecimal tax = BigDecimal.ZERO;
+            BigDecimal percentage = BigDecimal.ZERO;
+            for (TaxValue taxValue : entry.getTaxValues()) {
+                tax = tax.add(BigDecimal.valueOf(taxValue.getAppliedValue()));
+                percentage = percentage.add(BigDecimal.valueOf(taxValue.getValue()));
+            }
 
             // Calculate Tax per quantitiy
-            if (tax > 0) {
-                tax = tax / entry.getQuantity().intValue();
+            if (tax.signum() > 0) {
+                tax = tax.divide(quantity, MathContext.DECIMAL64);
             }
 
-            // Calculate price without tax
-            Amount itemAmountWithoutTax = Util.createAmount(pricePerItem.subtract(new BigDecimal(tax)), currency);
-            Double percentage = entry.getTaxValues().stream().map(taxValue -> taxValue.getValue()).reduce(0.0, (x, y) -> x = x + y) * 100;
-
             InvoiceLine invoiceLine = new InvoiceLine();
             invoiceLine.setCurrencyCode(currency);
             invoiceLine.setDescription(description);
@@ -359,35 +390,26 @@ public class AdyenRequestFactory {
              * The price for one item in the invoice line, represented in minor units.
              * The due amount for the item, VAT excluded.
              */
-            invoiceLine.setItemAmount(itemAmountWithoutTax.getValue());
+            invoiceLine.setItemAmount(Util.createAmount(pricePerItem.subtract(tax), currency).getValue());
 
             // The VAT due for one item in the invoice line, represented in minor units.
-            invoiceLine.setItemVATAmount(Util.createAmount(BigDecimal.valueOf(tax), currency).getValue());
+            invoiceLine.setItemVATAmount(Util.createAmount(tax, currency).getValue());
 
             // The VAT percentage for one item in the invoice line, represented in minor units.
-            invoiceLine.setItemVatPercentage(percentage.longValue());
+            invoiceLine.setItemVatPercentage(percentage.movePointRight(2).longValue());
 
             // The country-specific VAT category a product falls under.  Allowed values: (High,Low,None)
             invoiceLine.setVatCategory(VatCategory.NONE);
 
             // An unique id for this item. Required for RatePay if the description of each item is not unique.
-            if (! entry.getProduct().getCode().isEmpty()) {
+            if (entry.getProduct().getCode() != null && ! entry.getProduct().getCode().isEmpty()) {
                 invoiceLine.setItemId(entry.getProduct().getCode());
             }
 
             invoiceLine.setNumberOfItems(entry.getQuantity().intValue());
 
-            if (entry.getProduct() != null && ! entry.getProduct().getCode().isEmpty()) {
-                invoiceLine.setItemId(entry.getProduct().getCode());
-            }
-
-            if (entry.getProduct() != null && ! entry.getProduct().getCode().isEmpty()) {
-                invoiceLine.setItemId(entry.getProduct().getCode());
-            }
-
-            LOG.debug("InvoiceLine Product:" + invoiceLine.toString());
+            LOG.debug("InvoiceLine Product:", invoiceLine);
             invoiceLines.add(invoiceLine);
-
         }
 
         // Add delivery costs
@@ -398,11 +420,11 @@ public class AdyenRequestFactory {
             invoiceLine.setDescription("Delivery Costs");
             Amount deliveryAmount = Util.createAmount(cartData.getDeliveryCost().getValue().toString(), currency);
             invoiceLine.setItemAmount(deliveryAmount.getValue());
-            invoiceLine.setItemVATAmount(new Long("0"));
-            invoiceLine.setItemVatPercentage(new Long("0"));
+            invoiceLine.setItemVATAmount(0L);
+            invoiceLine.setItemVatPercentage(0L);
             invoiceLine.setVatCategory(VatCategory.NONE);
             invoiceLine.setNumberOfItems(1);
-            LOG.debug("InvoiceLine DeliveryCosts:" + invoiceLine.toString());
+            LOG.debug("InvoiceLine DeliveryCosts:", invoiceLine);
             invoiceLines.add(invoiceLine);
         }
 
@@ -421,4 +443,13 @@ public class AdyenRequestFactory {
         shopperName.setLastName(cartData.getAdyenLastName());
         paymentRequest.setShopperName(shopperName);
     }
+
+    public PaymentMethodCapabilityRegistry getPaymentMethodCapabilityRegistry() {
+        return paymentMethodCapabilityRegistry;
+    }
+
+    @Required
+    public void setPaymentMethodCapabilityRegistry(PaymentMethodCapabilityRegistry paymentMethodCapabilityRegistry) {
+        this.paymentMethodCapabilityRegistry = paymentMethodCapabilityRegistry;
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.metrics;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Notification pipeline metrics, exported over JMX
+ * Fed by AdyenProcessNotificationCronJob (backlog, queue wait, event latency, duplicates) and DefaultAdyenNotificationService (processing latency, failures)
+ */
+@ManagedResource(description = "Adyen notification processing metrics")
+public class AdyenNotificationMetrics {
+    private final ConcurrentMap<String, LatencyHistogram> processingLatency = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> failures = new ConcurrentHashMap<>();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram eventLatency = new LatencyHistogram();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    private volatile long backlogSize;
+    private volatile long oldestUnprocessedAgeSeconds;
+
+    /**
+     * Backlog as seen at the start of a cronjob run
+     */
+    public void recordBacklog(final long size, final Date oldestCreatedAt) {
+        backlogSize = size;
+        oldestUnprocessedAgeSeconds = oldestCreatedAt == null ? 0 : (System.currentTimeMillis() - oldestCreatedAt.getTime()) / 1000;
+    }
+
+    /**
+     * Time between the notification being received (createdAt) and picked up for processing
+     */
+    public void recordQueueWait(final Date createdAt, final Date processedAt) {
+        if (createdAt != null && processedAt != null) {
+            queueWait.record(processedAt.getTime() - createdAt.getTime());
+        }
+    }
+
+    /**
+     * Time between the notification being received (createdAt) and the order process events of its page being sent
+     * Recorded for the notifications that triggered an event, once their page is fully processed
+     */
+    public void recordEventLatency(final Date createdAt, final Date triggeredAt) {
+        if (createdAt != null && triggeredAt != null) {
+            eventLatency.record(triggeredAt.getTime() - createdAt.getTime());
+        }
+    }
+
+    public void recordProcessed(final String eventCode, final long millis) {
+        processed.incrementAndGet();
+        processingLatency.computeIfAbsent(String.valueOf(eventCode), key -> new LatencyHistogram()).record(millis);
+    }
+
+    public void recordDuplicate() {
+        processed.incrementAndGet();
+        duplicates.incrementAndGet();
+    }
+
+    public void recordFailure(final String eventCode) {
+        failures.computeIfAbsent(String.valueOf(eventCode), key -> new AtomicLong()).incrementAndGet();
+    }
+
+    @ManagedAttribute(description = "Unprocessed notifications at the last cronjob run")
+    public long getBacklogSize() {
+        return backlogSize;
+    }
+
+    @ManagedAttribute(description = "Age in seconds of the oldest unprocessed notification at the last cronjob run")
+    public long getOldestUnprocessedAgeSeconds() {
+        return oldestUnprocessedAgeSeconds;
+    }
+
+    @ManagedAttribute(description = "Notifications handled, including duplicates")
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    @ManagedAttribute(description = "Notifications skipped as duplicates")
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    @ManagedAttribute(description = "Ratio of duplicates to handled notifications")
+    public double getDuplicateRate() {
+        long total = processed.get();
+        return total == 0 ? 0 : (double) duplicates.get() / total;
+    }
+
+    @ManagedAttribute(description = "Failed notifications")
+    public long getFailureCount() {
+        return failures.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    @ManagedAttribute(description = "Failed notifications per event code")
+    public Map<String, Long> getFailuresByEventCode() {
+        Map<String, Long> result = new TreeMap<>();
+        failures.forEach((eventCode, count) -> result.put(eventCode, count.get()));
+        return result;
+    }
+
+    @ManagedAttribute(description = "Queue wait (createdAt to processing) in milliseconds")
+    public String getQueueWait() {
+        return queueWait.toString();
+    }
+
+    @ManagedAttribute(description = "End-to-end latency (createdAt to order process event) in milliseconds, of the notifications that triggered an event")
+    public String getEventLatency() {
+        return eventLatency.toString();
+    }
+
+    @ManagedAttribute(description = "Processing latency in milliseconds per event code")
+    public Map<String, String> getProcessingLatency() {
+        Map<String, String> result = new TreeMap<>();
+        processingLatency.forEach((eventCode, histogram) -> result.put(eventCode, histogram.toString()));
+        return result;
+    }
+
+    @ManagedOperation(description = "Processing latency percentile in milliseconds for an event code")
+    public long getProcessingLatencyPercentile(final String eventCode, final double percentile) {
+        LatencyHistogram histogram = processingLatency.get(eventCode);
+        return histogram == null ? 0 : histogram.getPercentile(percentile);
+    }
+
+    public LatencyHistogram getProcessingLatencyHistogram(final String eventCode) {
+        return processingLatency.get(eventCode);
+    }
+
+    public LatencyHistogram getQueueWaitHistogram() {
+        return queueWait;
+    }
+
+    public LatencyHistogram getEventLatencyHistogram() {
+        return eventLatency;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import com.adyen.service.exception.ApiException;
+
+/**
+ * Adyen API call metrics, exported over JMX
+ * Fed by DefaultAdyenPaymentService, tagged by operation, merchant account and result code ("operation/merchantAccount/result")
+ */
+@ManagedResource(description = "Adyen API call metrics")
+public class AdyenPaymentMetrics {
+    public static final String RESULT_SUCCESS = "success";
+    public static final String RESULT_ERROR_PREFIX = "error:";
+
+    private final ConcurrentMap<String, LatencyHistogram> callLatency = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> operationLatency = new ConcurrentHashMap<>();
+
+    public void recordCall(final String operation, final String merchantAccount, final String result, final long millis) {
+        callLatency.computeIfAbsent(getKey(operation, merchantAccount, result), key -> new LatencyHistogram()).record(millis);
+        operationLatency.computeIfAbsent(operation, key -> new LatencyHistogram()).record(millis);
+    }
+
+    /**
+     * Failed calls are tagged with the exception, and the HTTP status for API errors (e.g. "error:ApiException:422")
+     */
+    public void recordError(final String operation, final String merchantAccount, final Exception exception, final long millis) {
+        String result = RESULT_ERROR_PREFIX + exception.getClass().getSimpleName();
+        if (exception instanceof ApiException) {
+            result += ":" + ((ApiException) exception).getStatusCode();
+        }
+        recordCall(operation, merchantAccount, result, millis);
+    }
+
+    @ManagedAttribute(description = "Calls per operation/merchantAccount/result")
+    public Map<String, Long> getCallCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        callLatency.forEach((key, histogram) -> result.put(key, histogram.getCount()));
+        return result;
+    }
+
+    @ManagedAttribute(description = "Call latency in milliseconds per operation/merchantAccount/result")
+    public Map<String, String> getCallLatency() {
+        Map<String, String> result = new TreeMap<>();
+        callLatency.forEach((key, histogram) -> result.put(key, histogram.toString()));
+        return result;
+    }
+
+    @ManagedAttribute(description = "Call latency in milliseconds per operation")
+    public Map<String, String> getOperationLatency() {
+        Map<String, String> result = new TreeMap<>();
+        operationLatency.forEach((operation, histogram) -> result.put(operation, histogram.toString()));
+        return result;
+    }
+
+    @ManagedAttribute(description = "Failed calls")
+    public long getErrorCount() {
+        return callLatency.entrySet()
+                          .stream()
+                          .filter(entry -> entry.getKey().contains("/" + RESULT_ERROR_PREFIX))
+                          .mapToLong(entry -> entry.getValue().getCount())
+                          .sum();
+    }
+
+    @ManagedOperation(description = "Call latency percentile in milliseconds for an operation")
+    public long getOperationLatencyPercentile(final String operation, final double percentile) {
+        LatencyHistogram histogram = operationLatency.get(operation);
+        return histogram == null ? 0 : histogram.getPercentile(percentile);
+    }
+
+    public LatencyHistogram getCallLatencyHistogram(final String operation, final String merchantAccount, final String result) {
+        return callLatency.get(getKey(operation, merchantAccount, result));
+    }
+
+    public LatencyHistogram getOperationLatencyHistogram(final String operation) {
+        return operationLatency.get(operation);
+    }
+
+    private static String getKey(final String operation, final String merchantAccount, final String result) {
+        return operation + "/" + merchantAccount + "/" + result;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram with fixed millisecond buckets
+ * Percentiles are approximated by the upper bound of the bucket they fall in
+ */
+public class LatencyHistogram {
+    private static final long[] BUCKET_BOUNDS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, Long.MAX_VALUE};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(final long millis) {
+        final long value = Math.max(0, millis);
+
+        int bucket = 0;
+        while (value > BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && ! max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long currentCount = count.get();
+        return currentCount == 0 ? 0 : (double) sum.get() / currentCount;
+    }
+
+    /**
+     * @param percentile value between 0 and 1
+     * @return upper bound in milliseconds of the bucket containing the percentile
+     */
+    public long getPercentile(final double percentile) {
+        long currentCount = count.get();
+        if (currentCount == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(percentile * currentCount);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(BUCKET_BOUNDS[i], max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount()
+                + ", mean=" + Math.round(getMean())
+                + ", p50=" + getPercentile(0.5)
+                + ", p95=" + getPercentile(0.95)
+                + ", p99=" + getPercentile(0.99)
+                + ", max=" + getMax();
+    }
+}
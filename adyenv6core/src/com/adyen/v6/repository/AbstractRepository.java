@@ -25,11 +25,21 @@ import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
 import de.hybris.platform.servicelayer.search.FlexibleSearchService;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
 /**
  * Abstract repository
  */
 abstract public class AbstractRepository {
     private static final Logger LOG = Logger.getLogger(AbstractRepository.class);
+    /**
+     * Maximum number of values bound to a single IN-list parameter
+     */
+    protected static final int IN_LIST_CHUNK_SIZE = 500;
+
     protected FlexibleSearchService flexibleSearchService;
 
     public Object getOneOrNull(FlexibleSearchQuery selectOrderQuery) {
@@ -44,6 +54,33 @@ abstract public class AbstractRepository {
         return result;
     }
 
+    /**
+     * Split values into distinct, non-null chunks suitable for IN-list queries
+     */
+    protected List<List<String>> partition(Collection<String> values) {
+        final List<List<String>> chunks = new ArrayList<>();
+        if (values == null) {
+            return chunks;
+        }
+
+        List<String> chunk = new ArrayList<>();
+        for (String value : new LinkedHashSet<>(values)) {
+            if (value == null) {
+                continue;
+            }
+            chunk.add(value);
+            if (chunk.size() == IN_LIST_CHUNK_SIZE) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+            }
+        }
+        if (! chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+
+        return chunks;
+    }
+
     public FlexibleSearchService getFlexibleSearchService() {
         return flexibleSearchService;
     }
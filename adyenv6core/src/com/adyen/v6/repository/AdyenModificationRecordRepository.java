@@ -0,0 +1,86 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.repository;
+
+import com.adyen.v6.model.AdyenModificationRecordModel;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import org.apache.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository class for AdyenModificationRecords
+ */
+public class AdyenModificationRecordRepository extends AbstractRepository {
+    private static final Logger LOG = Logger.getLogger(AdyenModificationRecordRepository.class);
+
+    /**
+     * Latest attempt of a modification of the given authorisation and amount
+     *
+     * @return AdyenModificationRecordModel or null if none was sent
+     */
+    public AdyenModificationRecordModel getLatestRecord(String originalReference, String type, BigDecimal amount, String currency) {
+        final Map queryParams = new HashMap();
+        queryParams.put("originalReference", originalReference);
+        queryParams.put("type", type);
+        queryParams.put("amount", amount);
+        queryParams.put("currency", currency);
+
+        final FlexibleSearchQuery selectRecordQuery = new FlexibleSearchQuery(
+                "SELECT {pk} FROM {" + AdyenModificationRecordModel._TYPECODE + "}"
+                        + " WHERE {" + AdyenModificationRecordModel.ORIGINALREFERENCE + "} = ?originalReference"
+                        + " AND {" + AdyenModificationRecordModel.TYPE + "} = ?type"
+                        + " AND {" + AdyenModificationRecordModel.AMOUNT + "} = ?amount"
+                        + " AND {" + AdyenModificationRecordModel.CURRENCY + "} = ?currency"
+                        + " ORDER BY {" + AdyenModificationRecordModel.ATTEMPT + "} DESC",
+                queryParams
+        );
+        selectRecordQuery.setCount(1);
+
+        LOG.debug("Finding " + type + " records of: " + originalReference);
+
+        final List<AdyenModificationRecordModel> result = flexibleSearchService.<AdyenModificationRecordModel>search(selectRecordQuery).getResult();
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * Find the attempt that was received by Adyen with the given modification PSP reference
+     *
+     * @return AdyenModificationRecordModel or null if none was received
+     */
+    public AdyenModificationRecordModel getRecordByPspReference(String pspReference) {
+        final Map queryParams = new HashMap();
+        queryParams.put("pspReference", pspReference);
+
+        final FlexibleSearchQuery selectRecordQuery = new FlexibleSearchQuery(
+                "SELECT {pk} FROM {" + AdyenModificationRecordModel._TYPECODE + "}"
+                        + " WHERE {" + AdyenModificationRecordModel.PSPREFERENCE + "} = ?pspReference",
+                queryParams
+        );
+
+        LOG.debug("Finding record with pspReference: " + pspReference);
+
+        return (AdyenModificationRecordModel) getOneOrNull(selectRecordQuery);
+    }
+}
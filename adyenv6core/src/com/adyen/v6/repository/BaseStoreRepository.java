@@ -20,32 +20,96 @@
  */
 package com.adyen.v6.repository;
 
+import com.adyen.v6.util.LruCache;
+import de.hybris.platform.core.PK;
 import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
 import de.hybris.platform.store.BaseStoreModel;
 import org.apache.log4j.Logger;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Repository class for BaseStore
  */
 public class BaseStoreRepository extends AbstractRepository {
-    private OrderRepository orderRepository;
     private static final Logger LOG = Logger.getLogger(BaseStoreRepository.class);
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+
+    private ModelService modelService;
+    /**
+     * Order code to BaseStore PK, the store of an order doesn't change
+     */
+    private LruCache<String, PK> storePkCache = new LruCache<>(DEFAULT_CACHE_SIZE);
 
+    /**
+     * Find the BaseStore of an order, served from the PK cache when possible
+     */
     public BaseStoreModel findByOrder(String code) {
-        OrderModel order = orderRepository.getOrderModel(code);
-        if (order != null) {
-            return order.getStore();
+        BaseStoreModel baseStore = getCachedBaseStore(code);
+        if (baseStore != null) {
+            return baseStore;
+        }
+
+        final Map queryParams = new HashMap();
+        queryParams.put("code", code);
+
+        //Adding "{versionID} IS NULL" to get the original order regardless of modification history
+        final FlexibleSearchQuery selectBaseStoreQuery = new FlexibleSearchQuery(
+                "SELECT {s.pk} FROM {" + OrderModel._TYPECODE + " AS o"
+                        + " JOIN " + BaseStoreModel._TYPECODE + " AS s ON {o." + OrderModel.STORE + "} = {s.pk}}"
+                        + " WHERE {o." + OrderModel.CODE + "} = ?code"
+                        + " AND {o.versionID} IS NULL",
+                queryParams
+        );
+
+        LOG.debug("Finding BaseStore of order with code: " + code);
+
+        baseStore = (BaseStoreModel) getOneOrNull(selectBaseStoreQuery);
+        if (baseStore == null) {
+            LOG.error("Order with code: " + code + " was not found");
+            return null;
         }
 
-        LOG.error("Order with code: " + code + " was not found");
+        storePkCache.put(code, baseStore.getPk());
+        return baseStore;
+    }
+
+    private BaseStoreModel getCachedBaseStore(String code) {
+        if (code == null || modelService == null) {
+            return null;
+        }
+
+        PK pk = storePkCache.get(code);
+        if (pk == null) {
+            return null;
+        }
+
+        try {
+            return modelService.get(pk);
+        } catch (Exception e) {
+            LOG.debug("Cached BaseStore not found: " + pk);
+        }
+
+        storePkCache.remove(code);
         return null;
     }
 
-    public OrderRepository getOrderRepository() {
-        return orderRepository;
+    public ModelService getModelService() {
+        return modelService;
+    }
+
+    public void setModelService(ModelService modelService) {
+        this.modelService = modelService;
+    }
+
+    public LruCache<String, PK> getStorePkCache() {
+        return storePkCache;
     }
 
-    public void setOrderRepository(OrderRepository orderRepository) {
-        this.orderRepository = orderRepository;
+    public void setStorePkCache(LruCache<String, PK> storePkCache) {
+        this.storePkCache = storePkCache;
     }
 }
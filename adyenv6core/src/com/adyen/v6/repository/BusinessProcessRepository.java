@@ -0,0 +1,220 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.repository;
+
+import com.adyen.v6.util.LruCache;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.orderprocessing.model.OrderProcessModel;
+import de.hybris.platform.processengine.enums.ProcessState;
+import de.hybris.platform.processengine.model.BusinessProcessModel;
+import de.hybris.platform.processengine.model.BusinessProcessParameterModel;
+import de.hybris.platform.processengine.model.ProcessTaskModel;
+import de.hybris.platform.returns.model.ReturnProcessModel;
+import de.hybris.platform.returns.model.ReturnRequestModel;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import org.apache.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository class for order and return processes
+ * Returns only the codes of the active processes of an order, without loading the order relations
+ */
+public class BusinessProcessRepository extends AbstractRepository {
+    private static final Logger LOG = Logger.getLogger(BusinessProcessRepository.class);
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+    private static final long DEFAULT_CACHE_TTL = 10000;
+
+    /**
+     * Processes that can still receive events
+     */
+    private static final List<ProcessState> ACTIVE_STATES = Arrays.asList(ProcessState.CREATED, ProcessState.RUNNING, ProcessState.WAITING);
+
+    private LruCache<String, List<String>> orderProcessCodesCache = new LruCache<>(DEFAULT_CACHE_SIZE, DEFAULT_CACHE_TTL);
+
+    /**
+     * Codes of the active order processes of an order
+     */
+    public List<String> getActiveOrderProcessCodes(String orderCode) {
+        List<String> processCodes = orderProcessCodesCache.get(orderCode);
+        if (processCodes != null) {
+            return processCodes;
+        }
+
+        final Map queryParams = new HashMap();
+        queryParams.put("orderCode", orderCode);
+        queryParams.put("states", ACTIVE_STATES);
+
+        final FlexibleSearchQuery selectProcessesQuery = new FlexibleSearchQuery(
+                "SELECT {p." + BusinessProcessModel.CODE + "}"
+                        + " FROM {" + OrderProcessModel._TYPECODE + " AS p"
+                        + " JOIN " + OrderModel._TYPECODE + " AS o ON {p." + OrderProcessModel.ORDER + "} = {o.pk}}"
+                        + " WHERE {o." + OrderModel.CODE + "} = ?orderCode"
+                        //Adding "{versionID} IS NULL" to get the original order regardless of modification history
+                        + " AND {o.versionID} IS NULL"
+                        + " AND {p." + BusinessProcessModel.STATE + "} IN (?states)",
+                queryParams
+        );
+
+        LOG.debug("Finding active order processes for order: " + orderCode);
+
+        processCodes = searchCodes(selectProcessesQuery);
+        if (! processCodes.isEmpty()) {
+            orderProcessCodesCache.put(orderCode, processCodes);
+        }
+
+        return processCodes;
+    }
+
+    /**
+     * Codes of the active return processes of all return requests of an order
+     * Not cached, an order can get new return processes at any time and each of them must receive the REFUND event
+     */
+    public List<String> getActiveReturnProcessCodes(String orderCode) {
+        final Map queryParams = new HashMap();
+        queryParams.put("orderCode", orderCode);
+        queryParams.put("states", ACTIVE_STATES);
+
+        final FlexibleSearchQuery selectProcessesQuery = new FlexibleSearchQuery(
+                "SELECT {p." + BusinessProcessModel.CODE + "}"
+                        + " FROM {" + ReturnProcessModel._TYPECODE + " AS p"
+                        + " JOIN " + ReturnRequestModel._TYPECODE + " AS r ON {p." + ReturnProcessModel.RETURNREQUEST + "} = {r.pk}"
+                        + " JOIN " + OrderModel._TYPECODE + " AS o ON {r." + ReturnRequestModel.ORDER + "} = {o.pk}}"
+                        + " WHERE {o." + OrderModel.CODE + "} = ?orderCode"
+                        + " AND {o.versionID} IS NULL"
+                        + " AND {p." + BusinessProcessModel.STATE + "} IN (?states)",
+                queryParams
+        );
+
+        LOG.debug("Finding active return processes for order: " + orderCode);
+
+        return searchCodes(selectProcessesQuery);
+    }
+
+    /**
+     * Codes of the processes waiting on one of the given nodes since before waitingSince
+     * waitStartParameters maps each wait node id to the name of the process parameter created when the process started waiting on it
+     * The creation time of that parameter is used, as the modifiedtime of the process changes on every timeout of the wait
+     */
+    public List<String> getWaitingProcessCodes(Map<String, String> waitStartParameters, Date waitingSince) {
+        if (waitStartParameters == null || waitStartParameters.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Map queryParams = new HashMap();
+        queryParams.put("state", ProcessState.WAITING);
+        queryParams.put("waitingSince", waitingSince);
+
+        final FlexibleSearchQuery selectProcessesQuery = new FlexibleSearchQuery(
+                "SELECT DISTINCT {p." + BusinessProcessModel.CODE + "}"
+                        + " FROM {" + ProcessTaskModel._TYPECODE + " AS t"
+                        + " JOIN " + BusinessProcessModel._TYPECODE + " AS p ON {t." + ProcessTaskModel.PROCESS + "} = {p.pk}"
+                        + " JOIN " + BusinessProcessParameterModel._TYPECODE + " AS w ON {w." + BusinessProcessParameterModel.PROCESS + "} = {p.pk}}"
+                        + " WHERE {p." + BusinessProcessModel.STATE + "} = ?state"
+                        + " AND {w.creationtime} < ?waitingSince"
+                        + " AND " + getWaitCondition(waitStartParameters, queryParams),
+                queryParams
+        );
+
+        LOG.debug("Finding processes waiting on " + waitStartParameters.keySet() + " since " + waitingSince);
+
+        return searchCodes(selectProcessesQuery);
+    }
+
+    /**
+     * Codes of the orders whose order process is waiting on one of the given nodes since before waitingSince
+     * waitStartParameters and the wait start are as in getWaitingProcessCodes
+     * Ordered by order code and starting after afterOrderCode (from the start when null), at most maxResults
+     * Paging by order code moves on to the next orders even when the status of the previous ones could not be resolved
+     */
+    public List<String> getWaitingOrderCodes(Map<String, String> waitStartParameters, Date waitingSince, String afterOrderCode, int maxResults) {
+        if (waitStartParameters == null || waitStartParameters.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Map queryParams = new HashMap();
+        queryParams.put("state", ProcessState.WAITING);
+        queryParams.put("waitingSince", waitingSince);
+
+        String afterOrderCodeCondition = "";
+        if (afterOrderCode != null) {
+            queryParams.put("afterOrderCode", afterOrderCode);
+            afterOrderCodeCondition = " AND {o." + OrderModel.CODE + "} > ?afterOrderCode";
+        }
+
+        final FlexibleSearchQuery selectOrdersQuery = new FlexibleSearchQuery(
+                "SELECT DISTINCT {o." + OrderModel.CODE + "}"
+                        + " FROM {" + ProcessTaskModel._TYPECODE + " AS t"
+                        + " JOIN " + OrderProcessModel._TYPECODE + " AS p ON {t." + ProcessTaskModel.PROCESS + "} = {p.pk}"
+                        + " JOIN " + OrderModel._TYPECODE + " AS o ON {p." + OrderProcessModel.ORDER + "} = {o.pk}"
+                        + " JOIN " + BusinessProcessParameterModel._TYPECODE + " AS w ON {w." + BusinessProcessParameterModel.PROCESS + "} = {p.pk}}"
+                        + " WHERE {p." + BusinessProcessModel.STATE + "} = ?state"
+                        + " AND {w.creationtime} < ?waitingSince"
+                        + " AND " + getWaitCondition(waitStartParameters, queryParams)
+                        + afterOrderCodeCondition
+                        + " ORDER BY {o." + OrderModel.CODE + "} ASC",
+                queryParams
+        );
+        selectOrdersQuery.setCount(maxResults);
+
+        LOG.debug("Finding orders waiting on " + waitStartParameters.keySet() + " since " + waitingSince + " after order: " + afterOrderCode);
+
+        return searchCodes(selectOrdersQuery);
+    }
+
+    /**
+     * Matches the task of each wait node with the start parameter of the same wait
+     * A process waiting on capture also has the start parameter of the authorization wait
+     */
+    private String getWaitCondition(Map<String, String> waitStartParameters, Map queryParams) {
+        final StringBuilder condition = new StringBuilder("(");
+        int i = 0;
+        for (Map.Entry<String, String> waitStartParameter : waitStartParameters.entrySet()) {
+            if (i > 0) {
+                condition.append(" OR ");
+            }
+            queryParams.put("nodeId" + i, waitStartParameter.getKey());
+            queryParams.put("parameterName" + i, waitStartParameter.getValue());
+            condition.append("({t." + ProcessTaskModel.ACTION + "} = ?nodeId" + i)
+                    .append(" AND {w." + BusinessProcessParameterModel.NAME + "} = ?parameterName" + i + ")");
+            i++;
+        }
+        return condition.append(")").toString();
+    }
+
+    private List<String> searchCodes(FlexibleSearchQuery query) {
+        query.setResultClassList(Collections.singletonList(String.class));
+        return Collections.unmodifiableList(flexibleSearchService.<String>search(query).getResult());
+    }
+
+    public LruCache<String, List<String>> getOrderProcessCodesCache() {
+        return orderProcessCodesCache;
+    }
+
+    public void setOrderProcessCodesCache(LruCache<String, List<String>> orderProcessCodesCache) {
+        this.orderProcessCodesCache = orderProcessCodesCache;
+    }
+}
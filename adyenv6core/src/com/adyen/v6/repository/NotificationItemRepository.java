@@ -24,6 +24,8 @@ import com.adyen.v6.model.NotificationItemModel;
 import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
 import org.apache.log4j.Logger;
 
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -85,4 +87,60 @@ public class NotificationItemRepository extends AbstractRepository {
 
         return (count > 0);
     }
+
+    /**
+     * Checks if the notification is already received, processed or not
+     *
+     * @param pspReference Notification psp reference
+     * @param eventCode Notification eventCode
+     * @param success Notification success
+     * @return true|false
+     */
+    public boolean notificationReceived(String pspReference, String eventCode, boolean success) {
+        final Map queryParams = new HashMap();
+        queryParams.put("pspReference", pspReference);
+        queryParams.put("eventCode", eventCode);
+        queryParams.put("success", success);
+
+        final FlexibleSearchQuery selectNotificationsQuery = new FlexibleSearchQuery(
+                "SELECT {pk} FROM {" + NotificationItemModel._TYPECODE + "}"
+                        + " WHERE {" + NotificationItemModel.PSPREFERENCE + "} = ?pspReference"
+                        + " AND {" + NotificationItemModel.EVENTCODE + "} = ?eventCode"
+                        + " AND {" + NotificationItemModel.SUCCESS + "} = ?success",
+                queryParams
+        );
+        selectNotificationsQuery.setCount(1);
+
+        return flexibleSearchService.search(selectNotificationsQuery).getCount() > 0;
+    }
+
+    /**
+     * Number of notifications waiting to be processed
+     */
+    public long countNonProcessedNotifications() {
+        final FlexibleSearchQuery countQuery = new FlexibleSearchQuery(
+                "SELECT COUNT({pk}) FROM {" + NotificationItemModel._TYPECODE + "}"
+                        + " WHERE {" + NotificationItemModel.PROCESSEDAT + "} IS NULL"
+        );
+        countQuery.setResultClassList(Collections.singletonList(Long.class));
+
+        final List<Long> result = flexibleSearchService.<Long>search(countQuery).getResult();
+        return result.isEmpty() || result.get(0) == null ? 0 : result.get(0);
+    }
+
+    /**
+     * Creation date of the oldest notification waiting to be processed
+     *
+     * @return Date or null if there is no backlog
+     */
+    public Date getOldestNonProcessedCreatedAt() {
+        final FlexibleSearchQuery oldestQuery = new FlexibleSearchQuery(
+                "SELECT MIN({" + NotificationItemModel.CREATEDAT + "}) FROM {" + NotificationItemModel._TYPECODE + "}"
+                        + " WHERE {" + NotificationItemModel.PROCESSEDAT + "} IS NULL"
+        );
+        oldestQuery.setResultClassList(Collections.singletonList(Date.class));
+
+        final List<Date> result = flexibleSearchService.<Date>search(oldestQuery).getResult();
+        return result.isEmpty() ? null : result.get(0);
+    }
 }
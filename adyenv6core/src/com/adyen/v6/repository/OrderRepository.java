@@ -24,7 +24,9 @@ import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
 import org.apache.log4j.Logger;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -49,4 +51,35 @@ public class OrderRepository extends AbstractRepository {
 
         return (OrderModel) getOneOrNull(selectOrderQuery);
     }
+
+    /**
+     * Find multiple orders by code using IN-list queries
+     *
+     * @param codes order codes
+     * @return map of order code to OrderModel, codes that are not found are absent
+     */
+    public Map<String, OrderModel> getOrderModels(Collection<String> codes) {
+        final Map<String, OrderModel> orderModels = new HashMap<>();
+
+        for (List<String> chunk : partition(codes)) {
+            final Map queryParams = new HashMap();
+            queryParams.put("codes", chunk);
+
+            final FlexibleSearchQuery selectOrdersQuery = new FlexibleSearchQuery(
+                    "SELECT {pk} FROM {" + OrderModel._TYPECODE + "}"
+                            + " WHERE {" + OrderModel.CODE + "} IN (?codes)"
+                            + " AND {versionID} IS NULL",
+                    queryParams
+            );
+
+            LOG.debug("Finding " + chunk.size() + " orders");
+
+            for (Object result : flexibleSearchService.search(selectOrdersQuery).getResult()) {
+                OrderModel orderModel = (OrderModel) result;
+                orderModels.put(orderModel.getCode(), orderModel);
+            }
+        }
+
+        return orderModels;
+    }
 }
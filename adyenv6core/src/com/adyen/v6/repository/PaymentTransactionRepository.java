@@ -20,12 +20,23 @@
  */
 package com.adyen.v6.repository;
 
+import com.adyen.v6.data.PaymentTransactionEntrySummaryData;
+import com.adyen.v6.util.LruCache;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.order.AbstractOrderModel;
+import de.hybris.platform.payment.enums.PaymentTransactionType;
 import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
 import de.hybris.platform.payment.model.PaymentTransactionModel;
+import de.hybris.platform.servicelayer.model.ModelService;
 import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
 import org.apache.log4j.Logger;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static com.adyen.v6.constants.Adyenv6coreConstants.PAYMENT_PROVIDER;
@@ -35,8 +46,57 @@ import static com.adyen.v6.constants.Adyenv6coreConstants.PAYMENT_PROVIDER;
  */
 public class PaymentTransactionRepository extends AbstractRepository {
     private static final Logger LOG = Logger.getLogger(PaymentTransactionRepository.class);
+    private static final int DEFAULT_CACHE_SIZE = 10000;
 
+    private ModelService modelService;
+    /**
+     * PSP reference to PaymentTransaction PK
+     * Only the PK is cached, the model itself is loaded through the platform (cluster aware) cache
+     */
+    private LruCache<String, PK> transactionPkCache = new LruCache<>(DEFAULT_CACHE_SIZE);
+
+    /**
+     * Find the Adyen PaymentTransaction by PSP reference
+     * Served from the PK cache when possible, stale entries (removed or changed transactions) are evicted and re-queried
+     */
     public PaymentTransactionModel getTransactionModel(String pspReference) {
+        PaymentTransactionModel paymentTransactionModel = getCachedTransactionModel(pspReference);
+        if (paymentTransactionModel != null) {
+            return paymentTransactionModel;
+        }
+
+        paymentTransactionModel = findTransactionModel(pspReference);
+        if (paymentTransactionModel != null) {
+            transactionPkCache.put(pspReference, paymentTransactionModel.getPk());
+        }
+
+        return paymentTransactionModel;
+    }
+
+    private PaymentTransactionModel getCachedTransactionModel(String pspReference) {
+        if (pspReference == null || modelService == null) {
+            return null;
+        }
+
+        PK pk = transactionPkCache.get(pspReference);
+        if (pk == null) {
+            return null;
+        }
+
+        try {
+            PaymentTransactionModel paymentTransactionModel = modelService.get(pk);
+            if (pspReference.equals(paymentTransactionModel.getRequestId()) && PAYMENT_PROVIDER.equals(paymentTransactionModel.getPaymentProvider())) {
+                return paymentTransactionModel;
+            }
+        } catch (Exception e) {
+            LOG.debug("Cached transaction not found: " + pk);
+        }
+
+        transactionPkCache.remove(pspReference);
+        return null;
+    }
+
+    private PaymentTransactionModel findTransactionModel(String pspReference) {
         final Map queryParams = new HashMap();
         queryParams.put("paymentProvider", PAYMENT_PROVIDER);
         queryParams.put("requestId", pspReference);
@@ -53,4 +113,121 @@ public class PaymentTransactionRepository extends AbstractRepository {
 
         return (PaymentTransactionModel) getOneOrNull(selectOrderQuery);
     }
+
+    /**
+     * Find multiple Adyen PaymentTransactions by PSP reference using IN-list queries
+     *
+     * @param pspReferences PSP references
+     * @return map of PSP reference to PaymentTransactionModel, references that are not found are absent
+     */
+    public Map<String, PaymentTransactionModel> getTransactionModels(Collection<String> pspReferences) {
+        final Map<String, PaymentTransactionModel> paymentTransactionModels = new HashMap<>();
+
+        for (List<String> chunk : partition(pspReferences)) {
+            final Map queryParams = new HashMap();
+            queryParams.put("paymentProvider", PAYMENT_PROVIDER);
+            queryParams.put("requestIds", chunk);
+            final FlexibleSearchQuery selectTransactionsQuery = new FlexibleSearchQuery(
+                    "SELECT {pk} FROM {" + PaymentTransactionModel._TYPECODE + "}"
+                            + " WHERE {" + PaymentTransactionModel.PAYMENTPROVIDER + "} = ?paymentProvider"
+                            + " AND {" + PaymentTransactionEntryModel.REQUESTID + "} IN (?requestIds)"
+                            + " AND {versionID} IS NULL",
+                    queryParams
+            );
+
+            LOG.debug("Finding " + chunk.size() + " transactions");
+
+            for (Object result : flexibleSearchService.search(selectTransactionsQuery).getResult()) {
+                PaymentTransactionModel paymentTransactionModel = (PaymentTransactionModel) result;
+                paymentTransactionModels.put(paymentTransactionModel.getRequestId(), paymentTransactionModel);
+                transactionPkCache.put(paymentTransactionModel.getRequestId(), paymentTransactionModel.getPk());
+            }
+        }
+
+        return paymentTransactionModels;
+    }
+
+    /**
+     * Entries of all the payment transactions of an order, without loading the models
+     * Transactions without entries are returned as a single summary with empty entry fields
+     */
+    public List<PaymentTransactionEntrySummaryData> getEntrySummaries(AbstractOrderModel orderModel) {
+        final Map queryParams = new HashMap();
+        queryParams.put("order", orderModel);
+
+        return searchEntrySummaries("{t." + PaymentTransactionModel.ORDER + "} = ?order", queryParams);
+    }
+
+    /**
+     * Entries of a payment transaction, without loading the entry models
+     */
+    public List<PaymentTransactionEntrySummaryData> getEntrySummaries(PaymentTransactionModel paymentTransactionModel) {
+        final Map queryParams = new HashMap();
+        queryParams.put("transaction", paymentTransactionModel);
+
+        return searchEntrySummaries("{t.pk} = ?transaction", queryParams);
+    }
+
+    private List<PaymentTransactionEntrySummaryData> searchEntrySummaries(String condition, Map queryParams) {
+        final FlexibleSearchQuery selectSummariesQuery = new FlexibleSearchQuery(
+                "SELECT {t.pk}, {t." + PaymentTransactionModel.PAYMENTPROVIDER + "}"
+                        + ", {t." + PaymentTransactionModel.ADYENAUTHORISEDAMOUNT + "}"
+                        + ", {t." + PaymentTransactionModel.ADYENCAPTUREDAMOUNT + "}"
+                        + ", {t." + PaymentTransactionModel.ADYENREFUNDEDAMOUNT + "}"
+                        + ", {t." + PaymentTransactionModel.ADYENCAPTUREFAILED + "}"
+                        + ", {t." + PaymentTransactionModel.ADYENREFUNDFAILED + "}"
+                        + ", {tt.code}"
+                        + ", {e." + PaymentTransactionEntryModel.TRANSACTIONSTATUS + "}"
+                        + ", {e." + PaymentTransactionEntryModel.TRANSACTIONSTATUSDETAILS + "}"
+                        + ", {e." + PaymentTransactionEntryModel.AMOUNT + "}"
+                        + " FROM {" + PaymentTransactionModel._TYPECODE + " AS t"
+                        + " LEFT JOIN " + PaymentTransactionEntryModel._TYPECODE + " AS e ON {e." + PaymentTransactionEntryModel.PAYMENTTRANSACTION + "} = {t.pk}"
+                        + " LEFT JOIN " + PaymentTransactionType._TYPECODE + " AS tt ON {e." + PaymentTransactionEntryModel.TYPE + "} = {tt.pk}}"
+                        + " WHERE " + condition
+                        + " ORDER BY {t.creationtime} ASC, {e.creationtime} ASC",
+                queryParams
+        );
+        selectSummariesQuery.setResultClassList(Arrays.asList(
+                PK.class, String.class,
+                BigDecimal.class, BigDecimal.class, BigDecimal.class, Boolean.class, Boolean.class,
+                String.class, String.class, String.class, BigDecimal.class
+        ));
+
+        final List<PaymentTransactionEntrySummaryData> summaries = new ArrayList<>();
+        for (Object result : flexibleSearchService.search(selectSummariesQuery).getResult()) {
+            final List row = (List) result;
+
+            final PaymentTransactionEntrySummaryData summary = new PaymentTransactionEntrySummaryData();
+            summary.setTransactionPk((PK) row.get(0));
+            summary.setPaymentProvider((String) row.get(1));
+            summary.setAuthorisedAmount((BigDecimal) row.get(2));
+            summary.setCapturedAmount((BigDecimal) row.get(3));
+            summary.setRefundedAmount((BigDecimal) row.get(4));
+            summary.setCaptureFailed((Boolean) row.get(5));
+            summary.setRefundFailed((Boolean) row.get(6));
+            summary.setType(row.get(7) != null ? PaymentTransactionType.valueOf((String) row.get(7)) : null);
+            summary.setTransactionStatus((String) row.get(8));
+            summary.setTransactionStatusDetails((String) row.get(9));
+            summary.setAmount((BigDecimal) row.get(10));
+            summaries.add(summary);
+        }
+
+        return summaries;
+    }
+
+    public ModelService getModelService() {
+        return modelService;
+    }
+
+    public void setModelService(ModelService modelService) {
+        this.modelService = modelService;
+    }
+
+    public LruCache<String, PK> getTransactionPkCache() {
+        return transactionPkCache;
+    }
+
+    public void setTransactionPkCache(LruCache<String, PK> transactionPkCache) {
+        this.transactionPkCache = transactionPkCache;
+    }
 }
@@ -0,0 +1,62 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.service;
+
+import java.util.Collection;
+import java.util.Map;
+import de.hybris.platform.core.model.order.OrderModel;
+
+/**
+ * Payment side of mass cancellations (fraud sweeps, stock-outs)
+ * Recalculates the orders and sends their cancel requests concurrently
+ */
+public interface AdyenBulkOrderCancelService {
+    enum Outcome {
+        /**
+         * Cancel request accepted by Adyen, the CANCELLATION notification completes it
+         */
+        CANCEL_REQUESTED,
+        /**
+         * Cancel request not accepted
+         */
+        CANCEL_REJECTED,
+        /**
+         * No request sent: partially cancelled order or no Adyen authorisation
+         */
+        SKIPPED,
+        /**
+         * Still running at the timeout, the cancel request may still be sent
+         */
+        PENDING,
+        /**
+         * Recalculation or cancel request failed, or not started before the timeout
+         */
+        FAILED
+    }
+
+    /**
+     * Recalculate the orders and cancel the payments of the completely cancelled ones
+     * Cancellations still running at the timeout are not interrupted, they complete in the background
+     *
+     * @return outcome per order code, in the order of the given orders
+     */
+    Map<String, Outcome> recalculateOrdersAndModifyPayments(Collection<OrderModel> orders);
+}
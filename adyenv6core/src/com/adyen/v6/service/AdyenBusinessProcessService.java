@@ -32,4 +32,22 @@ public interface AdyenBusinessProcessService {
      * Trigger return-process event
      */
     void triggerReturnProcessEvent(OrderModel orderModel, String event);
+
+    /**
+     * Start collecting events on the current thread instead of sending them immediately
+     * Identical events are sent only once, in the order they were first triggered
+     */
+    void beginEventBatch();
+
+    /**
+     * Send the events collected since beginEventBatch
+     * Must be called in a finally block; nested batches are flushed by the outermost call
+     */
+    void flushEventBatch();
+
+    /**
+     * Number of events triggered on the current thread since beginEventBatch, coalesced ones included
+     * 0 when no batch is open
+     */
+    int getBatchedEventCount();
 }
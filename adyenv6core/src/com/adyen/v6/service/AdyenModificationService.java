@@ -0,0 +1,58 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.service;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import com.adyen.v6.model.AdyenModificationRecordModel;
+
+/**
+ * Tracks the modifications sent to Adyen, so that repeated requests are not sent twice
+ */
+public interface AdyenModificationService {
+    String TYPE_CAPTURE = "capture";
+
+    /**
+     * Record a new in-flight attempt of a modification
+     * Attempts are matched on the authorisation, amount and currency
+     * A new attempt is only allowed once the previous one failed, timed out in flight, or was confirmed or refused by notification
+     *
+     * @return the new record, or null if the same modification is in flight or received by Adyen and awaiting its notification
+     */
+    AdyenModificationRecordModel claim(String originalReference, String type, BigDecimal amount, Currency currency);
+
+    /**
+     * Record the response of a claimed attempt
+     * A failed attempt can be claimed again
+     */
+    void complete(AdyenModificationRecordModel record, boolean received, String pspReference);
+
+    /**
+     * Record an attempt that did not get a response from Adyen
+     * The record stays in flight, as the request may have reached Adyen
+     */
+    void recordError(AdyenModificationRecordModel record, Exception exception);
+
+    /**
+     * Record the outcome notified by Adyen for the attempt received with the given modification PSP reference
+     */
+    void recordOutcome(String pspReference, boolean success);
+}
@@ -20,6 +20,8 @@
  */
 package com.adyen.v6.service;
 
+import java.util.Collection;
+import java.util.Map;
 import com.adyen.model.notification.NotificationRequestItem;
 import com.adyen.v6.model.NotificationItemModel;
 import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
@@ -35,6 +37,16 @@ public interface AdyenNotificationService {
      */
     void processNotification(NotificationItemModel notificationItemModel);
 
+    /**
+     * Process NotificationItemModel using the orders and transactions prefetched for its page
+     */
+    void processNotification(NotificationItemModel notificationItemModel, NotificationPrefetchData prefetchData);
+
+    /**
+     * Load the orders and transactions referenced by a page of notifications with IN-list queries
+     */
+    NotificationPrefetchData prefetch(Collection<NotificationItemModel> notificationItemModels);
+
     /**
      * Parse HTTP request body and save NotificationItemModels
      */
@@ -45,6 +57,11 @@ public interface AdyenNotificationService {
      */
     NotificationItemModel createFromNotificationRequest(NotificationRequestItem notificationRequestItem);
 
+    /**
+     * Decode the (optionally compressed) additionalData of a NotificationItemModel
+     */
+    Map<String, String> getAdditionalData(NotificationItemModel notificationItemModel);
+
     /**
      * Save NotificationItemModel from NotificationRequestItem
      */
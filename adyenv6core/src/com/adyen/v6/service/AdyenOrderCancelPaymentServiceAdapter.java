@@ -20,6 +20,7 @@
  */
 package com.adyen.v6.service;
 
+import com.adyen.v6.commands.AdyenCommandContext;
 import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.order.CalculationService;
 import de.hybris.platform.order.exceptions.CalculationException;
@@ -54,42 +55,60 @@ public class AdyenOrderCancelPaymentServiceAdapter implements OrderCancelPayment
                 + order.getTotalPrice() + ":" + order.getStatus().getCode());
 
         try {
-            calculationService.recalculate(order);
+            recalculateOrder(order);
         } catch (CalculationException e) {
             LOG.error(e);
         }
+        cancelPayment(order);
+    }
+
+    /**
+     * Recalculate the order after the cancellation of (some of) its entries
+     */
+    public void recalculateOrder(final OrderModel order) throws CalculationException {
+        calculationService.recalculate(order);
+    }
 
+    /**
+     * Issues a cancel request if the whole order is cancelled
+     *
+     * @param order
+     * @return the cancellation transaction entry, or null if no request is sent
+     */
+    public PaymentTransactionEntryModel cancelPayment(final OrderModel order) {
         //Send the cancel request only when the whole order is cancelled
         if (!CANCELLED.getCode().equals(order.getStatus().getCode())) {
             LOG.info("Partial cancellation - do nothing");
-            return;
+            return null;
         }
 
         if(order.getPaymentTransactions().isEmpty()) {
             LOG.warn("No transaction found!");
-            return;
+            return null;
         }
         final PaymentTransactionModel transaction = order.getPaymentTransactions().get(0);
 
         //Ignore non-Adyen payments
         if (!PAYMENT_PROVIDER.equals(transaction.getPaymentProvider())) {
             LOG.debug("Different Payment provider: " + transaction.getPaymentProvider());
-            return;
+            return null;
         }
 
         if (transaction.getEntries().isEmpty()) {
             LOG.warn("Cannot find auth transaction!");
-            return;
+            return null;
         }
 
         PaymentTransactionEntryModel authorizationTransaction = transaction.getEntries().get(0);
 
-        PaymentTransactionEntryModel cancellationTransaction = paymentService.cancel(authorizationTransaction);
+        PaymentTransactionEntryModel cancellationTransaction = AdyenCommandContext.withOrder(order, () -> paymentService.cancel(authorizationTransaction));
 
         LOG.info("Saving transaction " + cancellationTransaction.getRequestId()
                 + ":" + cancellationTransaction.getTransactionStatus()
                 + ":" + cancellationTransaction.getTransactionStatusDetails());
         modelService.save(cancellationTransaction);
+
+        return cancellationTransaction;
     }
 
     public PaymentService getPaymentService() {
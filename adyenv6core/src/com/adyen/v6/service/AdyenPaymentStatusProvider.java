@@ -0,0 +1,38 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.service;
+
+import java.util.Collection;
+import java.util.List;
+import com.adyen.model.notification.NotificationRequestItem;
+import de.hybris.platform.core.model.order.OrderModel;
+
+/**
+ * Resolves the payment status of orders without waiting for Adyen notifications
+ * Used by the reconciliation cronjob for orders whose notifications are delayed or lost
+ */
+public interface AdyenPaymentStatusProvider {
+    /**
+     * Payment status of a batch of orders, expressed as the notifications Adyen would have sent
+     * Orders with an unknown status are left out of the result
+     */
+    List<NotificationRequestItem> getPaymentStatuses(Collection<OrderModel> orders);
+}
@@ -20,7 +20,9 @@
  */
 package com.adyen.v6.service;
 
+import com.adyen.v6.data.PaymentTransactionEntrySummaryData;
 import com.adyen.v6.model.NotificationItemModel;
+import de.hybris.platform.core.PK;
 import de.hybris.platform.core.model.order.AbstractOrderModel;
 import de.hybris.platform.payment.dto.TransactionStatus;
 import de.hybris.platform.payment.dto.TransactionStatusDetails;
@@ -28,6 +30,12 @@ import de.hybris.platform.payment.enums.PaymentTransactionType;
 import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
 import de.hybris.platform.payment.model.PaymentTransactionModel;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 public interface AdyenTransactionService {
     /**
      * Get TX entry by type and status
@@ -63,16 +71,67 @@ public interface AdyenTransactionService {
         return result;
     }
 
+    /**
+     * Group entry summaries by transaction, keeping the query order
+     */
+    static Map<PK, List<PaymentTransactionEntrySummaryData>> groupByTransaction(List<PaymentTransactionEntrySummaryData> summaries) {
+        Map<PK, List<PaymentTransactionEntrySummaryData>> result = new LinkedHashMap<>();
+        for (PaymentTransactionEntrySummaryData summary : summaries) {
+            result.computeIfAbsent(summary.getTransactionPk(), pk -> new ArrayList<>()).add(summary);
+        }
+
+        return result;
+    }
+
+    /**
+     * Whether the transaction keeps running totals (authorised, captured, refunded)
+     * Transactions created before the totals were introduced need to be checked by scanning their entries
+     */
+    static boolean hasRunningTotals(PaymentTransactionModel paymentTransactionModel) {
+        return paymentTransactionModel.getAdyenAuthorisedAmount() != null;
+    }
+
+    /**
+     * Authorised amount not captured yet
+     */
+    static BigDecimal getPendingCaptureAmount(PaymentTransactionModel paymentTransactionModel) {
+        BigDecimal authorised = paymentTransactionModel.getAdyenAuthorisedAmount() != null ? paymentTransactionModel.getAdyenAuthorisedAmount() : BigDecimal.ZERO;
+        BigDecimal captured = paymentTransactionModel.getAdyenCapturedAmount() != null ? paymentTransactionModel.getAdyenCapturedAmount() : BigDecimal.ZERO;
+
+        return authorised.subtract(captured);
+    }
+
     /**
      * Creates a PaymentTransactionEntryModel with type=CAPTURE from NotificationItemModel
+     * Save it with saveWithRunningTotals
      */
     PaymentTransactionEntryModel createCapturedTransactionFromNotification(PaymentTransactionModel paymentTransaction, NotificationItemModel notificationItemModel);
 
     /**
      * Creates a PaymentTransactionEntryModel with type=REFUND_FOLLOW_ON from NotificationItemModel
+     * Save it with saveWithRunningTotals
      */
     PaymentTransactionEntryModel createRefundedTransactionFromNotification(PaymentTransactionModel paymentTransaction, NotificationItemModel notificationItemModel);
 
+    /**
+     * Saves a CAPTURE/REFUND_FOLLOW_ON entry and applies it to the running totals of its transaction
+     * The transaction is locked while the totals are updated
+     */
+    void saveWithRunningTotals(PaymentTransactionEntryModel transactionEntryModel);
+
+    /**
+     * Applies a capture/refund result that is not confirmed by a notification (e.g. a refused capture request) to the running totals
+     * The transaction is locked while the totals are updated
+     */
+    void updateRunningTotals(PaymentTransactionModel paymentTransaction, PaymentTransactionType type, BigDecimal amount, boolean successful);
+
+    /**
+     * Sets the captured total to the authorised amount, for auto captures which capture the whole authorisation
+     * Can be repeated without counting the capture twice
+     * The transaction is locked while the totals are updated
+     */
+    void markFullyCaptured(PaymentTransactionModel paymentTransaction);
+
     /**
      * Stores the authorization transactions for an order
      */
@@ -0,0 +1,217 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.log4j.Logger;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.Tenant;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.order.exceptions.CalculationException;
+import de.hybris.platform.payment.dto.TransactionStatus;
+import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.Session;
+import de.hybris.platform.servicelayer.session.SessionService;
+
+/**
+ * Runs AdyenOrderCancelPaymentServiceAdapter for many orders on a pool of parallelism threads
+ * At most maxConcurrentRequests cancel requests are sent to Adyen at the same time
+ */
+public class DefaultAdyenBulkOrderCancelService implements AdyenBulkOrderCancelService {
+    private static final Logger LOG = Logger.getLogger(DefaultAdyenBulkOrderCancelService.class);
+
+    private AdyenOrderCancelPaymentServiceAdapter adyenOrderCancelPaymentServiceAdapter;
+    private ModelService modelService;
+    private SessionService sessionService;
+    private int parallelism;
+    private int maxConcurrentRequests;
+    private long timeoutSeconds;
+
+    @Override
+    public Map<String, Outcome> recalculateOrdersAndModifyPayments(Collection<OrderModel> orders) {
+        final Map<String, Outcome> outcomes = new LinkedHashMap<>();
+        if (orders.isEmpty()) {
+            return outcomes;
+        }
+
+        final Tenant tenant = getCurrentTenant();
+        final Semaphore requestPermits = new Semaphore(Math.max(1, maxConcurrentRequests));
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, orders.size())));
+
+        final Map<String, Future<Outcome>> futures = new LinkedHashMap<>();
+        try {
+            //Workers reload the orders by PK in their own session
+            for (OrderModel order : orders) {
+                final PK orderPk = order.getPk();
+                futures.put(order.getCode(), executor.submit(() -> callInTenant(tenant, () -> cancelOrder(orderPk, requestPermits))));
+            }
+        } finally {
+            //Not shutdownNow: interrupting a cancel request would leave its outcome unknown
+            executor.shutdown();
+        }
+
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        for (Map.Entry<String, Future<Outcome>> future : futures.entrySet()) {
+            outcomes.put(future.getKey(), getOutcome(future.getKey(), future.getValue(), deadline));
+        }
+
+        LOG.info("Bulk cancellation of " + orders.size() + " orders: " + countOutcomes(outcomes));
+
+        return outcomes;
+    }
+
+    private Outcome cancelOrder(PK orderPk, Semaphore requestPermits) throws InterruptedException, CalculationException {
+        final OrderModel order = modelService.get(orderPk);
+        adyenOrderCancelPaymentServiceAdapter.recalculateOrder(order);
+
+        final PaymentTransactionEntryModel cancellationTransaction;
+        requestPermits.acquire();
+        try {
+            cancellationTransaction = adyenOrderCancelPaymentServiceAdapter.cancelPayment(order);
+        } finally {
+            requestPermits.release();
+        }
+
+        if (cancellationTransaction == null) {
+            return Outcome.SKIPPED;
+        }
+        if (TransactionStatus.ACCEPTED.name().equals(cancellationTransaction.getTransactionStatus())) {
+            return Outcome.CANCEL_REQUESTED;
+        }
+        return Outcome.CANCEL_REJECTED;
+    }
+
+    private Outcome getOutcome(String orderCode, Future<Outcome> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return getTimeoutOutcome(orderCode, future);
+        } catch (ExecutionException e) {
+            LOG.error("Cancellation of order: " + orderCode + " failed", e.getCause());
+            return Outcome.FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return getTimeoutOutcome(orderCode, future);
+        }
+    }
+
+    /**
+     * Cancellations not started yet are dropped, running ones are left to complete
+     */
+    private Outcome getTimeoutOutcome(String orderCode, Future<Outcome> future) {
+        if (future.cancel(false)) {
+            LOG.error("Cancellation of order: " + orderCode + " not started before the timeout");
+            return Outcome.FAILED;
+        }
+        if (future.isDone()) {
+            //Completed in the meantime
+            return getOutcome(orderCode, future, System.currentTimeMillis());
+        }
+        LOG.warn("Cancellation of order: " + orderCode + " still running at the timeout");
+        return Outcome.PENDING;
+    }
+
+    private Map<Outcome, Integer> countOutcomes(Map<String, Outcome> outcomes) {
+        final Map<Outcome, Integer> counts = new LinkedHashMap<>();
+        for (Outcome outcome : outcomes.values()) {
+            counts.merge(outcome, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    protected Tenant getCurrentTenant() {
+        return Registry.getCurrentTenantNoFallback();
+    }
+
+    /**
+     * Run a worker task with the tenant of the caller and a session of its own
+     */
+    protected <T> T callInTenant(Tenant tenant, Callable<T> call) throws Exception {
+        Registry.setCurrentTenant(tenant);
+        final Session session = sessionService.createNewSession();
+        try {
+            return call.call();
+        } finally {
+            sessionService.closeSession(session);
+            Registry.unsetCurrentTenant();
+        }
+    }
+
+    public AdyenOrderCancelPaymentServiceAdapter getAdyenOrderCancelPaymentServiceAdapter() {
+        return adyenOrderCancelPaymentServiceAdapter;
+    }
+
+    public void setAdyenOrderCancelPaymentServiceAdapter(AdyenOrderCancelPaymentServiceAdapter adyenOrderCancelPaymentServiceAdapter) {
+        this.adyenOrderCancelPaymentServiceAdapter = adyenOrderCancelPaymentServiceAdapter;
+    }
+
+    public ModelService getModelService() {
+        return modelService;
+    }
+
+    public void setModelService(ModelService modelService) {
+        this.modelService = modelService;
+    }
+
+    public SessionService getSessionService() {
+        return sessionService;
+    }
+
+    public void setSessionService(SessionService sessionService) {
+        this.sessionService = sessionService;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public long getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds(long timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+}
@@ -20,45 +20,103 @@
  */
 package com.adyen.v6.service;
 
+import com.adyen.v6.repository.BusinessProcessRepository;
 import de.hybris.platform.core.model.order.OrderModel;
-import de.hybris.platform.orderprocessing.model.OrderProcessModel;
 import de.hybris.platform.processengine.BusinessProcessService;
-import de.hybris.platform.returns.model.ReturnProcessModel;
-import de.hybris.platform.returns.model.ReturnRequestModel;
 import org.apache.log4j.Logger;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public class DefaultAdyenBusinessProcessService implements AdyenBusinessProcessService {
     private static final Logger LOG = Logger.getLogger(DefaultAdyenBusinessProcessService.class);
 
     private BusinessProcessService businessProcessService;
+    private BusinessProcessRepository businessProcessRepository;
+
+    /**
+     * Events collected while a batch is open on the current thread
+     */
+    private final ThreadLocal<EventBatch> eventBatch = new ThreadLocal<>();
+
+    @Override
+    public void beginEventBatch() {
+        EventBatch batch = eventBatch.get();
+        if (batch == null) {
+            batch = new EventBatch();
+            eventBatch.set(batch);
+        }
+        batch.depth++;
+    }
+
+    @Override
+    public void flushEventBatch() {
+        EventBatch batch = eventBatch.get();
+        if (batch == null) {
+            return;
+        }
+
+        batch.depth--;
+        if (batch.depth > 0) {
+            return;
+        }
+        eventBatch.remove();
+
+        LOG.debug("Sending " + batch.events.size() + " coalesced events");
+        for (String eventName : new ArrayList<>(batch.events)) {
+            try {
+                fireEvent(eventName);
+            } catch (RuntimeException e) {
+                LOG.error("Failed to send event: " + eventName, e);
+            }
+        }
+    }
+
+    @Override
+    public int getBatchedEventCount() {
+        EventBatch batch = eventBatch.get();
+        return batch == null ? 0 : batch.triggered;
+    }
+
+    private void triggerEvent(final String eventName) {
+        EventBatch batch = eventBatch.get();
+        if (batch == null) {
+            fireEvent(eventName);
+            return;
+        }
+
+        batch.triggered++;
+        if (! batch.events.add(eventName)) {
+            LOG.debug("Event already pending:" + eventName);
+        }
+    }
+
+    private void fireEvent(final String eventName) {
+        LOG.debug("Sending event:" + eventName);
+        businessProcessService.triggerEvent(eventName);
+    }
 
     @Override
     public void triggerOrderProcessEvent(OrderModel orderModel, String event) {
-        final Collection<OrderProcessModel> orderProcesses = orderModel.getOrderProcess();
-        for (final OrderProcessModel orderProcess : orderProcesses) {
-            LOG.debug("Order process code: " + orderProcess.getCode());
+        final List<String> orderProcessCodes = businessProcessRepository.getActiveOrderProcessCodes(orderModel.getCode());
+        for (final String orderProcessCode : orderProcessCodes) {
+            LOG.debug("Order process code: " + orderProcessCode);
 
-            final String eventName = orderProcess.getCode() + "_" + event;
-            LOG.debug("Sending event:" + eventName);
-            businessProcessService.triggerEvent(eventName);
+            final String eventName = orderProcessCode + "_" + event;
+            triggerEvent(eventName);
         }
     }
 
     @Override
     public void triggerReturnProcessEvent(OrderModel orderModel, String event) {
-        List<ReturnRequestModel> returnRequests = orderModel.getReturnRequests();
-        for (ReturnRequestModel returnRequest : returnRequests) {
-            Collection<ReturnProcessModel> returnProcesses = returnRequest.getReturnProcess();
-            for (ReturnProcessModel returnProcess : returnProcesses) {
-                LOG.debug("Return process code: " + returnProcess.getCode());
-
-                final String eventName = returnProcess.getCode() + "_" + event;
-                LOG.debug("Sending event:" + eventName);
-                businessProcessService.triggerEvent(eventName);
-            }
+        final List<String> returnProcessCodes = businessProcessRepository.getActiveReturnProcessCodes(orderModel.getCode());
+        for (final String returnProcessCode : returnProcessCodes) {
+            LOG.debug("Return process code: " + returnProcessCode);
+
+            final String eventName = returnProcessCode + "_" + event;
+            triggerEvent(eventName);
         }
     }
 
@@ -69,4 +127,18 @@ public class DefaultAdyenBusinessProcessService implements AdyenBusinessProcessS
     public void setBusinessProcessService(BusinessProcessService businessProcessService) {
         this.businessProcessService = businessProcessService;
     }
+
+    public BusinessProcessRepository getBusinessProcessRepository() {
+        return businessProcessRepository;
+    }
+
+    public void setBusinessProcessRepository(BusinessProcessRepository businessProcessRepository) {
+        this.businessProcessRepository = businessProcessRepository;
+    }
+
+    private static final class EventBatch {
+        private final Set<String> events = new LinkedHashSet<>();
+        private int depth;
+        private int triggered;
+    }
 }
@@ -0,0 +1,133 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.service;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import org.apache.log4j.Logger;
+import com.adyen.v6.enums.AdyenModificationStatus;
+import com.adyen.v6.model.AdyenModificationRecordModel;
+import com.adyen.v6.repository.AdyenModificationRecordRepository;
+import de.hybris.platform.servicelayer.exceptions.ModelSavingException;
+import de.hybris.platform.servicelayer.model.ModelService;
+
+public class DefaultAdyenModificationService implements AdyenModificationService {
+    private static final Logger LOG = Logger.getLogger(DefaultAdyenModificationService.class);
+
+    private ModelService modelService;
+    private AdyenModificationRecordRepository adyenModificationRecordRepository;
+    /**
+     * In-flight attempts older than this are considered lost and can be claimed again
+     */
+    private long inFlightTimeoutMillis;
+
+    @Override
+    public AdyenModificationRecordModel claim(String originalReference, String type, BigDecimal amount, Currency currency) {
+        final String currencyCode = currency.getCurrencyCode();
+        final AdyenModificationRecordModel latest = adyenModificationRecordRepository.getLatestRecord(originalReference, type, amount, currencyCode);
+
+        int attempt = 1;
+        if (latest != null) {
+            if (AdyenModificationStatus.RECEIVED.equals(latest.getStatus())) {
+                LOG.info("Skipping " + type + " of " + originalReference + ", received by Adyen with pspReference: " + latest.getPspReference() + " and awaiting notification");
+                return null;
+            }
+            if (AdyenModificationStatus.IN_FLIGHT.equals(latest.getStatus()) && ! isStale(latest)) {
+                LOG.info("Skipping " + type + " of " + originalReference + ", attempt " + latest.getAttempt() + " is in flight");
+                return null;
+            }
+            attempt = latest.getAttempt() + 1;
+        }
+
+        final AdyenModificationRecordModel record = modelService.create(AdyenModificationRecordModel.class);
+        //Amount normalized, so that 10.0 and 10.00 get the same code
+        record.setCode(originalReference + "_" + type + "_" + amount.stripTrailingZeros().toPlainString() + "_" + currencyCode + "_" + attempt);
+        record.setOriginalReference(originalReference);
+        record.setType(type);
+        record.setAmount(amount);
+        record.setCurrency(currencyCode);
+        record.setAttempt(attempt);
+        record.setStatus(AdyenModificationStatus.IN_FLIGHT);
+
+        try {
+            modelService.save(record);
+        } catch (ModelSavingException e) {
+            //Unique code: another node claimed the same attempt
+            LOG.info("Skipping " + type + " of " + originalReference + ", attempt " + attempt + " claimed concurrently");
+            return null;
+        }
+
+        return record;
+    }
+
+    @Override
+    public void complete(AdyenModificationRecordModel record, boolean received, String pspReference) {
+        record.setStatus(received ? AdyenModificationStatus.RECEIVED : AdyenModificationStatus.FAILED);
+        record.setPspReference(pspReference);
+        modelService.save(record);
+    }
+
+    @Override
+    public void recordError(AdyenModificationRecordModel record, Exception exception) {
+        record.setFailureReason(String.valueOf(exception));
+        modelService.save(record);
+    }
+
+    @Override
+    public void recordOutcome(String pspReference, boolean success) {
+        final AdyenModificationRecordModel record = adyenModificationRecordRepository.getRecordByPspReference(pspReference);
+        if (record == null) {
+            LOG.debug("No modification record with pspReference: " + pspReference);
+            return;
+        }
+
+        record.setStatus(success ? AdyenModificationStatus.CONFIRMED : AdyenModificationStatus.REFUSED);
+        modelService.save(record);
+    }
+
+    private boolean isStale(AdyenModificationRecordModel record) {
+        return record.getModifiedtime() != null && System.currentTimeMillis() - record.getModifiedtime().getTime() > inFlightTimeoutMillis;
+    }
+
+    public ModelService getModelService() {
+        return modelService;
+    }
+
+    public void setModelService(ModelService modelService) {
+        this.modelService = modelService;
+    }
+
+    public AdyenModificationRecordRepository getAdyenModificationRecordRepository() {
+        return adyenModificationRecordRepository;
+    }
+
+    public void setAdyenModificationRecordRepository(AdyenModificationRecordRepository adyenModificationRecordRepository) {
+        this.adyenModificationRecordRepository = adyenModificationRecordRepository;
+    }
+
+    public long getInFlightTimeoutMillis() {
+        return inFlightTimeoutMillis;
+    }
+
+    public void setInFlightTimeoutMillis(long inFlightTimeoutMillis) {
+        this.inFlightTimeoutMillis = inFlightTimeoutMillis;
+    }
+}
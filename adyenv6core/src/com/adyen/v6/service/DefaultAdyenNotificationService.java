@@ -20,17 +20,22 @@
  */
 package com.adyen.v6.service;
 
+import java.util.Collection;
 import java.util.Date;
-import org.apache.log4j.Logger;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import com.adyen.model.notification.NotificationRequest;
 import com.adyen.model.notification.NotificationRequestItem;
 import com.adyen.notification.NotificationHandler;
 import com.adyen.v6.constants.Adyenv6coreConstants;
+import com.adyen.v6.metrics.AdyenNotificationMetrics;
 import com.adyen.v6.model.NotificationItemModel;
 import com.adyen.v6.repository.CartRepository;
 import com.adyen.v6.repository.OrderRepository;
 import com.adyen.v6.repository.PaymentTransactionRepository;
-import com.google.gson.Gson;
+import com.adyen.v6.util.AdyenLogger;
+import com.adyen.v6.util.NotificationAdditionalDataCodec;
 import de.hybris.platform.commerceservices.enums.SalesApplication;
 import de.hybris.platform.commerceservices.order.CommercePlaceOrderStrategy;
 import de.hybris.platform.commerceservices.service.data.CommerceCheckoutParameter;
@@ -50,17 +55,19 @@ public class DefaultAdyenNotificationService implements AdyenNotificationService
     private ModelService modelService;
     private AdyenTransactionService adyenTransactionService;
     private AdyenBusinessProcessService adyenBusinessProcessService;
+    private AdyenModificationService adyenModificationService;
     private OrderRepository orderRepository;
     private PaymentTransactionRepository paymentTransactionRepository;
     private CartRepository cartRepository;
     private CommercePlaceOrderStrategy commercePlaceOrderStrategy;
     private SessionService sessionService;
+    private NotificationAdditionalDataCodec notificationAdditionalDataCodec;
+    private AdyenNotificationMetrics adyenNotificationMetrics = new AdyenNotificationMetrics();
 
-    private static final Logger LOG = Logger.getLogger(DefaultAdyenNotificationService.class);
+    private static final AdyenLogger LOG = AdyenLogger.getLogger(DefaultAdyenNotificationService.class);
 
     @Override
     public NotificationItemModel createFromNotificationRequest(NotificationRequestItem notificationRequestItem) {
-        Gson gson = new Gson();
         NotificationItemModel notificationItemModel = modelService.create(NotificationItemModel.class);
 
         if (notificationRequestItem.getAmount() != null) {
@@ -78,14 +85,19 @@ public class DefaultAdyenNotificationService implements AdyenNotificationService
         notificationItemModel.setSuccess(notificationRequestItem.isSuccess());
         notificationItemModel.setPaymentMethod(notificationRequestItem.getPaymentMethod());
 
-        String additionalDataJson = gson.toJson(notificationRequestItem.getAdditionalData());
-        notificationItemModel.setAdditionalData(additionalDataJson);
+        String additionalData = getNotificationAdditionalDataCodec().encode(notificationRequestItem.getAdditionalData());
+        notificationItemModel.setAdditionalData(additionalData);
 
         notificationItemModel.setCreatedAt(new Date());
 
         return notificationItemModel;
     }
 
+    @Override
+    public Map<String, String> getAdditionalData(NotificationItemModel notificationItemModel) {
+        return getNotificationAdditionalDataCodec().decode(notificationItemModel.getAdditionalData());
+    }
+
     @Override
     public void saveFromNotificationRequest(NotificationRequestItem notificationRequestItem) {
         NotificationItemModel notificationItemModel = createFromNotificationRequest(notificationRequestItem);
@@ -97,7 +109,7 @@ public class DefaultAdyenNotificationService implements AdyenNotificationService
     public void saveNotifications(final String requestString) {
         NotificationHandler notificationHandler = new NotificationHandler();
         NotificationRequest notificationRequest = notificationHandler.handleNotificationJson(requestString);
-        LOG.debug(notificationRequest);
+        LOG.debug("Notification request:", notificationRequest);
 
         //Save the notification items to the database
         for (NotificationRequestItem notificationRequestItem : notificationRequest.getNotificationItems()) {
@@ -107,6 +119,9 @@ public class DefaultAdyenNotificationService implements AdyenNotificationService
 
     @Override
     public PaymentTransactionEntryModel processCapturedEvent(NotificationItemModel notificationItemModel, PaymentTransactionModel paymentTransactionModel) {
+        //Allows the same capture to be claimed again
+        adyenModificationService.recordOutcome(notificationItemModel.getPspReference(), Boolean.TRUE.equals(notificationItemModel.getSuccess()));
+
         if (paymentTransactionModel == null) {
             LOG.debug("Parent transaction is null");
             return null;
@@ -116,7 +131,7 @@ public class DefaultAdyenNotificationService implements AdyenNotificationService
         PaymentTransactionEntryModel paymentTransactionEntryModel = adyenTransactionService.createCapturedTransactionFromNotification(paymentTransactionModel, notificationItemModel);
 
         LOG.debug("Saving Captured transaction entry");
-        modelService.save(paymentTransactionEntryModel);
+        adyenTransactionService.saveWithRunningTotals(paymentTransactionEntryModel);
 
         //Trigger Captured event
         OrderModel orderModel = (OrderModel) paymentTransactionModel.getOrder();
@@ -127,12 +142,17 @@ public class DefaultAdyenNotificationService implements AdyenNotificationService
 
     @Override
     public PaymentTransactionModel processAuthorisationEvent(NotificationItemModel notificationItemModel) {
+        return processAuthorisationEvent(notificationItemModel, NotificationPrefetchData.empty());
+    }
+
+    private PaymentTransactionModel processAuthorisationEvent(NotificationItemModel notificationItemModel, NotificationPrefetchData prefetchData) {
         String orderCode = notificationItemModel.getMerchantReference();
-        OrderModel orderModel = orderRepository.getOrderModel(orderCode);
+        OrderModel orderModel = getOrderModel(orderCode, prefetchData);
 
         //Create order if it is successfuly authorized
         if (orderModel == null && notificationItemModel.getSuccess()) {
             orderModel = createOrder(orderCode);
+            prefetchData.putOrder(orderModel);
         }
 
         if (orderModel == null) {
@@ -145,6 +165,7 @@ public class DefaultAdyenNotificationService implements AdyenNotificationService
         } else {
             paymentTransactionModel = adyenTransactionService.storeFailedAuthorizationFromNotification(notificationItemModel, orderModel);
         }
+        prefetchData.putPaymentTransaction(paymentTransactionModel);
 
         adyenBusinessProcessService.triggerOrderProcessEvent(orderModel, Adyenv6coreConstants.PROCESS_EVENT_ADYEN_AUTHORIZED);
 
@@ -181,7 +202,7 @@ public class DefaultAdyenNotificationService implements AdyenNotificationService
                 //Used in DefaultCommonI18NService
                 sessionService.setAttribute(I18NConstants.LANGUAGE_SESSION_ATTR_KEY, cartModel.getSite().getDefaultLanguage());
                 try {
-                    LOG.debug("Placing order for: " + cartModel.getCode());
+                    LOG.debug(() -> "Placing order for: " + cartModel.getCode());
                     CommerceOrderResult commerceOrderResult = commercePlaceOrderStrategy.placeOrder(parameter);
                     return commerceOrderResult.getOrder();
                 } catch (InvalidCartException e) {
@@ -216,7 +237,11 @@ public class DefaultAdyenNotificationService implements AdyenNotificationService
 
     @Override
     public PaymentTransactionEntryModel processRefundEvent(NotificationItemModel notificationItem) {
-        PaymentTransactionModel paymentTransaction = paymentTransactionRepository.getTransactionModel(notificationItem.getOriginalReference());
+        return processRefundEvent(notificationItem, NotificationPrefetchData.empty());
+    }
+
+    private PaymentTransactionEntryModel processRefundEvent(NotificationItemModel notificationItem, NotificationPrefetchData prefetchData) {
+        PaymentTransactionModel paymentTransaction = getTransactionModel(notificationItem.getOriginalReference(), prefetchData);
         if (paymentTransaction == null) {
             LOG.debug("Parent transaction is null");
             return null;
@@ -226,7 +251,7 @@ public class DefaultAdyenNotificationService implements AdyenNotificationService
         PaymentTransactionEntryModel paymentTransactionEntryModel = adyenTransactionService.createRefundedTransactionFromNotification(paymentTransaction, notificationItem);
 
         LOG.debug("Saving Refunded transaction entry");
-        modelService.save(paymentTransactionEntryModel);
+        adyenTransactionService.saveWithRunningTotals(paymentTransactionEntryModel);
 
         //Trigger Refunded event
         OrderModel orderModel = (OrderModel) paymentTransaction.getOrder();
@@ -237,30 +262,85 @@ public class DefaultAdyenNotificationService implements AdyenNotificationService
 
     @Override
     public void processNotification(NotificationItemModel notificationItemModel) {
+        processNotification(notificationItemModel, NotificationPrefetchData.empty());
+    }
+
+    @Override
+    public NotificationPrefetchData prefetch(Collection<NotificationItemModel> notificationItemModels) {
+        Set<String> orderCodes = new HashSet<>();
+        Set<String> pspReferences = new HashSet<>();
+
+        for (NotificationItemModel notificationItemModel : notificationItemModels) {
+            if (NotificationRequestItem.EVENT_CODE_AUTHORISATION.equals(notificationItemModel.getEventCode())) {
+                orderCodes.add(notificationItemModel.getMerchantReference());
+                pspReferences.add(notificationItemModel.getPspReference());
+            } else {
+                pspReferences.add(notificationItemModel.getOriginalReference());
+            }
+        }
+
+        return new NotificationPrefetchData(orderRepository.getOrderModels(orderCodes), paymentTransactionRepository.getTransactionModels(pspReferences));
+    }
+
+    @Override
+    public void processNotification(NotificationItemModel notificationItemModel, NotificationPrefetchData prefetchData) {
+        long start = System.currentTimeMillis();
+        try {
+            handleNotification(notificationItemModel, prefetchData);
+        } catch (RuntimeException e) {
+            adyenNotificationMetrics.recordFailure(notificationItemModel.getEventCode());
+            throw e;
+        }
+        adyenNotificationMetrics.recordProcessed(notificationItemModel.getEventCode(), System.currentTimeMillis() - start);
+    }
+
+    private void handleNotification(NotificationItemModel notificationItemModel, NotificationPrefetchData prefetchData) {
         PaymentTransactionModel paymentTransaction;
         switch (notificationItemModel.getEventCode()) {
             case NotificationRequestItem.EVENT_CODE_CAPTURE:
-                paymentTransaction = paymentTransactionRepository.getTransactionModel(notificationItemModel.getOriginalReference());
+                paymentTransaction = getTransactionModel(notificationItemModel.getOriginalReference(), prefetchData);
                 processCapturedEvent(notificationItemModel, paymentTransaction);
                 break;
             case NotificationRequestItem.EVENT_CODE_AUTHORISATION:
-                paymentTransaction = paymentTransactionRepository.getTransactionModel(notificationItemModel.getPspReference());
+                paymentTransaction = getTransactionModel(notificationItemModel.getPspReference(), prefetchData);
                 if (paymentTransaction == null) {
-                    processAuthorisationEvent(notificationItemModel);
+                    processAuthorisationEvent(notificationItemModel, prefetchData);
                 } else {
                     LOG.warn("Authorisation already processed " + paymentTransaction.getRequestId());
                 }
                 break;
             case NotificationRequestItem.EVENT_CODE_CANCEL_OR_REFUND:
-                paymentTransaction = paymentTransactionRepository.getTransactionModel(notificationItemModel.getOriginalReference());
+                paymentTransaction = getTransactionModel(notificationItemModel.getOriginalReference(), prefetchData);
                 processCancelEvent(notificationItemModel, paymentTransaction);
                 break;
             case NotificationRequestItem.EVENT_CODE_REFUND:
-                processRefundEvent(notificationItemModel);
+                processRefundEvent(notificationItemModel, prefetchData);
                 break;
         }
     }
 
+    /**
+     * Serve the order from the prefetched page, fall back to the repository
+     */
+    private OrderModel getOrderModel(String orderCode, NotificationPrefetchData prefetchData) {
+        OrderModel orderModel = prefetchData.getOrder(orderCode);
+        if (orderModel == null) {
+            orderModel = orderRepository.getOrderModel(orderCode);
+        }
+        return orderModel;
+    }
+
+    /**
+     * Serve the transaction from the prefetched page, fall back to the repository
+     */
+    private PaymentTransactionModel getTransactionModel(String pspReference, NotificationPrefetchData prefetchData) {
+        PaymentTransactionModel paymentTransactionModel = prefetchData.getPaymentTransaction(pspReference);
+        if (paymentTransactionModel == null) {
+            paymentTransactionModel = paymentTransactionRepository.getTransactionModel(pspReference);
+        }
+        return paymentTransactionModel;
+    }
+
     public ModelService getModelService() {
         return modelService;
     }
@@ -277,6 +357,14 @@ public class DefaultAdyenNotificationService implements AdyenNotificationService
         this.adyenTransactionService = adyenTransactionService;
     }
 
+    public AdyenModificationService getAdyenModificationService() {
+        return adyenModificationService;
+    }
+
+    public void setAdyenModificationService(AdyenModificationService adyenModificationService) {
+        this.adyenModificationService = adyenModificationService;
+    }
+
     public AdyenBusinessProcessService getAdyenBusinessProcessService() {
         return adyenBusinessProcessService;
     }
@@ -324,4 +412,23 @@ public class DefaultAdyenNotificationService implements AdyenNotificationService
     public void setSessionService(SessionService sessionService) {
         this.sessionService = sessionService;
     }
+
+    public NotificationAdditionalDataCodec getNotificationAdditionalDataCodec() {
+        if (notificationAdditionalDataCodec == null) {
+            notificationAdditionalDataCodec = new NotificationAdditionalDataCodec();
+        }
+        return notificationAdditionalDataCodec;
+    }
+
+    public void setNotificationAdditionalDataCodec(NotificationAdditionalDataCodec notificationAdditionalDataCodec) {
+        this.notificationAdditionalDataCodec = notificationAdditionalDataCodec;
+    }
+
+    public AdyenNotificationMetrics getAdyenNotificationMetrics() {
+        return adyenNotificationMetrics;
+    }
+
+    public void setAdyenNotificationMetrics(AdyenNotificationMetrics adyenNotificationMetrics) {
+        this.adyenNotificationMetrics = adyenNotificationMetrics;
+    }
 }
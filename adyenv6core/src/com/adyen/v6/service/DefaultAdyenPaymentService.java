@@ -23,16 +23,15 @@ package com.adyen.v6.service;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.security.SignatureException;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Currency;
-import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletRequest;
-import org.apache.log4j.Logger;
 import org.springframework.util.Assert;
 import com.adyen.Client;
 import com.adyen.Config;
@@ -56,6 +55,9 @@ import com.adyen.service.Modification;
 import com.adyen.service.Payment;
 import com.adyen.service.exception.ApiException;
 import com.adyen.v6.factory.AdyenRequestFactory;
+import com.adyen.v6.metrics.AdyenPaymentMetrics;
+import com.adyen.v6.util.AdyenDateUtil;
+import com.adyen.v6.util.AdyenLogger;
 import de.hybris.platform.commercefacades.order.data.CartData;
 import de.hybris.platform.core.model.user.CustomerModel;
 import de.hybris.platform.store.BaseStoreModel;
@@ -67,8 +69,23 @@ public class DefaultAdyenPaymentService implements AdyenPaymentService {
     private AdyenRequestFactory adyenRequestFactory;
     private Config config;
     private Client client;
+    private AdyenPaymentMetrics adyenPaymentMetrics;
 
-    private static final Logger LOG = Logger.getLogger(DefaultAdyenPaymentService.class);
+    private static final AdyenLogger LOG = AdyenLogger.getLogger(DefaultAdyenPaymentService.class);
+
+    private static final String OPERATION_AUTHORISE = "authorise";
+    private static final String OPERATION_AUTHORISE_3D = "authorise3D";
+    private static final String OPERATION_CAPTURE = "capture";
+    private static final String OPERATION_CANCEL_OR_REFUND = "cancelOrRefund";
+    private static final String OPERATION_REFUND = "refund";
+    private static final String OPERATION_GET_PAYMENT_METHODS = "getPaymentMethods";
+    private static final String OPERATION_GET_STORED_CARDS = "getStoredCards";
+    private static final String OPERATION_DISABLE_STORED_CARD = "disableStoredCard";
+
+    private static final String DEVICE_FINGERPRINT_URL = "https://live.adyen.com/hpp/js/df.js?v=";
+
+    // Shared by all instances, the factory creates a service per request
+    private static volatile DeviceFingerprintUrl deviceFingerprintUrl;
 
     private DefaultAdyenPaymentService() {
     }
@@ -114,9 +131,9 @@ public class DefaultAdyenPaymentService implements AdyenPaymentService {
                                                                                             baseStore.getAdyenRecurringContractMode());
 
 
-        LOG.debug(paymentRequest);
-        PaymentResult paymentResult = payment.authorise(paymentRequest);
-        LOG.debug(paymentResult);
+        LOG.debug("Authorise request:", paymentRequest);
+        PaymentResult paymentResult = timed(OPERATION_AUTHORISE, () -> payment.authorise(paymentRequest), response -> String.valueOf(response.getResultCode()));
+        LOG.debug("Authorise result:", paymentResult);
 
         return paymentResult;
     }
@@ -127,9 +144,9 @@ public class DefaultAdyenPaymentService implements AdyenPaymentService {
 
         PaymentRequest3d paymentRequest3d = getAdyenRequestFactory().create3DAuthorizationRequest(client.getConfig().getMerchantAccount(), request, md, paRes);
 
-        LOG.debug(paymentRequest3d);
-        PaymentResult paymentResult = payment.authorise3D(paymentRequest3d);
-        LOG.debug(paymentResult);
+        LOG.debug("Authorise3D request:", paymentRequest3d);
+        PaymentResult paymentResult = timed(OPERATION_AUTHORISE_3D, () -> payment.authorise3D(paymentRequest3d), response -> String.valueOf(response.getResultCode()));
+        LOG.debug("Authorise3D result:", paymentResult);
 
         return paymentResult;
     }
@@ -140,9 +157,9 @@ public class DefaultAdyenPaymentService implements AdyenPaymentService {
 
         CaptureRequest captureRequest = getAdyenRequestFactory().createCaptureRequest(client.getConfig().getMerchantAccount(), amount, currency, authReference, merchantReference);
 
-        LOG.debug(captureRequest);
-        ModificationResult modificationResult = modification.capture(captureRequest);
-        LOG.debug(modificationResult);
+        LOG.debug("Capture request:", captureRequest);
+        ModificationResult modificationResult = timed(OPERATION_CAPTURE, () -> modification.capture(captureRequest), response -> String.valueOf(response.getResponse()));
+        LOG.debug("Capture result:", modificationResult);
 
         return modificationResult;
     }
@@ -153,9 +170,9 @@ public class DefaultAdyenPaymentService implements AdyenPaymentService {
 
         CancelRequest cancelRequest = getAdyenRequestFactory().createCancelRequest(client.getConfig().getMerchantAccount(), authReference, merchantReference);
 
-        LOG.debug(cancelRequest);
-        ModificationResult modificationResult = modification.cancelOrRefund(cancelRequest);
-        LOG.debug(modificationResult);
+        LOG.debug("CancelOrRefund request:", cancelRequest);
+        ModificationResult modificationResult = timed(OPERATION_CANCEL_OR_REFUND, () -> modification.cancelOrRefund(cancelRequest), response -> String.valueOf(response.getResponse()));
+        LOG.debug("CancelOrRefund result:", modificationResult);
 
         return modificationResult;
     }
@@ -166,9 +183,9 @@ public class DefaultAdyenPaymentService implements AdyenPaymentService {
 
         RefundRequest refundRequest = getAdyenRequestFactory().createRefundRequest(client.getConfig().getMerchantAccount(), amount, currency, authReference, merchantReference);
 
-        LOG.debug(refundRequest);
-        ModificationResult modificationResult = modification.refund(refundRequest);
-        LOG.debug(modificationResult);
+        LOG.debug("Refund request:", refundRequest);
+        ModificationResult modificationResult = timed(OPERATION_REFUND, () -> modification.refund(refundRequest), response -> String.valueOf(response.getResponse()));
+        LOG.debug("Refund result:", modificationResult);
 
         return modificationResult;
     }
@@ -183,9 +200,17 @@ public class DefaultAdyenPaymentService implements AdyenPaymentService {
 
         DirectoryLookupRequest directoryLookupRequest = getAdyenRequestFactory().createListPaymentMethodsRequest(amount, currency, countryCode);
 
-        LOG.debug(directoryLookupRequest);
-        List<PaymentMethod> paymentMethods = hostedPaymentPages.getPaymentMethods(directoryLookupRequest);
-        LOG.debug(paymentMethods);
+        LOG.debug("Directory lookup request:", directoryLookupRequest);
+        final long start = System.currentTimeMillis();
+        final List<PaymentMethod> paymentMethods;
+        try {
+            paymentMethods = hostedPaymentPages.getPaymentMethods(directoryLookupRequest);
+        } catch (HTTPClientException | SignatureException | IOException | RuntimeException e) {
+            recordError(OPERATION_GET_PAYMENT_METHODS, start, e);
+            throw e;
+        }
+        recordCall(OPERATION_GET_PAYMENT_METHODS, start, AdyenPaymentMetrics.RESULT_SUCCESS);
+        LOG.debug("Directory lookup result:", paymentMethods);
 
         return paymentMethods;
     }
@@ -200,9 +225,17 @@ public class DefaultAdyenPaymentService implements AdyenPaymentService {
 
         RecurringDetailsRequest request = getAdyenRequestFactory().createListRecurringDetailsRequest(client.getConfig().getMerchantAccount(), customerId);
 
-        LOG.debug(request);
-        RecurringDetailsResult result = recurring.listRecurringDetails(request);
-        LOG.debug(result);
+        LOG.debug("ListRecurringDetails request:", request);
+        final long start = System.currentTimeMillis();
+        final RecurringDetailsResult result;
+        try {
+            result = recurring.listRecurringDetails(request);
+        } catch (IOException | ApiException | RuntimeException e) {
+            recordError(OPERATION_GET_STORED_CARDS, start, e);
+            throw e;
+        }
+        recordCall(OPERATION_GET_STORED_CARDS, start, AdyenPaymentMetrics.RESULT_SUCCESS);
+        LOG.debug("ListRecurringDetails result:", result);
 
         //Return only cards
         List<RecurringDetail> storedCards = result.getRecurringDetails()
@@ -219,9 +252,17 @@ public class DefaultAdyenPaymentService implements AdyenPaymentService {
 
         DisableRequest request = getAdyenRequestFactory().createDisableRequest(client.getConfig().getMerchantAccount(), customerId, recurringReference);
 
-        LOG.debug(request);
-        DisableResult result = recurring.disable(request);
-        LOG.debug(result);
+        LOG.debug("Disable request:", request);
+        final long start = System.currentTimeMillis();
+        final DisableResult result;
+        try {
+            result = recurring.disable(request);
+        } catch (IOException | ApiException | RuntimeException e) {
+            recordError(OPERATION_DISABLE_STORED_CARD, start, e);
+            throw e;
+        }
+        recordCall(OPERATION_DISABLE_STORED_CARD, start, String.valueOf(result.getResponse()));
+        LOG.debug("Disable result:", result);
 
         return (result.getDetails() != null && ! result.getDetails().isEmpty());
     }
@@ -233,16 +274,46 @@ public class DefaultAdyenPaymentService implements AdyenPaymentService {
 
     @Override
     public String getDeviceFingerprintUrl() {
-        DateFormat df = new SimpleDateFormat("yyyyMMdd");
-        Date today = Calendar.getInstance().getTime();
-        return "https://live.adyen.com/hpp/js/df.js?v=" + df.format(today);
+        DeviceFingerprintUrl current = deviceFingerprintUrl;
+        if (current == null || System.currentTimeMillis() >= current.expiresAt) {
+            current = new DeviceFingerprintUrl(ZoneId.systemDefault());
+            deviceFingerprintUrl = current;
+        }
+
+        return current.url;
     }
 
-    public AdyenRequestFactory getAdyenRequestFactory() {
-        if (adyenRequestFactory == null) {
-            adyenRequestFactory = new AdyenRequestFactory();
+    /**
+     * Calls the Adyen API, recording the duration and the result (or error) of the operation
+     * Exceptions are rethrown unchanged
+     * Methods declaring narrower exceptions than Exception record their calls with recordCall/recordError directly
+     */
+    private <T> T timed(final String operation, final Callable<T> call, final Function<T, String> result) throws Exception {
+        final long start = System.currentTimeMillis();
+        final T response;
+        try {
+            response = call.call();
+        } catch (Exception e) {
+            recordError(operation, start, e);
+            throw e;
         }
+        recordCall(operation, start, result.apply(response));
+        return response;
+    }
+
+    private void recordCall(final String operation, final long start, final String result) {
+        getAdyenPaymentMetrics().recordCall(operation, client.getConfig().getMerchantAccount(), result, System.currentTimeMillis() - start);
+    }
 
+    private void recordError(final String operation, final long start, final Exception exception) {
+        getAdyenPaymentMetrics().recordError(operation, client.getConfig().getMerchantAccount(), exception, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Set by AdyenPaymentServiceFactory, a factory without its payment method registry cannot build requests
+     */
+    public AdyenRequestFactory getAdyenRequestFactory() {
+        Assert.notNull(adyenRequestFactory, "adyenRequestFactory is not set");
         return adyenRequestFactory;
     }
 
@@ -250,6 +321,18 @@ public class DefaultAdyenPaymentService implements AdyenPaymentService {
         this.adyenRequestFactory = adyenRequestFactory;
     }
 
+    public AdyenPaymentMetrics getAdyenPaymentMetrics() {
+        if (adyenPaymentMetrics == null) {
+            adyenPaymentMetrics = new AdyenPaymentMetrics();
+        }
+
+        return adyenPaymentMetrics;
+    }
+
+    public void setAdyenPaymentMetrics(AdyenPaymentMetrics adyenPaymentMetrics) {
+        this.adyenPaymentMetrics = adyenPaymentMetrics;
+    }
+
     public BaseStoreModel getBaseStore() {
         return baseStore;
     }
@@ -273,4 +356,18 @@ public class DefaultAdyenPaymentService implements AdyenPaymentService {
     public Config getConfig() {
         return config;
     }
+
+    /**
+     * Device fingerprint URL of a day, valid until the next midnight
+     */
+    private static final class DeviceFingerprintUrl {
+        private final String url;
+        private final long expiresAt;
+
+        private DeviceFingerprintUrl(final ZoneId zone) {
+            LocalDate today = LocalDate.now(zone);
+            url = DEVICE_FINGERPRINT_URL + AdyenDateUtil.getDeviceFingerprintVersion(today);
+            expiresAt = today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+    }
 }
@@ -0,0 +1,44 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.apache.log4j.Logger;
+import com.adyen.model.notification.NotificationRequestItem;
+import de.hybris.platform.core.model.order.OrderModel;
+
+/**
+ * Extension point default: a status provider without a status source, reports every order as unknown
+ * Replace the adyenPaymentStatusProvider alias to plug in a status API (or a local stand-in)
+ * before activating the adyenPaymentReconciliationCronJob trigger
+ */
+public class DefaultAdyenPaymentStatusProvider implements AdyenPaymentStatusProvider {
+    private static final Logger LOG = Logger.getLogger(DefaultAdyenPaymentStatusProvider.class);
+
+    @Override
+    public List<NotificationRequestItem> getPaymentStatuses(Collection<OrderModel> orders) {
+        LOG.warn("No payment status source configured, " + orders.size() + " orders left unresolved."
+                + " Override the adyenPaymentStatusProvider alias to reconcile payments");
+        return Collections.emptyList();
+    }
+}
@@ -23,13 +23,18 @@ package com.adyen.v6.service;
 import com.adyen.v6.model.NotificationItemModel;
 import de.hybris.platform.core.model.c2l.CurrencyModel;
 import de.hybris.platform.core.model.order.AbstractOrderModel;
+import de.hybris.platform.jalo.Item;
 import de.hybris.platform.payment.dto.TransactionStatus;
 import de.hybris.platform.payment.dto.TransactionStatusDetails;
 import de.hybris.platform.payment.enums.PaymentTransactionType;
 import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
 import de.hybris.platform.payment.model.PaymentTransactionModel;
+import de.hybris.platform.servicelayer.exceptions.ModelSavingException;
 import de.hybris.platform.servicelayer.i18n.CommonI18NService;
+import de.hybris.platform.servicelayer.keygenerator.KeyGenerator;
 import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.tx.Transaction;
+import de.hybris.platform.tx.TransactionBody;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 
@@ -40,6 +45,7 @@ import static com.adyen.v6.constants.Adyenv6coreConstants.PAYMENT_PROVIDER;
 public class DefaultAdyenTransactionService implements AdyenTransactionService {
     private ModelService modelService;
     private CommonI18NService commonI18NService;
+    private KeyGenerator paymentTransactionEntryCodeGenerator;
 
     private static final Logger LOG = Logger.getLogger(DefaultAdyenTransactionService.class);
 
@@ -67,12 +73,107 @@ public class DefaultAdyenTransactionService implements AdyenTransactionService {
         return transactionEntryModel;
     }
 
+    @Override
+    public void saveWithRunningTotals(final PaymentTransactionEntryModel transactionEntryModel) {
+        final PaymentTransactionModel paymentTransaction = transactionEntryModel.getPaymentTransaction();
+        final boolean isSuccessful = TransactionStatus.ACCEPTED.name().equals(transactionEntryModel.getTransactionStatus())
+                && TransactionStatusDetails.SUCCESFULL.name().equals(transactionEntryModel.getTransactionStatusDetails());
+
+        executeLocked(paymentTransaction, () -> {
+            applyToRunningTotals(paymentTransaction, transactionEntryModel.getType(), transactionEntryModel.getAmount(), isSuccessful);
+            modelService.saveAll(transactionEntryModel, paymentTransaction);
+        });
+    }
+
+    @Override
+    public void updateRunningTotals(final PaymentTransactionModel paymentTransaction, final PaymentTransactionType type, final BigDecimal amount, final boolean successful) {
+        executeLocked(paymentTransaction, () -> {
+            applyToRunningTotals(paymentTransaction, type, amount, successful);
+            modelService.save(paymentTransaction);
+        });
+    }
+
+    @Override
+    public void markFullyCaptured(final PaymentTransactionModel paymentTransaction) {
+        executeLocked(paymentTransaction, () -> {
+            if (! AdyenTransactionService.hasRunningTotals(paymentTransaction)) {
+                LOG.debug("Transaction without running totals: " + paymentTransaction.getRequestId());
+                return;
+            }
+            paymentTransaction.setAdyenCapturedAmount(paymentTransaction.getAdyenAuthorisedAmount());
+            modelService.save(paymentTransaction);
+        });
+    }
+
+    /**
+     * Runs the update of the running totals in a DB transaction holding a row lock on the payment transaction
+     * The model is refreshed once the lock is held, so concurrent updates are applied one after the other instead of overwriting each other
+     */
+    protected void executeLocked(final PaymentTransactionModel paymentTransaction, final Runnable update) {
+        if (modelService.isNew(paymentTransaction)) {
+            update.run();
+            return;
+        }
+
+        try {
+            Transaction.current().execute(new TransactionBody() {
+                @Override
+                public Object execute() {
+                    Transaction.current().lock((Item) modelService.getSource(paymentTransaction));
+                    modelService.refresh(paymentTransaction);
+                    update.run();
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            throw new ModelSavingException("Cannot update running totals of transaction " + paymentTransaction.getRequestId(), e);
+        }
+    }
+
+    /**
+     * Apply a CAPTURE/REFUND_FOLLOW_ON result to the running totals of the transaction
+     */
+    private void applyToRunningTotals(final PaymentTransactionModel paymentTransaction, final PaymentTransactionType type, final BigDecimal amount, final boolean successful) {
+        if (! AdyenTransactionService.hasRunningTotals(paymentTransaction)) {
+            LOG.debug("Transaction without running totals: " + paymentTransaction.getRequestId());
+            return;
+        }
+
+        if (PaymentTransactionType.CAPTURE.equals(type)) {
+            if (successful) {
+                //Capped, so that a CAPTURE notification of an auto capture is not counted twice
+                final BigDecimal captured = nullToZero(paymentTransaction.getAdyenCapturedAmount()).add(nullToZero(amount));
+                paymentTransaction.setAdyenCapturedAmount(captured.min(paymentTransaction.getAdyenAuthorisedAmount()));
+            } else {
+                paymentTransaction.setAdyenCaptureFailed(Boolean.TRUE);
+            }
+        } else if (PaymentTransactionType.REFUND_FOLLOW_ON.equals(type)) {
+            if (successful) {
+                paymentTransaction.setAdyenRefundedAmount(nullToZero(paymentTransaction.getAdyenRefundedAmount()).add(nullToZero(amount)));
+            } else {
+                paymentTransaction.setAdyenRefundFailed(Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * Entry code: requestId + "_" + value of a cluster wide number series
+     * Unique under parallel processing and does not load the entries of the transaction
+     */
+    private String generateEntryCode(final PaymentTransactionModel paymentTransaction) {
+        return paymentTransaction.getRequestId() + "_" + paymentTransactionEntryCodeGenerator.generate();
+    }
+
+    private static BigDecimal nullToZero(final BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
     private PaymentTransactionEntryModel createFromModificationNotification(
             final PaymentTransactionModel paymentTransaction,
             final NotificationItemModel notificationItemModel) {
         final PaymentTransactionEntryModel transactionEntryModel = modelService.create(PaymentTransactionEntryModel.class);
 
-        String code = paymentTransaction.getRequestId() + "_" + paymentTransaction.getEntries().size();
+        String code = generateEntryCode(paymentTransaction);
 
         transactionEntryModel.setPaymentTransaction(paymentTransaction);
         transactionEntryModel.setRequestId(notificationItemModel.getPspReference());
@@ -104,13 +205,14 @@ public class DefaultAdyenTransactionService implements AdyenTransactionService {
                 pspReference,
                 abstractOrderModel);
 
-        modelService.save(paymentTransactionModel);
-
         PaymentTransactionEntryModel authorisedTransaction = createAuthorizationPaymentTransactionEntryModel(
                 paymentTransactionModel,
                 merchantTransactionCode,
                 abstractOrderModel
         );
+        paymentTransactionModel.setAdyenAuthorisedAmount(authorisedTransaction.getAmount());
+
+        modelService.save(paymentTransactionModel);
 
         LOG.info("Saving AUTH transaction entry with psp reference: " + pspReference);
         modelService.save(authorisedTransaction);
@@ -170,7 +272,7 @@ public class DefaultAdyenTransactionService implements AdyenTransactionService {
             final AbstractOrderModel abstractOrderModel) {
         final PaymentTransactionEntryModel transactionEntryModel = modelService.create(PaymentTransactionEntryModel.class);
 
-        String code = paymentTransaction.getRequestId() + "_" + paymentTransaction.getEntries().size();
+        String code = generateEntryCode(paymentTransaction);
 
         transactionEntryModel.setType(PaymentTransactionType.AUTHORIZATION);
         transactionEntryModel.setPaymentTransaction(paymentTransaction);
@@ -199,6 +301,9 @@ public class DefaultAdyenTransactionService implements AdyenTransactionService {
         paymentTransactionModel.setCurrency(abstractOrderModel.getCurrency());
         paymentTransactionModel.setInfo(abstractOrderModel.getPaymentInfo());
         paymentTransactionModel.setPlannedAmount(new BigDecimal(abstractOrderModel.getTotalPrice()));
+        paymentTransactionModel.setAdyenAuthorisedAmount(BigDecimal.ZERO);
+        paymentTransactionModel.setAdyenCapturedAmount(BigDecimal.ZERO);
+        paymentTransactionModel.setAdyenRefundedAmount(BigDecimal.ZERO);
 
         return paymentTransactionModel;
     }
@@ -207,7 +312,7 @@ public class DefaultAdyenTransactionService implements AdyenTransactionService {
     public PaymentTransactionEntryModel createCancellationTransaction(final PaymentTransactionModel paymentTransaction, final String merchantCode, final String pspReference) {
         final PaymentTransactionEntryModel transactionEntryModel = modelService.create(PaymentTransactionEntryModel.class);
 
-        String code = paymentTransaction.getRequestId() + "_" + paymentTransaction.getEntries().size();
+        String code = generateEntryCode(paymentTransaction);
 
         transactionEntryModel.setType(PaymentTransactionType.CANCEL);
         transactionEntryModel.setPaymentTransaction(paymentTransaction);
@@ -238,4 +343,12 @@ public class DefaultAdyenTransactionService implements AdyenTransactionService {
     public void setCommonI18NService(CommonI18NService commonI18NService) {
         this.commonI18NService = commonI18NService;
     }
+
+    public KeyGenerator getPaymentTransactionEntryCodeGenerator() {
+        return paymentTransactionEntryCodeGenerator;
+    }
+
+    public void setPaymentTransactionEntryCodeGenerator(KeyGenerator paymentTransactionEntryCodeGenerator) {
+        this.paymentTransactionEntryCodeGenerator = paymentTransactionEntryCodeGenerator;
+    }
 }
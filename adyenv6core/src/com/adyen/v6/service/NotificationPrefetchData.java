@@ -0,0 +1,64 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.payment.model.PaymentTransactionModel;
+
+/**
+ * Orders and PaymentTransactions prefetched for a page of notifications
+ * A missing entry is not authoritative (e.g. an order placed earlier in the same page), callers fall back to the repositories
+ */
+public class NotificationPrefetchData {
+    private final Map<String, OrderModel> orders;
+    private final Map<String, PaymentTransactionModel> paymentTransactions;
+
+    public NotificationPrefetchData(final Map<String, OrderModel> orders, final Map<String, PaymentTransactionModel> paymentTransactions) {
+        this.orders = new HashMap<>(orders);
+        this.paymentTransactions = new HashMap<>(paymentTransactions);
+    }
+
+    public static NotificationPrefetchData empty() {
+        return new NotificationPrefetchData(new HashMap<>(), new HashMap<>());
+    }
+
+    public OrderModel getOrder(final String code) {
+        return code == null ? null : orders.get(code);
+    }
+
+    public PaymentTransactionModel getPaymentTransaction(final String pspReference) {
+        return pspReference == null ? null : paymentTransactions.get(pspReference);
+    }
+
+    public void putOrder(final OrderModel orderModel) {
+        if (orderModel != null) {
+            orders.put(orderModel.getCode(), orderModel);
+        }
+    }
+
+    public void putPaymentTransaction(final PaymentTransactionModel paymentTransactionModel) {
+        if (paymentTransactionModel != null) {
+            paymentTransactions.put(paymentTransactionModel.getRequestId(), paymentTransactionModel);
+        }
+    }
+}
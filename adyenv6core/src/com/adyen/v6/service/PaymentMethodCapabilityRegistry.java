@@ -0,0 +1,186 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.log4j.Logger;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+
+/**
+ * Capabilities of the Adyen payment methods (manual capture, open invoice, refund)
+ * Loaded once from adyenv6core.paymentmethod.* properties into an immutable snapshot, see refresh()
+ * Entries ending with * match every payment method starting with the prefix (e.g. afterpay_*)
+ */
+public class PaymentMethodCapabilityRegistry {
+    private static final Logger LOG = Logger.getLogger(PaymentMethodCapabilityRegistry.class);
+    public static final String PROPERTY_PREFIX = "adyenv6core.paymentmethod.";
+    private static final String WILDCARD = "*";
+    private static final int MAX_RESOLVED_PREFIX_MATCHES = 1000;
+
+    public enum Capability {
+        MANUAL_CAPTURE, OPEN_INVOICE, REFUND
+    }
+
+    /**
+     * Used when there is no configurationService or the property is missing
+     */
+    private static final Map<Capability, String> DEFAULTS = new EnumMap<>(Capability.class);
+
+    static {
+        DEFAULTS.put(Capability.MANUAL_CAPTURE, "cup,cartebancaire,visa,mc,uatp,amex,maestro,maestrouk,diners,discover,jcb,laser,paypal,klarna,afterpay_*,sepadirectdebit");
+        DEFAULTS.put(Capability.OPEN_INVOICE, "klarna,ratepay");
+        DEFAULTS.put(Capability.REFUND, WILDCARD);
+    }
+
+    private ConfigurationService configurationService;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Whether the payment method supports the capability
+     */
+    public boolean supports(String paymentMethod, Capability capability) {
+        if (paymentMethod == null) {
+            return false;
+        }
+        return getSnapshot().getCapabilities(paymentMethod).contains(capability);
+    }
+
+    /**
+     * Payment methods explicitly listed for the capability, prefix entries excluded
+     */
+    public Set<String> getPaymentMethods(Capability capability) {
+        return getSnapshot().paymentMethods.get(capability);
+    }
+
+    /**
+     * Reload the capabilities from the configuration
+     */
+    public void refresh() {
+        final Map<Capability, String> values = new EnumMap<>(Capability.class);
+        for (Capability capability : Capability.values()) {
+            String value = DEFAULTS.get(capability);
+            if (configurationService != null) {
+                value = configurationService.getConfiguration().getString(PROPERTY_PREFIX + capability.name().toLowerCase(), value);
+            }
+            values.put(capability, value);
+        }
+        snapshot = new Snapshot(values);
+        LOG.debug("Payment method capabilities loaded: " + values);
+    }
+
+    private Snapshot getSnapshot() {
+        if (snapshot == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    public ConfigurationService getConfigurationService() {
+        return configurationService;
+    }
+
+    public void setConfigurationService(ConfigurationService configurationService) {
+        this.configurationService = configurationService;
+    }
+
+    /**
+     * Immutable view of the configuration
+     * Prefix matches are memoized per payment method (up to MAX_RESOLVED_PREFIX_MATCHES), so each method is resolved once
+     */
+    private static final class Snapshot {
+        private final Map<String, Set<Capability>> exact;
+        private final List<Map.Entry<String, Set<Capability>>> prefixes;
+        private final Map<Capability, Set<String>> paymentMethods;
+        private final Map<String, Set<Capability>> resolved = new ConcurrentHashMap<>();
+
+        private Snapshot(Map<Capability, String> values) {
+            final Map<String, Set<Capability>> exactMap = new HashMap<>();
+            final Map<String, Set<Capability>> prefixMap = new HashMap<>();
+            final Map<Capability, Set<String>> methodsMap = new EnumMap<>(Capability.class);
+
+            for (Map.Entry<Capability, String> entry : values.entrySet()) {
+                final Set<String> methods = new LinkedHashSet<>();
+                for (String method : entry.getValue().split(",")) {
+                    method = method.trim();
+                    if (method.isEmpty()) {
+                        continue;
+                    }
+                    if (method.endsWith(WILDCARD)) {
+                        final String prefix = method.substring(0, method.length() - 1);
+                        prefixMap.computeIfAbsent(prefix, key -> EnumSet.noneOf(Capability.class)).add(entry.getKey());
+                    } else {
+                        exactMap.computeIfAbsent(method, key -> EnumSet.noneOf(Capability.class)).add(entry.getKey());
+                        methods.add(method);
+                    }
+                }
+                methodsMap.put(entry.getKey(), Collections.unmodifiableSet(methods));
+            }
+
+            //Prefix capabilities also apply to the exact entries they match
+            for (Map.Entry<String, Set<Capability>> exactEntry : exactMap.entrySet()) {
+                for (Map.Entry<String, Set<Capability>> prefixEntry : prefixMap.entrySet()) {
+                    if (exactEntry.getKey().startsWith(prefixEntry.getKey())) {
+                        exactEntry.getValue().addAll(prefixEntry.getValue());
+                    }
+                }
+            }
+
+            exactMap.replaceAll((method, capabilities) -> Collections.unmodifiableSet(capabilities));
+            exact = Collections.unmodifiableMap(exactMap);
+            prefixes = Collections.unmodifiableList(new ArrayList<>(prefixMap.entrySet()));
+            paymentMethods = Collections.unmodifiableMap(methodsMap);
+        }
+
+        private Set<Capability> getCapabilities(String paymentMethod) {
+            final Set<Capability> capabilities = exact.get(paymentMethod);
+            if (capabilities != null) {
+                return capabilities;
+            }
+            if (resolved.size() >= MAX_RESOLVED_PREFIX_MATCHES) {
+                return resolved.getOrDefault(paymentMethod, resolvePrefixes(paymentMethod));
+            }
+            return resolved.computeIfAbsent(paymentMethod, this::resolvePrefixes);
+        }
+
+        private Set<Capability> resolvePrefixes(String paymentMethod) {
+            final Set<Capability> capabilities = EnumSet.noneOf(Capability.class);
+            for (Map.Entry<String, Set<Capability>> prefix : prefixes) {
+                if (paymentMethod.startsWith(prefix.getKey())) {
+                    capabilities.addAll(prefix.getValue());
+                }
+            }
+            return Collections.unmodifiableSet(capabilities);
+        }
+    }
+}
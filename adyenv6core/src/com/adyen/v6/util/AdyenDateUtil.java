@@ -0,0 +1,62 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.util;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Thread-safe date formatting shared by the checkout pages
+ */
+public final class AdyenDateUtil {
+    /**
+     * Date format of the device fingerprint script version (e.g. 20170601)
+     */
+    public static final DateTimeFormatter DEVICE_FINGERPRINT_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    /**
+     * CSE generation time format, ISO-8601 with offset (e.g. 2017-06-01T12:00:00+02:00)
+     */
+    public static final DateTimeFormatter GENERATION_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssxxx");
+
+    private AdyenDateUtil() {
+    }
+
+    /**
+     * Returns the current time formatted as CSE generation time
+     */
+    public static String getGenerationTime() {
+        return getGenerationTime(Clock.systemDefaultZone());
+    }
+
+    public static String getGenerationTime(final Clock clock) {
+        return GENERATION_TIME_FORMAT.format(ZonedDateTime.now(clock));
+    }
+
+    /**
+     * Returns the device fingerprint script version of the given day
+     */
+    public static String getDeviceFingerprintVersion(final LocalDate date) {
+        return DEVICE_FINGERPRINT_FORMAT.format(date);
+    }
+}
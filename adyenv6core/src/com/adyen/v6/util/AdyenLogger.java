@@ -0,0 +1,177 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.apache.log4j.Logger;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Logging facade for the payment and notification paths
+ * Debug messages and payloads are only built when debug is enabled, payloads are logged as JSON with sensitive fields masked
+ */
+public final class AdyenLogger {
+    public static final String MASK = "***";
+
+    /**
+     * Lowercase field names (or last segment of dotted additionalData keys) that are never logged
+     */
+    private static final Set<String> SENSITIVE_FIELDS = new HashSet<>(Arrays.asList("card.encrypted.json",
+                                                                                    "number",
+                                                                                    "cvc",
+                                                                                    "holdername",
+                                                                                    "cardholdername",
+                                                                                    "expirymonth",
+                                                                                    "expiryyear",
+                                                                                    "expirydate",
+                                                                                    "socialsecuritynumber",
+                                                                                    "dateofbirth",
+                                                                                    "shopperemail",
+                                                                                    "telephonenumber",
+                                                                                    "shopperip",
+                                                                                    "street",
+                                                                                    "housenumberorname",
+                                                                                    "postalcode",
+                                                                                    "firstname",
+                                                                                    "lastname",
+                                                                                    "devicefingerprint",
+                                                                                    "md",
+                                                                                    "paresponse",
+                                                                                    "password",
+                                                                                    "hmacsignature"));
+
+    private static final Gson GSON = new Gson();
+
+    private final Logger logger;
+
+    private AdyenLogger(final Logger logger) {
+        this.logger = logger;
+    }
+
+    public static AdyenLogger getLogger(final Class<?> clazz) {
+        return new AdyenLogger(Logger.getLogger(clazz));
+    }
+
+    public boolean isDebugEnabled() {
+        return logger.isDebugEnabled();
+    }
+
+    public void debug(final String message) {
+        logger.debug(message);
+    }
+
+    /**
+     * The message is only built when debug is enabled
+     */
+    public void debug(final Supplier<String> message) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(message.get());
+        }
+    }
+
+    /**
+     * Log a request/response object or a JSON string, redacted, when debug is enabled
+     */
+    public void debug(final String message, final Object payload) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(message + " " + redact(payload));
+        }
+    }
+
+    public void info(final Object message) {
+        logger.info(message);
+    }
+
+    public void warn(final Object message) {
+        logger.warn(message);
+    }
+
+    public void error(final Object message) {
+        logger.error(message);
+    }
+
+    public void error(final Object message, final Throwable throwable) {
+        logger.error(message, throwable);
+    }
+
+    /**
+     * JSON representation of the payload with the sensitive fields masked
+     * Strings are parsed as JSON, anything that isn't JSON is not logged
+     */
+    public static String redact(final Object payload) {
+        if (payload == null) {
+            return "null";
+        }
+
+        JsonElement json;
+        if (payload instanceof String) {
+            try {
+                json = new JsonParser().parse((String) payload);
+            } catch (JsonParseException e) {
+                json = null;
+            }
+            if (json == null || ! (json.isJsonObject() || json.isJsonArray())) {
+                return "<non-JSON payload of " + ((String) payload).length() + " characters>";
+            }
+        } else {
+            json = GSON.toJsonTree(payload);
+        }
+
+        return mask(json).toString();
+    }
+
+    private static JsonElement mask(final JsonElement json) {
+        if (json.isJsonObject()) {
+            JsonObject masked = new JsonObject();
+            for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject().entrySet()) {
+                if (isSensitive(entry.getKey()) && ! entry.getValue().isJsonNull()) {
+                    masked.add(entry.getKey(), new JsonPrimitive(MASK));
+                } else {
+                    masked.add(entry.getKey(), mask(entry.getValue()));
+                }
+            }
+            return masked;
+        }
+        if (json.isJsonArray()) {
+            JsonArray masked = new JsonArray();
+            for (JsonElement element : json.getAsJsonArray()) {
+                masked.add(mask(element));
+            }
+            return masked;
+        }
+        return json;
+    }
+
+    private static boolean isSensitive(final String field) {
+        String key = field.toLowerCase();
+        return SENSITIVE_FIELDS.contains(key) || SENSITIVE_FIELDS.contains(key.substring(key.lastIndexOf('.') + 1));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SignatureException;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * HMAC-SHA256 signer for one hex encoded key, producing the same signatures as HMACValidator.calculateHMAC
+ * The key is decoded once and every thread keeps its own initialized Mac, so signing costs a single doFinal
+ */
+public class HmacSigner {
+    public static final String HMAC_SHA256_ALGORITHM = "HmacSHA256";
+
+    private final String hmacKey;
+    private final SecretKeySpec keySpec;
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::createMac);
+
+    public HmacSigner(final String hmacKey) throws SignatureException {
+        this.hmacKey = hmacKey;
+        try {
+            keySpec = new SecretKeySpec(Hex.decodeHex(hmacKey.toCharArray()), HMAC_SHA256_ALGORITHM);
+            // fail on an invalid key here rather than on first use in a thread
+            Mac.getInstance(HMAC_SHA256_ALGORITHM).init(keySpec);
+        } catch (DecoderException | GeneralSecurityException | RuntimeException e) {
+            throw new SignatureException("Failed to generate HMAC : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Base64 encoded signature of the data
+     */
+    public String sign(final String data) throws SignatureException {
+        if (data == null) {
+            throw new SignatureException("Failed to generate HMAC : no data to sign");
+        }
+
+        // doFinal resets the Mac for the next call
+        byte[] rawHmac = macs.get().doFinal(data.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(rawHmac);
+    }
+
+    /**
+     * Whether this signer was built for the given key, false once the key has been rotated
+     */
+    public boolean hasKey(final String hmacKey) {
+        return this.hmacKey.equals(hmacKey);
+    }
+
+    private Mac createMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_SHA256_ALGORITHM);
+            mac.init(keySpec);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialize HMAC", e);
+        }
+    }
+}
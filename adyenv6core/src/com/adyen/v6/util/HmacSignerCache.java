@@ -0,0 +1,63 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.util;
+
+import java.security.SignatureException;
+
+/**
+ * HMAC signers per store, rebuilt when the store's key changes
+ */
+public class HmacSignerCache {
+    private static final int DEFAULT_MAX_SIZE = 100;
+
+    private final LruCache<String, HmacSigner> signers;
+
+    public HmacSignerCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public HmacSignerCache(final int maxSize) {
+        signers = new LruCache<>(maxSize);
+    }
+
+    /**
+     * Signer of the store for the given key
+     *
+     * @param storeId store the key belongs to, e.g. the BaseStore uid
+     * @param hmacKey hex encoded key as currently configured on the store
+     */
+    public HmacSigner getSigner(final String storeId, final String hmacKey) throws SignatureException {
+        HmacSigner signer = signers.get(storeId);
+        if (signer == null || ! signer.hasKey(hmacKey)) {
+            signer = new HmacSigner(hmacKey);
+            signers.put(storeId, signer);
+        }
+        return signer;
+    }
+
+    public void invalidate(final String storeId) {
+        signers.remove(storeId);
+    }
+
+    public void clear() {
+        signers.clear();
+    }
+}
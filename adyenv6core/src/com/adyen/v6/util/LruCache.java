@@ -0,0 +1,103 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small thread safe LRU cache with an optional time to live
+ * Used for lookups that are safe to serve slightly stale (e.g. immutable PKs)
+ */
+public class LruCache<K, V> {
+    private final int maxSize;
+    private final long timeToLiveMillis;
+    private final Map<K, Entry<V>> entries;
+
+    /**
+     * @param maxSize          maximum number of entries, least recently used entries are evicted first
+     * @param timeToLiveMillis entry lifetime in milliseconds, 0 to keep entries until evicted
+     */
+    public LruCache(final int maxSize, final long timeToLiveMillis) {
+        this.maxSize = maxSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > LruCache.this.maxSize;
+            }
+        };
+    }
+
+    public LruCache(final int maxSize) {
+        this(maxSize, 0);
+    }
+
+    /**
+     * Returns the cached value or null if absent or expired
+     */
+    public synchronized V get(final K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (timeToLiveMillis > 0 && System.currentTimeMillis() - entry.createdAt > timeToLiveMillis) {
+            entries.remove(key);
+            return null;
+        }
+
+        return entry.value;
+    }
+
+    /**
+     * Null keys and values are ignored
+     */
+    public synchronized void put(final K key, final V value) {
+        if (key == null || value == null || maxSize <= 0) {
+            return;
+        }
+
+        entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+    }
+
+    public synchronized void remove(final K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long createdAt;
+
+        private Entry(final V value, final long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+}
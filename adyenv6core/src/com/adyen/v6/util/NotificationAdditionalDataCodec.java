@@ -0,0 +1,141 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.log4j.Logger;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Encodes/decodes NotificationItem.additionalData
+ * When compression is enabled, payloads above the threshold are stored as Base64 encoded GZIP bytes with a prefix,
+ * plain JSON values (including the ones stored before enabling compression) are still decoded transparently
+ */
+public class NotificationAdditionalDataCodec {
+    private static final Logger LOG = Logger.getLogger(NotificationAdditionalDataCodec.class);
+
+    public static final String GZIP_PREFIX = "gz:";
+
+    private static final Gson GSON = new Gson();
+    private static final Type ADDITIONAL_DATA_TYPE = new TypeToken<Map<String, String>>() {
+    }.getType();
+
+    private boolean compress;
+    private int compressThreshold;
+
+    /**
+     * Serialize additionalData for storage
+     */
+    public String encode(final Map<String, String> additionalData) {
+        String json = GSON.toJson(additionalData);
+
+        if (! compress || additionalData == null || json.length() < compressThreshold) {
+            return json;
+        }
+
+        try {
+            return GZIP_PREFIX + Base64.getEncoder().encodeToString(gzip(json));
+        } catch (IOException e) {
+            LOG.warn("Cannot compress additionalData, storing it uncompressed", e);
+            return json;
+        }
+    }
+
+    /**
+     * Deserialize a stored additionalData value
+     */
+    public Map<String, String> decode(final String storedValue) {
+        if (storedValue == null || storedValue.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        String json = storedValue;
+        if (isCompressed(storedValue)) {
+            try {
+                json = gunzip(Base64.getDecoder().decode(storedValue.substring(GZIP_PREFIX.length())));
+            } catch (IOException | IllegalArgumentException e) {
+                LOG.error("Cannot decompress additionalData", e);
+                return Collections.emptyMap();
+            }
+        }
+
+        Map<String, String> additionalData = GSON.fromJson(json, ADDITIONAL_DATA_TYPE);
+        if (additionalData == null) {
+            return Collections.emptyMap();
+        }
+
+        return additionalData;
+    }
+
+    public static boolean isCompressed(final String storedValue) {
+        return storedValue != null && storedValue.startsWith(GZIP_PREFIX);
+    }
+
+    private static byte[] gzip(final String value) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(value.length() / 4);
+        try (OutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream)) {
+            gzipOutputStream.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private static String gunzip(final byte[] bytes) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(bytes.length * 4);
+        try (InputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = gzipInputStream.read(buffer)) > 0) {
+                byteArrayOutputStream.write(buffer, 0, read);
+            }
+        }
+
+        return new String(byteArrayOutputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    public int getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public void setCompressThreshold(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+}
@@ -20,6 +20,8 @@
  */
 package com.adyen.v6.actions.order;
 
+import com.adyen.v6.data.PaymentTransactionEntrySummaryData;
+import de.hybris.platform.core.PK;
 import de.hybris.platform.payment.dto.TransactionStatus;
 import de.hybris.platform.payment.dto.TransactionStatusDetails;
 import de.hybris.platform.payment.enums.PaymentTransactionType;
@@ -28,6 +30,7 @@ import de.hybris.platform.payment.model.PaymentTransactionModel;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.List;
 
 import static com.adyen.v6.constants.Adyenv6coreConstants.PAYMENT_PROVIDER;
 
@@ -107,4 +110,48 @@ public class AbstractActionTest {
 
         return adyenTransaction;
     }
+
+    /**
+     * Build the entry summaries the PaymentTransactionRepository would return for the given transactions
+     */
+    protected List<PaymentTransactionEntrySummaryData> createEntrySummaries(List<PaymentTransactionModel> transactions) {
+        List<PaymentTransactionEntrySummaryData> summaries = new ArrayList<>();
+        if (transactions == null) {
+            return summaries;
+        }
+
+        for (int i = 0; i < transactions.size(); i++) {
+            PaymentTransactionModel transaction = transactions.get(i);
+            PK transactionPk = PK.fromLong(i + 1);
+
+            if (transaction.getEntries().isEmpty()) {
+                summaries.add(createEntrySummary(transactionPk, transaction, null));
+            }
+            for (PaymentTransactionEntryModel entry : transaction.getEntries()) {
+                summaries.add(createEntrySummary(transactionPk, transaction, entry));
+            }
+        }
+
+        return summaries;
+    }
+
+    private PaymentTransactionEntrySummaryData createEntrySummary(PK transactionPk, PaymentTransactionModel transaction, PaymentTransactionEntryModel entry) {
+        PaymentTransactionEntrySummaryData summary = new PaymentTransactionEntrySummaryData();
+        summary.setTransactionPk(transactionPk);
+        summary.setPaymentProvider(transaction.getPaymentProvider());
+        summary.setAuthorisedAmount(transaction.getAdyenAuthorisedAmount());
+        summary.setCapturedAmount(transaction.getAdyenCapturedAmount());
+        summary.setRefundedAmount(transaction.getAdyenRefundedAmount());
+        summary.setCaptureFailed(transaction.getAdyenCaptureFailed());
+        summary.setRefundFailed(transaction.getAdyenRefundFailed());
+
+        if (entry != null) {
+            summary.setType(entry.getType());
+            summary.setTransactionStatus(entry.getTransactionStatus());
+            summary.setTransactionStatusDetails(entry.getTransactionStatusDetails());
+            summary.setAmount(entry.getAmount());
+        }
+
+        return summary;
+    }
 }
@@ -20,7 +20,9 @@
  */
 package com.adyen.v6.actions.order;
 
+import com.adyen.v6.repository.PaymentTransactionRepository;
 import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.model.order.AbstractOrderModel;
 import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.core.model.order.payment.PaymentInfoModel;
 import de.hybris.platform.orderprocessing.model.OrderProcessModel;
@@ -31,6 +33,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.util.ArrayList;
@@ -57,6 +60,9 @@ public class AdyenCheckAuthorizationActionTest extends AbstractActionTest {
     @Mock
     private ModelService modelServiceMock;
 
+    @Mock
+    private PaymentTransactionRepository paymentTransactionRepositoryMock;
+
     private AdyenCheckAuthorizationAction adyenCheckAuthorizationAction;
 
     @Before
@@ -70,6 +76,10 @@ public class AdyenCheckAuthorizationActionTest extends AbstractActionTest {
 
         adyenCheckAuthorizationAction = new AdyenCheckAuthorizationAction();
         adyenCheckAuthorizationAction.setModelService(modelServiceMock);
+        adyenCheckAuthorizationAction.setPaymentTransactionRepository(paymentTransactionRepositoryMock);
+
+        when(paymentTransactionRepositoryMock.getEntrySummaries(Mockito.any(AbstractOrderModel.class)))
+                .thenAnswer(invocation -> createEntrySummaries(orderModelMock.getPaymentTransactions()));
     }
 
     @After
@@ -20,8 +20,10 @@
  */
 package com.adyen.v6.actions.order;
 
+import com.adyen.v6.repository.PaymentTransactionRepository;
 import de.hybris.bootstrap.annotations.UnitTest;
 import de.hybris.platform.core.enums.OrderStatus;
+import de.hybris.platform.core.model.order.AbstractOrderModel;
 import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.core.model.order.payment.PaymentInfoModel;
 import de.hybris.platform.orderprocessing.model.OrderProcessModel;
@@ -33,8 +35,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -60,6 +64,9 @@ public class AdyenCheckCaptureActionTest extends AbstractActionTest {
     @Mock
     private ModelService modelServiceMock;
 
+    @Mock
+    private PaymentTransactionRepository paymentTransactionRepositoryMock;
+
     private AdyenCheckCaptureAction adyenCheckCaptureAction;
 
     @Before
@@ -74,6 +81,10 @@ public class AdyenCheckCaptureActionTest extends AbstractActionTest {
 
         adyenCheckCaptureAction = new AdyenCheckCaptureAction();
         adyenCheckCaptureAction.setModelService(modelServiceMock);
+        adyenCheckCaptureAction.setPaymentTransactionRepository(paymentTransactionRepositoryMock);
+
+        when(paymentTransactionRepositoryMock.getEntrySummaries(Mockito.any(AbstractOrderModel.class)))
+                .thenAnswer(invocation -> createEntrySummaries(orderModelMock.getPaymentTransactions()));
     }
 
     @After
@@ -142,4 +153,51 @@ public class AdyenCheckCaptureActionTest extends AbstractActionTest {
         verify(orderModelMock).setStatus(OrderStatus.PAYMENT_NOT_CAPTURED);
         verify(modelServiceMock).save(orderProcessModelMock.getOrder());
     }
+
+    /**
+     * Transactions with running totals are checked without scanning entries
+     */
+    @Test
+    public void testRunningTotals() {
+        PaymentTransactionModel adyenTransaction = createAdyenTransaction();
+        adyenTransaction.setAdyenAuthorisedAmount(new BigDecimal("12.34"));
+        adyenTransaction.setAdyenCapturedAmount(new BigDecimal("10.00"));
+
+        List<PaymentTransactionModel> transactions = new ArrayList<>();
+        transactions.add(adyenTransaction);
+        when(orderModelMock.getPaymentTransactions()).thenReturn(transactions);
+
+        assertEquals(AdyenCheckCaptureAction.Transition.WAIT.toString(), adyenCheckCaptureAction.execute(orderProcessModelMock));
+
+        adyenTransaction.setAdyenCapturedAmount(new BigDecimal("12.34"));
+        assertEquals(AdyenCheckCaptureAction.Transition.OK.toString(), adyenCheckCaptureAction.execute(orderProcessModelMock));
+
+        adyenTransaction.setAdyenCaptureFailed(Boolean.TRUE);
+        assertEquals(AdyenCheckCaptureAction.Transition.NOK.toString(), adyenCheckCaptureAction.execute(orderProcessModelMock));
+    }
+
+    /**
+     * Auto captured transaction with running totals: the command entry and the totals it updated, no CAPTURE notification
+     */
+    @Test
+    public void testRunningTotalsWithAutoCapture() {
+        PaymentTransactionModel adyenTransaction = createAdyenTransaction();
+        adyenTransaction.setAdyenAuthorisedAmount(new BigDecimal("12.34"));
+        adyenTransaction.setAdyenCapturedAmount(new BigDecimal("12.34"));
+        adyenTransaction.getEntries().add(createAuthorizedEntry());
+        adyenTransaction.getEntries().add(createCaptureSuccessEntry());
+
+        List<PaymentTransactionModel> transactions = new ArrayList<>();
+        transactions.add(adyenTransaction);
+        when(orderModelMock.getPaymentTransactions()).thenReturn(transactions);
+
+        assertEquals(AdyenCheckCaptureAction.Transition.OK.toString(), adyenCheckCaptureAction.execute(orderProcessModelMock));
+
+        //Capture refused by Adyen
+        adyenTransaction.setAdyenCapturedAmount(null);
+        adyenTransaction.setAdyenCaptureFailed(Boolean.TRUE);
+        adyenTransaction.getEntries().set(1, createCaptureRejectedEntry());
+
+        assertEquals(AdyenCheckCaptureAction.Transition.NOK.toString(), adyenCheckCaptureAction.execute(orderProcessModelMock));
+    }
 }
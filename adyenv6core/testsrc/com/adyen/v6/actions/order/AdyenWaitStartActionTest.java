@@ -0,0 +1,92 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.actions.order;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.orderprocessing.model.OrderProcessModel;
+import de.hybris.platform.processengine.helpers.ProcessParameterHelper;
+import de.hybris.platform.processengine.model.BusinessProcessParameterModel;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests AdyenWaitStartAction
+ */
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class AdyenWaitStartActionTest {
+    private static final String PARAMETER_NAME = "adyenWaitTimeoutStart_capture";
+
+    @Mock
+    private OrderProcessModel orderProcessModelMock;
+
+    @Mock
+    private ProcessParameterHelper processParameterHelperMock;
+
+    @Mock
+    private BusinessProcessParameterModel parameterModelMock;
+
+    private AdyenWaitStartAction adyenWaitStartAction;
+
+    @Before
+    public void setUp() {
+        adyenWaitStartAction = new AdyenWaitStartAction();
+        adyenWaitStartAction.setProcessParameterHelper(processParameterHelperMock);
+        adyenWaitStartAction.setWaitName("capture");
+    }
+
+    /**
+     * Entering the wait stores its start
+     */
+    @Test
+    public void testStart() throws Exception {
+        when(processParameterHelperMock.getProcessParameterByName(orderProcessModelMock, PARAMETER_NAME)).thenReturn(null);
+
+        String result = adyenWaitStartAction.execute(orderProcessModelMock);
+        assertEquals("OK", result);
+
+        verify(processParameterHelperMock).setProcessParameter(eq(orderProcessModelMock), eq(PARAMETER_NAME), any(Date.class));
+    }
+
+    /**
+     * Re-entering the wait after a re-check keeps the first start
+     */
+    @Test
+    public void testRestart() throws Exception {
+        when(processParameterHelperMock.getProcessParameterByName(orderProcessModelMock, PARAMETER_NAME)).thenReturn(parameterModelMock);
+
+        adyenWaitStartAction.execute(orderProcessModelMock);
+
+        verify(processParameterHelperMock, never()).setProcessParameter(any(OrderProcessModel.class), any(String.class), any());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.actions.order;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.orderprocessing.model.OrderProcessModel;
+import de.hybris.platform.processengine.helpers.ProcessParameterHelper;
+import de.hybris.platform.processengine.model.BusinessProcessParameterModel;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests AdyenWaitTimeoutAction
+ */
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class AdyenWaitTimeoutActionTest {
+    private static final String PARAMETER_NAME = "adyenWaitTimeoutStart_capture";
+
+    @Mock
+    private OrderProcessModel orderProcessModelMock;
+
+    @Mock
+    private ProcessParameterHelper processParameterHelperMock;
+
+    @Mock
+    private BusinessProcessParameterModel parameterModelMock;
+
+    private AdyenWaitTimeoutAction adyenWaitTimeoutAction;
+
+    @Before
+    public void setUp() {
+        when(orderProcessModelMock.getCode()).thenReturn("1234");
+
+        adyenWaitTimeoutAction = new AdyenWaitTimeoutAction();
+        adyenWaitTimeoutAction.setProcessParameterHelper(processParameterHelperMock);
+        adyenWaitTimeoutAction.setWaitName("capture");
+        adyenWaitTimeoutAction.setMaxWaitMinutes(60);
+    }
+
+    /**
+     * Processes that entered the wait before AdyenWaitStartAction store the start on the first timeout
+     */
+    @Test
+    public void testFirstTimeout() throws Exception {
+        when(processParameterHelperMock.getProcessParameterByName(orderProcessModelMock, PARAMETER_NAME)).thenReturn(null);
+
+        String result = adyenWaitTimeoutAction.execute(orderProcessModelMock);
+        assertEquals(AdyenWaitTimeoutAction.Transition.OK.toString(), result);
+
+        verify(processParameterHelperMock).setProcessParameter(eq(orderProcessModelMock), eq(PARAMETER_NAME), any(Date.class));
+    }
+
+    /**
+     * Re-checks while waiting less than maxWaitMinutes
+     */
+    @Test
+    public void testWithinMaxWait() throws Exception {
+        when(parameterModelMock.getValue()).thenReturn(new Date(System.currentTimeMillis() - 30 * 60000));
+        when(processParameterHelperMock.getProcessParameterByName(orderProcessModelMock, PARAMETER_NAME)).thenReturn(parameterModelMock);
+
+        String result = adyenWaitTimeoutAction.execute(orderProcessModelMock);
+        assertEquals(AdyenWaitTimeoutAction.Transition.OK.toString(), result);
+
+        verify(processParameterHelperMock, never()).setProcessParameter(any(OrderProcessModel.class), any(String.class), any());
+    }
+
+    /**
+     * Gives up after maxWaitMinutes
+     */
+    @Test
+    public void testMaxWaitExceeded() throws Exception {
+        when(parameterModelMock.getValue()).thenReturn(new Date(System.currentTimeMillis() - 61 * 60000));
+        when(processParameterHelperMock.getProcessParameterByName(orderProcessModelMock, PARAMETER_NAME)).thenReturn(parameterModelMock);
+
+        String result = adyenWaitTimeoutAction.execute(orderProcessModelMock);
+        assertEquals(AdyenWaitTimeoutAction.Transition.NOK.toString(), result);
+    }
+}
@@ -21,6 +21,7 @@
 package com.adyen.v6.commands;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.Currency;
 import org.junit.After;
 import org.junit.Before;
@@ -31,8 +32,12 @@ import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 import com.adyen.model.modification.ModificationResult;
 import com.adyen.v6.factory.AdyenPaymentServiceFactory;
+import com.adyen.v6.model.AdyenModificationRecordModel;
 import com.adyen.v6.repository.OrderRepository;
+import com.adyen.v6.service.AdyenModificationService;
+import com.adyen.v6.service.AdyenTransactionService;
 import com.adyen.v6.service.DefaultAdyenPaymentService;
+import com.adyen.v6.service.PaymentMethodCapabilityRegistry;
 import de.hybris.bootstrap.annotations.UnitTest;
 import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.core.model.order.payment.PaymentInfoModel;
@@ -40,9 +45,13 @@ import de.hybris.platform.payment.commands.request.CaptureRequest;
 import de.hybris.platform.payment.commands.result.CaptureResult;
 import de.hybris.platform.payment.dto.TransactionStatus;
 import de.hybris.platform.payment.dto.TransactionStatusDetails;
+import de.hybris.platform.payment.enums.PaymentTransactionType;
+import de.hybris.platform.payment.model.PaymentTransactionModel;
 import de.hybris.platform.store.BaseStoreModel;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @UnitTest
@@ -59,8 +68,19 @@ public class AdyenCaptureCommandTest {
     @Mock
     private OrderRepository orderRepositoryMock;
 
+    @Mock
+    private AdyenModificationService adyenModificationServiceMock;
+
+    @Mock
+    private AdyenModificationRecordModel adyenModificationRecordModelMock;
+
+    @Mock
+    private AdyenTransactionService adyenTransactionServiceMock;
+
     private BaseStoreModel baseStore;
 
+    private PaymentTransactionModel paymentTransaction;
+
     AdyenCaptureCommand adyenCaptureCommand;
 
     @Before
@@ -71,8 +91,12 @@ public class AdyenCaptureCommandTest {
         PaymentInfoModel paymentInfoModel = new PaymentInfoModel();
         paymentInfoModel.setAdyenPaymentMethod("visa");
 
+        paymentTransaction = new PaymentTransactionModel();
+        paymentTransaction.setRequestId(captureRequest.getRequestId());
+
         OrderModel orderModel = new OrderModel();
         orderModel.setPaymentInfo(paymentInfoModel);
+        orderModel.setPaymentTransactions(Collections.singletonList(paymentTransaction));
 
         when(orderRepositoryMock.getOrderModel(Mockito.any(String.class))).thenReturn(orderModel);
 
@@ -84,6 +108,12 @@ public class AdyenCaptureCommandTest {
 
         adyenCaptureCommand.setOrderRepository(orderRepositoryMock);
         adyenCaptureCommand.setAdyenPaymentServiceFactory(adyenPaymentServiceFactoryMock);
+        adyenCaptureCommand.setAdyenModificationService(adyenModificationServiceMock);
+        adyenCaptureCommand.setAdyenTransactionService(adyenTransactionServiceMock);
+        adyenCaptureCommand.setPaymentMethodCapabilityRegistry(new PaymentMethodCapabilityRegistry());
+
+        when(adyenModificationServiceMock.claim(captureRequest.getRequestId(), AdyenModificationService.TYPE_CAPTURE, captureRequest.getTotalAmount(), captureRequest.getCurrency()))
+                .thenReturn(adyenModificationRecordModelMock);
     }
 
     @After
@@ -108,6 +138,64 @@ public class AdyenCaptureCommandTest {
         CaptureResult result = adyenCaptureCommand.perform(captureRequest);
         assertEquals(TransactionStatus.ACCEPTED, result.getTransactionStatus());
         assertEquals(TransactionStatusDetails.REVIEW_NEEDED, result.getTransactionStatusDetails());
+
+        verify(adyenModificationServiceMock).complete(adyenModificationRecordModelMock, true, "1235");
+        //Running totals are updated by the CAPTURE notification
+        verify(adyenTransactionServiceMock, never()).updateRunningTotals(Mockito.any(PaymentTransactionModel.class), Mockito.any(PaymentTransactionType.class), Mockito.any(BigDecimal.class), Mockito.anyBoolean());
+    }
+
+    /**
+     * Test capture refused by Adyen
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testManualCaptureRefused() throws Exception {
+        ModificationResult modificationResult = new ModificationResult();
+        modificationResult.setPspReference("1235");
+
+        when(adyenPaymentServiceMock.capture(captureRequest.getTotalAmount(), captureRequest.getCurrency(), captureRequest.getRequestId(), captureRequest.getRequestToken())).thenReturn(
+                modificationResult);
+
+        CaptureResult result = adyenCaptureCommand.perform(captureRequest);
+        assertEquals(TransactionStatus.REJECTED, result.getTransactionStatus());
+
+        verify(adyenTransactionServiceMock).updateRunningTotals(paymentTransaction, PaymentTransactionType.CAPTURE, captureRequest.getTotalAmount(), false);
+    }
+
+    /**
+     * Test repeated capture, already sent to Adyen
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRepeatedManualCapture() throws Exception {
+        when(adyenModificationServiceMock.claim(captureRequest.getRequestId(), AdyenModificationService.TYPE_CAPTURE, captureRequest.getTotalAmount(), captureRequest.getCurrency()))
+                .thenReturn(null);
+
+        CaptureResult result = adyenCaptureCommand.perform(captureRequest);
+        assertEquals(TransactionStatus.ACCEPTED, result.getTransactionStatus());
+        assertEquals(TransactionStatusDetails.REVIEW_NEEDED, result.getTransactionStatusDetails());
+
+        verify(adyenPaymentServiceMock, never()).capture(captureRequest.getTotalAmount(), captureRequest.getCurrency(), captureRequest.getRequestId(), captureRequest.getRequestToken());
+    }
+
+    /**
+     * Test capture without a response from Adyen
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testManualCaptureException() throws Exception {
+        RuntimeException exception = new RuntimeException("Read timed out");
+        when(adyenPaymentServiceMock.capture(captureRequest.getTotalAmount(), captureRequest.getCurrency(), captureRequest.getRequestId(), captureRequest.getRequestToken())).thenThrow(
+                exception);
+
+        adyenCaptureCommand.perform(captureRequest);
+
+        //The record stays in flight, with the error recorded
+        verify(adyenModificationServiceMock).recordError(adyenModificationRecordModelMock, exception);
+        verify(adyenModificationServiceMock, never()).complete(Mockito.any(AdyenModificationRecordModel.class), Mockito.anyBoolean(), Mockito.anyString());
     }
 
     /**
@@ -120,6 +208,10 @@ public class AdyenCaptureCommandTest {
         CaptureResult result = adyenCaptureCommand.perform(captureRequest);
         assertEquals(TransactionStatus.ACCEPTED, result.getTransactionStatus());
         assertEquals(TransactionStatusDetails.SUCCESFULL, result.getTransactionStatusDetails());
+
+        //The whole authorisation is captured
+        verify(adyenTransactionServiceMock).markFullyCaptured(paymentTransaction);
+        verify(adyenTransactionServiceMock, never()).updateRunningTotals(Mockito.any(PaymentTransactionModel.class), Mockito.any(PaymentTransactionType.class), Mockito.any(BigDecimal.class), Mockito.anyBoolean());
     }
 
     /**
@@ -140,4 +232,23 @@ public class AdyenCaptureCommandTest {
         assertEquals(TransactionStatus.ACCEPTED, result.getTransactionStatus());
         assertEquals(TransactionStatusDetails.SUCCESFULL, result.getTransactionStatusDetails());
     }
+
+    /**
+     * Test capture with the order of the calling action, without loading it again
+     */
+    @Test
+    public void testCaptureWithCommandContext() {
+        baseStore.setAdyenImmediateCapture(true);
+
+        OrderModel orderModel = new OrderModel();
+        orderModel.setCode(captureRequest.getRequestToken());
+        orderModel.setPaymentInfo(new PaymentInfoModel());
+        orderModel.setStore(baseStore);
+
+        CaptureResult result = AdyenCommandContext.withOrder(orderModel, () -> adyenCaptureCommand.perform(captureRequest));
+        assertEquals(TransactionStatus.ACCEPTED, result.getTransactionStatus());
+
+        verify(orderRepositoryMock, never()).getOrderModel(Mockito.any(String.class));
+        assertEquals(null, AdyenCommandContext.getOrder(captureRequest.getRequestToken()));
+    }
 }
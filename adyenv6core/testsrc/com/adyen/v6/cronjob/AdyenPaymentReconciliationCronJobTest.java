@@ -0,0 +1,180 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.cronjob;
+
+import com.adyen.model.notification.NotificationRequestItem;
+import com.adyen.v6.repository.BusinessProcessRepository;
+import com.adyen.v6.repository.NotificationItemRepository;
+import com.adyen.v6.repository.OrderRepository;
+import com.adyen.v6.service.AdyenNotificationService;
+import com.adyen.v6.service.AdyenPaymentStatusProvider;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.cronjob.enums.CronJobResult;
+import de.hybris.platform.cronjob.model.CronJobModel;
+import de.hybris.platform.servicelayer.cronjob.PerformResult;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests AdyenPaymentReconciliationCronJob
+ */
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class AdyenPaymentReconciliationCronJobTest {
+    @Mock
+    private BusinessProcessRepository businessProcessRepositoryMock;
+
+    @Mock
+    private OrderRepository orderRepositoryMock;
+
+    @Mock
+    private NotificationItemRepository notificationItemRepositoryMock;
+
+    @Mock
+    private AdyenNotificationService adyenNotificationServiceMock;
+
+    @Mock
+    private AdyenPaymentStatusProvider adyenPaymentStatusProviderMock;
+
+    @Mock
+    private CronJobModel cronJobModelMock;
+
+    @Mock
+    private OrderModel orderModelMock;
+
+    private AdyenPaymentReconciliationCronJob adyenPaymentReconciliationCronJob;
+
+    @Before
+    public void setUp() {
+        adyenPaymentReconciliationCronJob = new AdyenPaymentReconciliationCronJob();
+        adyenPaymentReconciliationCronJob.setBusinessProcessRepository(businessProcessRepositoryMock);
+        adyenPaymentReconciliationCronJob.setOrderRepository(orderRepositoryMock);
+        adyenPaymentReconciliationCronJob.setNotificationItemRepository(notificationItemRepositoryMock);
+        adyenPaymentReconciliationCronJob.setAdyenNotificationService(adyenNotificationServiceMock);
+        adyenPaymentReconciliationCronJob.setAdyenPaymentStatusProvider(adyenPaymentStatusProviderMock);
+        adyenPaymentReconciliationCronJob.setWaitNames(Collections.singletonMap("waitForAdyenAuthorization", "authorization"));
+        adyenPaymentReconciliationCronJob.setWaitingMinutes(30);
+        adyenPaymentReconciliationCronJob.setMaxOrdersPerRun(100);
+        adyenPaymentReconciliationCronJob.setBatchSize(2);
+        adyenPaymentReconciliationCronJob.setBatchIntervalMillis(0);
+
+        Map<String, OrderModel> orders = new HashMap<>();
+        orders.put("order1", orderModelMock);
+        when(orderRepositoryMock.getOrderModels(anyCollection())).thenReturn(orders);
+    }
+
+    /**
+     * Resolved statuses are saved as notifications, in batches
+     */
+    @Test
+    public void testReconcile() {
+        when(businessProcessRepositoryMock.getWaitingOrderCodes(anyMap(), any(Date.class), anyString(), anyInt()))
+                .thenReturn(Arrays.asList("order1", "order2", "order3"));
+
+        NotificationRequestItem status = new NotificationRequestItem();
+        status.setPspReference("123");
+        status.setEventCode(NotificationRequestItem.EVENT_CODE_AUTHORISATION);
+        status.setSuccess(true);
+        status.setMerchantReference("order1");
+
+        when(adyenPaymentStatusProviderMock.getPaymentStatuses(anyCollection()))
+                .thenReturn(Collections.singletonList(status))
+                .thenReturn(Collections.<NotificationRequestItem>emptyList());
+        when(notificationItemRepositoryMock.notificationReceived("123", NotificationRequestItem.EVENT_CODE_AUTHORISATION, true)).thenReturn(false);
+
+        PerformResult result = adyenPaymentReconciliationCronJob.perform(cronJobModelMock);
+        assertEquals(CronJobResult.SUCCESS, result.getResult());
+
+        //Waits are measured from the wait start parameter
+        verify(businessProcessRepositoryMock).getWaitingOrderCodes(eq(Collections.singletonMap("waitForAdyenAuthorization", "adyenWaitTimeoutStart_authorization")),
+                any(Date.class), anyString(), anyInt());
+        verify(adyenPaymentStatusProviderMock, times(2)).getPaymentStatuses(anyCollection());
+
+        ArgumentCaptor<NotificationRequestItem> captor = ArgumentCaptor.forClass(NotificationRequestItem.class);
+        verify(adyenNotificationServiceMock).saveFromNotificationRequest(captor.capture());
+        assertEquals("true", captor.getValue().getAdditionalData().get(AdyenPaymentReconciliationCronJob.ADDITIONAL_DATA_RECONCILIATION));
+    }
+
+    /**
+     * Statuses of notifications already received are skipped
+     */
+    @Test
+    public void testAlreadyReceived() {
+        when(businessProcessRepositoryMock.getWaitingOrderCodes(anyMap(), any(Date.class), anyString(), anyInt()))
+                .thenReturn(Collections.singletonList("order1"));
+
+        NotificationRequestItem status = new NotificationRequestItem();
+        status.setPspReference("123");
+        status.setEventCode(NotificationRequestItem.EVENT_CODE_AUTHORISATION);
+        status.setSuccess(true);
+
+        when(adyenPaymentStatusProviderMock.getPaymentStatuses(anyCollection())).thenReturn(Collections.singletonList(status));
+        when(notificationItemRepositoryMock.notificationReceived("123", NotificationRequestItem.EVENT_CODE_AUTHORISATION, true)).thenReturn(true);
+
+        adyenPaymentReconciliationCronJob.perform(cronJobModelMock);
+
+        verify(adyenNotificationServiceMock, never()).saveFromNotificationRequest(any(NotificationRequestItem.class));
+    }
+
+    /**
+     * Each run continues after the last order of the previous one and wraps around after the last page
+     */
+    @Test
+    public void testPaging() {
+        adyenPaymentReconciliationCronJob.setMaxOrdersPerRun(2);
+        when(adyenPaymentStatusProviderMock.getPaymentStatuses(anyCollection())).thenReturn(Collections.<NotificationRequestItem>emptyList());
+
+        when(businessProcessRepositoryMock.getWaitingOrderCodes(anyMap(), any(Date.class), (String) isNull(), eq(2)))
+                .thenReturn(Arrays.asList("order1", "order2"));
+        adyenPaymentReconciliationCronJob.perform(cronJobModelMock);
+        assertEquals("order2", adyenPaymentReconciliationCronJob.getLastOrderCode());
+
+        when(businessProcessRepositoryMock.getWaitingOrderCodes(anyMap(), any(Date.class), eq("order2"), eq(2)))
+                .thenReturn(Collections.singletonList("order3"));
+        adyenPaymentReconciliationCronJob.perform(cronJobModelMock);
+        assertNull(adyenPaymentReconciliationCronJob.getLastOrderCode());
+    }
+}
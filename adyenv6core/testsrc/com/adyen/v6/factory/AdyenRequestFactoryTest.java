@@ -21,6 +21,9 @@
 package com.adyen.v6.factory;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 import org.junit.Before;
 import org.junit.Test;
@@ -28,17 +31,23 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import com.adyen.model.PaymentRequest;
+import com.adyen.model.additionalData.InvoiceLine;
 import com.adyen.model.recurring.Recurring;
 import com.adyen.v6.enums.RecurringContractMode;
+import com.adyen.v6.service.PaymentMethodCapabilityRegistry;
 import de.hybris.bootstrap.annotations.UnitTest;
 import de.hybris.platform.commercefacades.order.data.CCPaymentInfoData;
 import de.hybris.platform.commercefacades.order.data.CartData;
+import de.hybris.platform.commercefacades.order.data.OrderEntryData;
 import de.hybris.platform.commercefacades.product.data.PriceData;
+import de.hybris.platform.commercefacades.product.data.ProductData;
 import de.hybris.platform.commercefacades.user.data.AddressData;
 import de.hybris.platform.commercefacades.user.data.CountryData;
 import de.hybris.platform.core.model.user.CustomerModel;
+import de.hybris.platform.util.TaxValue;
 import static com.adyen.v6.constants.Adyenv6coreConstants.PAYMENT_METHOD_CC;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.when;
 
@@ -73,6 +82,8 @@ public class AdyenRequestFactoryTest {
 
     @Before
     public void setUp() {
+        adyenRequestFactory.setPaymentMethodCapabilityRegistry(new PaymentMethodCapabilityRegistry());
+
         PriceData priceData = new PriceData();
         priceData.setValue(new BigDecimal("12.34"));
         priceData.setCurrencyIso("EUR");
@@ -145,6 +156,94 @@ public class AdyenRequestFactoryTest {
         assertEquals(Recurring.ContractEnum.ONECLICK, paymentRequest.getRecurring().getContract());
     }
 
+    @Test
+    public void testAddressReuse() {
+        //same billing and delivery address get a copy of the mapped address
+        when(paymentInfoMock.getBillingAddress()).thenReturn(deliveryAddressMock);
+        PaymentRequest paymentRequest = adyenRequestFactory.createAuthorizationRequest("merchantAccount", cartDataMock, requestMock, null, RecurringContractMode.NONE);
+        assertNotSame(paymentRequest.getDeliveryAddress(), paymentRequest.getBillingAddress());
+        assertEquals(paymentRequest.getDeliveryAddress(), paymentRequest.getBillingAddress());
+
+        //updating one of them leaves the other unchanged
+        paymentRequest.getBillingAddress().setCity("otherTown");
+        assertEquals("deliveryTown", paymentRequest.getDeliveryAddress().getCity());
+
+        //equal billing and delivery address get a copy of the mapped address
+        when(billingAddressMock.getTown()).thenReturn("deliveryTown");
+        when(paymentInfoMock.getBillingAddress()).thenReturn(billingAddressMock);
+        when(billingCountryDataMock.getIsocode()).thenReturn("NL");
+        paymentRequest = adyenRequestFactory.createAuthorizationRequest("merchantAccount", cartDataMock, requestMock, null, RecurringContractMode.NONE);
+        assertNotSame(paymentRequest.getDeliveryAddress(), paymentRequest.getBillingAddress());
+        assertEquals(paymentRequest.getDeliveryAddress(), paymentRequest.getBillingAddress());
+
+        //missing values default to NA
+        when(billingAddressMock.getPostalCode()).thenReturn("");
+        when(deliveryAddressMock.getPostalCode()).thenReturn("1011 DJ");
+        paymentRequest = adyenRequestFactory.createAuthorizationRequest("merchantAccount", cartDataMock, requestMock, null, RecurringContractMode.NONE);
+        assertNotSame(paymentRequest.getDeliveryAddress(), paymentRequest.getBillingAddress());
+        assertEquals("1011 DJ", paymentRequest.getDeliveryAddress().getPostalCode());
+        assertEquals("NA", paymentRequest.getBillingAddress().getPostalCode());
+        assertEquals("NA", paymentRequest.getBillingAddress().getStreet());
+        assertEquals("NA", paymentRequest.getBillingAddress().getStateOrProvince());
+    }
+
+    @Test
+    public void testOpenInvoiceData() {
+        CartData cartData = new CartData();
+        cartData.setTotalPrice(createPrice("34.20"));
+        cartData.setDeliveryCost(createPrice("4.95"));
+        cartData.setEntries(Arrays.asList(
+                createEntry("code1", "Product 1", 2L, "24.20", new TaxValue("vat-full", 21.0, false, 4.20, "EUR")),
+                createEntry("code2", "", 3L, "10.00", new TaxValue("vat-reduced", 2.3, false, 0.0, "EUR"))));
+
+        PaymentRequest paymentRequest = new PaymentRequest();
+        adyenRequestFactory.setOpenInvoiceData(paymentRequest, cartData, null);
+
+        List<InvoiceLine> invoiceLines = paymentRequest.getInvoiceLines();
+        assertEquals(3, invoiceLines.size());
+
+        //tax and percentage per item
+        InvoiceLine line = invoiceLines.get(0);
+        assertEquals("Product 1", line.getDescription());
+        assertEquals("code1", line.getItemId());
+        assertEquals(2, line.getNumberOfItems().intValue());
+        assertEquals(Long.valueOf(1000), line.getItemAmount());
+        assertEquals(Long.valueOf(210), line.getItemVATAmount());
+        assertEquals(Long.valueOf(2100), line.getItemVatPercentage());
+
+        //non-terminating price per item and a percentage not representable as double
+        line = invoiceLines.get(1);
+        assertEquals("NA", line.getDescription());
+        assertEquals(Long.valueOf(333), line.getItemAmount());
+        assertEquals(Long.valueOf(0), line.getItemVATAmount());
+        assertEquals(Long.valueOf(230), line.getItemVatPercentage());
+
+        line = invoiceLines.get(2);
+        assertEquals("Delivery Costs", line.getDescription());
+        assertEquals(Long.valueOf(495), line.getItemAmount());
+        assertNull(line.getItemId());
+    }
+
+    private PriceData createPrice(final String value) {
+        PriceData priceData = new PriceData();
+        priceData.setValue(new BigDecimal(value));
+        priceData.setCurrencyIso("EUR");
+        return priceData;
+    }
+
+    private OrderEntryData createEntry(final String code, final String name, final Long quantity, final String totalPrice, final TaxValue taxValue) {
+        ProductData productData = new ProductData();
+        productData.setCode(code);
+        productData.setName(name);
+
+        OrderEntryData entry = new OrderEntryData();
+        entry.setProduct(productData);
+        entry.setQuantity(quantity);
+        entry.setTotalPrice(createPrice(totalPrice));
+        entry.setTaxValues(Collections.singletonList(taxValue));
+        return entry;
+    }
+
     private void testRecurringOption(final RecurringContractMode recurringContractModeSetting, final Recurring.ContractEnum expectedRecurringContractMode) {
 
         PaymentRequest paymentRequest = adyenRequestFactory.createAuthorizationRequest("merchantAccount", cartDataMock, requestMock, customerModelMock, recurringContractModeSetting);
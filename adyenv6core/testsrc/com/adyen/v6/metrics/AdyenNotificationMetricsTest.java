@@ -0,0 +1,96 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.metrics;
+
+import java.util.Date;
+import org.junit.Before;
+import org.junit.Test;
+import de.hybris.bootstrap.annotations.UnitTest;
+import static org.junit.Assert.assertEquals;
+
+@UnitTest
+public class AdyenNotificationMetricsTest {
+    private AdyenNotificationMetrics adyenNotificationMetrics;
+
+    @Before
+    public void setUp() {
+        adyenNotificationMetrics = new AdyenNotificationMetrics();
+    }
+
+    @Test
+    public void testProcessingLatency() {
+        for (int i = 1; i <= 100; i++) {
+            adyenNotificationMetrics.recordProcessed("CAPTURE", i);
+        }
+
+        LatencyHistogram histogram = adyenNotificationMetrics.getProcessingLatencyHistogram("CAPTURE");
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50, histogram.getPercentile(0.5));
+        assertEquals(100, histogram.getPercentile(0.99));
+        assertEquals(0, adyenNotificationMetrics.getProcessingLatencyPercentile("REFUND", 0.5));
+    }
+
+    @Test
+    public void testDuplicatesAndFailures() {
+        adyenNotificationMetrics.recordProcessed("AUTHORISATION", 10);
+        adyenNotificationMetrics.recordDuplicate();
+        adyenNotificationMetrics.recordFailure("REFUND");
+        adyenNotificationMetrics.recordFailure("REFUND");
+
+        assertEquals(2, adyenNotificationMetrics.getProcessedCount());
+        assertEquals(0.5, adyenNotificationMetrics.getDuplicateRate(), 0.001);
+        assertEquals(2, adyenNotificationMetrics.getFailureCount());
+        assertEquals(Long.valueOf(2), adyenNotificationMetrics.getFailuresByEventCode().get("REFUND"));
+    }
+
+    @Test
+    public void testBacklog() throws Exception {
+        adyenNotificationMetrics.recordBacklog(5, new Date(System.currentTimeMillis() - 60000));
+        Thread.sleep(1100);
+
+        //Age at the cronjob run, not growing between runs
+        assertEquals(5, adyenNotificationMetrics.getBacklogSize());
+        assertEquals(60, adyenNotificationMetrics.getOldestUnprocessedAgeSeconds());
+
+        adyenNotificationMetrics.recordBacklog(0, null);
+        assertEquals(0, adyenNotificationMetrics.getOldestUnprocessedAgeSeconds());
+    }
+
+    @Test
+    public void testQueueWait() {
+        Date createdAt = new Date(1000);
+        adyenNotificationMetrics.recordQueueWait(createdAt, new Date(1300));
+        adyenNotificationMetrics.recordQueueWait(null, new Date());
+
+        assertEquals(1, adyenNotificationMetrics.getQueueWaitHistogram().getCount());
+        assertEquals(300, adyenNotificationMetrics.getQueueWaitHistogram().getMax());
+    }
+
+    @Test
+    public void testEventLatency() {
+        adyenNotificationMetrics.recordEventLatency(new Date(1000), new Date(1800));
+        adyenNotificationMetrics.recordEventLatency(new Date(1000), null);
+
+        assertEquals(1, adyenNotificationMetrics.getEventLatencyHistogram().getCount());
+        assertEquals(800, adyenNotificationMetrics.getEventLatencyHistogram().getMax());
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.metrics;
+
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Test;
+import com.adyen.service.exception.ApiException;
+import de.hybris.bootstrap.annotations.UnitTest;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@UnitTest
+public class AdyenPaymentMetricsTest {
+    private AdyenPaymentMetrics adyenPaymentMetrics;
+
+    @Before
+    public void setUp() {
+        adyenPaymentMetrics = new AdyenPaymentMetrics();
+    }
+
+    @Test
+    public void testCallsTaggedByResult() {
+        adyenPaymentMetrics.recordCall("authorise", "merchantA", "Authorised", 120);
+        adyenPaymentMetrics.recordCall("authorise", "merchantA", "Authorised", 80);
+        adyenPaymentMetrics.recordCall("authorise", "merchantA", "Refused", 60);
+        adyenPaymentMetrics.recordCall("authorise", "merchantB", "Authorised", 300);
+
+        assertEquals(2, adyenPaymentMetrics.getCallLatencyHistogram("authorise", "merchantA", "Authorised").getCount());
+        assertEquals(Long.valueOf(1), adyenPaymentMetrics.getCallCounts().get("authorise/merchantA/Refused"));
+        assertEquals(4, adyenPaymentMetrics.getOperationLatencyHistogram("authorise").getCount());
+        assertEquals(300, adyenPaymentMetrics.getOperationLatencyPercentile("authorise", 1));
+        assertEquals(0, adyenPaymentMetrics.getOperationLatencyPercentile("capture", 0.5));
+        assertNull(adyenPaymentMetrics.getCallLatencyHistogram("capture", "merchantA", "[capture-received]"));
+    }
+
+    @Test
+    public void testErrors() {
+        adyenPaymentMetrics.recordCall("capture", "merchantA", "[capture-received]", 50);
+        adyenPaymentMetrics.recordError("capture", "merchantA", new ApiException("HTTP Exception", 422), 40);
+        adyenPaymentMetrics.recordError("refund", "merchantA", new IOException(), 5000);
+
+        assertEquals(2, adyenPaymentMetrics.getErrorCount());
+        assertEquals(Long.valueOf(1), adyenPaymentMetrics.getCallCounts().get("capture/merchantA/error:ApiException:422"));
+        assertEquals(Long.valueOf(1), adyenPaymentMetrics.getCallCounts().get("refund/merchantA/error:IOException"));
+    }
+}
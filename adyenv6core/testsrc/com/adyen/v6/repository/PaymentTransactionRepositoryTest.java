@@ -0,0 +1,97 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.repository;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.payment.model.PaymentTransactionModel;
+import de.hybris.platform.servicelayer.exceptions.ModelLoadingException;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import static com.adyen.v6.constants.Adyenv6coreConstants.PAYMENT_PROVIDER;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class PaymentTransactionRepositoryTest {
+    private static final String PSP_REFERENCE = "8514963171920000";
+
+    @Mock
+    private FlexibleSearchService flexibleSearchServiceMock;
+
+    @Mock
+    private ModelService modelServiceMock;
+
+    @Mock
+    private PaymentTransactionModel paymentTransactionModelMock;
+
+    @InjectMocks
+    private PaymentTransactionRepository paymentTransactionRepository;
+
+    private PK pk;
+
+    @Before
+    public void setUp() {
+        pk = PK.fromLong(1L);
+
+        when(paymentTransactionModelMock.getPk()).thenReturn(pk);
+        when(paymentTransactionModelMock.getRequestId()).thenReturn(PSP_REFERENCE);
+        when(paymentTransactionModelMock.getPaymentProvider()).thenReturn(PAYMENT_PROVIDER);
+        when(flexibleSearchServiceMock.searchUnique(Mockito.any(FlexibleSearchQuery.class))).thenReturn(paymentTransactionModelMock);
+    }
+
+    /**
+     * Subsequent lookups are resolved by PK without querying
+     */
+    @Test
+    public void testCachedLookup() {
+        when(modelServiceMock.get(pk)).thenReturn(paymentTransactionModelMock);
+
+        assertEquals(paymentTransactionModelMock, paymentTransactionRepository.getTransactionModel(PSP_REFERENCE));
+        assertEquals(paymentTransactionModelMock, paymentTransactionRepository.getTransactionModel(PSP_REFERENCE));
+
+        verify(flexibleSearchServiceMock, times(1)).searchUnique(Mockito.any(FlexibleSearchQuery.class));
+    }
+
+    /**
+     * Removed transactions are evicted and queried again
+     */
+    @Test
+    public void testStaleEntry() {
+        when(modelServiceMock.get(pk)).thenThrow(new ModelLoadingException("removed"));
+
+        paymentTransactionRepository.getTransactionModel(PSP_REFERENCE);
+        paymentTransactionRepository.getTransactionModel(PSP_REFERENCE);
+
+        verify(flexibleSearchServiceMock, times(2)).searchUnique(Mockito.any(FlexibleSearchQuery.class));
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.service;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.Tenant;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.order.exceptions.CalculationException;
+import de.hybris.platform.payment.dto.TransactionStatus;
+import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests DefaultAdyenBulkOrderCancelService
+ */
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class AdyenBulkOrderCancelServiceTest {
+    @Mock
+    private AdyenOrderCancelPaymentServiceAdapter adyenOrderCancelPaymentServiceAdapterMock;
+
+    @Mock
+    private ModelService modelServiceMock;
+
+    private DefaultAdyenBulkOrderCancelService adyenBulkOrderCancelService;
+
+    @Before
+    public void setUp() {
+        //Run the workers without tenant/session
+        adyenBulkOrderCancelService = new DefaultAdyenBulkOrderCancelService() {
+            @Override
+            protected Tenant getCurrentTenant() {
+                return null;
+            }
+
+            @Override
+            protected <T> T callInTenant(Tenant tenant, Callable<T> call) throws Exception {
+                return call.call();
+            }
+        };
+        adyenBulkOrderCancelService.setAdyenOrderCancelPaymentServiceAdapter(adyenOrderCancelPaymentServiceAdapterMock);
+        adyenBulkOrderCancelService.setModelService(modelServiceMock);
+        adyenBulkOrderCancelService.setParallelism(2);
+        adyenBulkOrderCancelService.setMaxConcurrentRequests(1);
+        adyenBulkOrderCancelService.setTimeoutSeconds(10);
+    }
+
+    /**
+     * Outcome per order, in the given order
+     */
+    @Test
+    public void testOutcomes() throws Exception {
+        OrderModel accepted = createOrder("accepted", 1);
+        OrderModel rejected = createOrder("rejected", 2);
+        OrderModel skipped = createOrder("skipped", 3);
+        OrderModel failed = createOrder("failed", 4);
+
+        when(adyenOrderCancelPaymentServiceAdapterMock.cancelPayment(accepted)).thenReturn(createEntry(TransactionStatus.ACCEPTED));
+        when(adyenOrderCancelPaymentServiceAdapterMock.cancelPayment(rejected)).thenReturn(createEntry(TransactionStatus.REJECTED));
+        when(adyenOrderCancelPaymentServiceAdapterMock.cancelPayment(skipped)).thenReturn(null);
+        when(adyenOrderCancelPaymentServiceAdapterMock.cancelPayment(failed)).thenThrow(new RuntimeException("Cancel failed"));
+
+        Map<String, AdyenBulkOrderCancelService.Outcome> outcomes = adyenBulkOrderCancelService.recalculateOrdersAndModifyPayments(Arrays.asList(accepted, rejected, skipped, failed));
+
+        assertEquals(Arrays.asList("accepted", "rejected", "skipped", "failed"), Arrays.asList(outcomes.keySet().toArray()));
+        assertEquals(AdyenBulkOrderCancelService.Outcome.CANCEL_REQUESTED, outcomes.get("accepted"));
+        assertEquals(AdyenBulkOrderCancelService.Outcome.CANCEL_REJECTED, outcomes.get("rejected"));
+        assertEquals(AdyenBulkOrderCancelService.Outcome.SKIPPED, outcomes.get("skipped"));
+        assertEquals(AdyenBulkOrderCancelService.Outcome.FAILED, outcomes.get("failed"));
+
+        verify(adyenOrderCancelPaymentServiceAdapterMock).recalculateOrder(accepted);
+        verify(adyenOrderCancelPaymentServiceAdapterMock).recalculateOrder(failed);
+    }
+
+    /**
+     * Failed recalculation fails the order without sending a cancel request
+     */
+    @Test
+    public void testRecalculationFailed() throws Exception {
+        OrderModel order = createOrder("order", 1);
+        doThrow(new CalculationException("Recalculation failed")).when(adyenOrderCancelPaymentServiceAdapterMock).recalculateOrder(order);
+
+        Map<String, AdyenBulkOrderCancelService.Outcome> outcomes = adyenBulkOrderCancelService.recalculateOrdersAndModifyPayments(Collections.singletonList(order));
+
+        assertEquals(AdyenBulkOrderCancelService.Outcome.FAILED, outcomes.get("order"));
+        verify(adyenOrderCancelPaymentServiceAdapterMock, never()).cancelPayment(order);
+    }
+
+    /**
+     * No more than maxConcurrentRequests cancel requests at the same time
+     */
+    @Test
+    public void testMaxConcurrentRequests() {
+        adyenBulkOrderCancelService.setParallelism(4);
+        adyenBulkOrderCancelService.setMaxConcurrentRequests(2);
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<OrderModel> orders = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            OrderModel order = createOrder("order" + i, i);
+            when(adyenOrderCancelPaymentServiceAdapterMock.cancelPayment(order)).thenAnswer(invocation -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(50);
+                running.decrementAndGet();
+                return createEntry(TransactionStatus.ACCEPTED);
+            });
+            orders.add(order);
+        }
+
+        Map<String, AdyenBulkOrderCancelService.Outcome> outcomes = adyenBulkOrderCancelService.recalculateOrdersAndModifyPayments(orders);
+
+        assertEquals(8, outcomes.size());
+        assertFalse(outcomes.containsValue(AdyenBulkOrderCancelService.Outcome.FAILED));
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    /**
+     * Cancellations still running at the timeout are reported as pending and not interrupted
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        adyenBulkOrderCancelService.setTimeoutSeconds(1);
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        OrderModel order = createOrder("order", 1);
+        when(adyenOrderCancelPaymentServiceAdapterMock.cancelPayment(order)).thenAnswer(invocation -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            return createEntry(TransactionStatus.ACCEPTED);
+        });
+
+        Map<String, AdyenBulkOrderCancelService.Outcome> outcomes = adyenBulkOrderCancelService.recalculateOrdersAndModifyPayments(Collections.singletonList(order));
+        release.countDown();
+
+        assertEquals(AdyenBulkOrderCancelService.Outcome.PENDING, outcomes.get("order"));
+        verify(adyenOrderCancelPaymentServiceAdapterMock, timeout(1000)).cancelPayment(order);
+        assertFalse(interrupted.get());
+    }
+
+    private OrderModel createOrder(String code, long pk) {
+        OrderModel order = mock(OrderModel.class);
+        when(order.getCode()).thenReturn(code);
+        when(order.getPk()).thenReturn(PK.fromLong(pk));
+        when(modelServiceMock.get(PK.fromLong(pk))).thenReturn(order);
+        return order;
+    }
+
+    private PaymentTransactionEntryModel createEntry(TransactionStatus transactionStatus) {
+        PaymentTransactionEntryModel entry = new PaymentTransactionEntryModel();
+        entry.setTransactionStatus(transactionStatus.name());
+        return entry;
+    }
+}
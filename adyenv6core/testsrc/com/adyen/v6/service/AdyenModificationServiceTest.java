@@ -0,0 +1,198 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.service;
+
+import com.adyen.v6.enums.AdyenModificationStatus;
+import com.adyen.v6.model.AdyenModificationRecordModel;
+import com.adyen.v6.repository.AdyenModificationRecordRepository;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.servicelayer.exceptions.ModelSavingException;
+import de.hybris.platform.servicelayer.model.ModelService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests DefaultAdyenModificationService
+ */
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class AdyenModificationServiceTest {
+    private static final BigDecimal AMOUNT = new BigDecimal("12.34");
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    @Mock
+    private ModelService modelServiceMock;
+
+    @Mock
+    private AdyenModificationRecordRepository adyenModificationRecordRepositoryMock;
+
+    private DefaultAdyenModificationService adyenModificationService;
+
+    @Before
+    public void setUp() {
+        adyenModificationService = new DefaultAdyenModificationService();
+        adyenModificationService.setModelService(modelServiceMock);
+        adyenModificationService.setAdyenModificationRecordRepository(adyenModificationRecordRepositoryMock);
+        adyenModificationService.setInFlightTimeoutMillis(60000);
+
+        when(modelServiceMock.create(AdyenModificationRecordModel.class)).thenReturn(new AdyenModificationRecordModel());
+    }
+
+    /**
+     * First attempt is claimed
+     */
+    @Test
+    public void testFirstClaim() {
+        AdyenModificationRecordModel record = adyenModificationService.claim("123", AdyenModificationService.TYPE_CAPTURE, AMOUNT, EUR);
+
+        assertNotNull(record);
+        assertEquals("123_capture_12.34_EUR_1", record.getCode());
+        assertEquals(AdyenModificationStatus.IN_FLIGHT, record.getStatus());
+        verify(modelServiceMock).save(record);
+    }
+
+    /**
+     * Received and in-flight modifications are not claimed again
+     */
+    @Test
+    public void testRepeatedClaim() {
+        AdyenModificationRecordModel latest = createRecord(1, AdyenModificationStatus.RECEIVED, new Date());
+        when(adyenModificationRecordRepositoryMock.getLatestRecord("123", AdyenModificationService.TYPE_CAPTURE, AMOUNT, "EUR")).thenReturn(latest);
+        assertNull(adyenModificationService.claim("123", AdyenModificationService.TYPE_CAPTURE, AMOUNT, EUR));
+
+        latest.setStatus(AdyenModificationStatus.IN_FLIGHT);
+        assertNull(adyenModificationService.claim("123", AdyenModificationService.TYPE_CAPTURE, AMOUNT, EUR));
+
+        verify(modelServiceMock, never()).save(any());
+    }
+
+    /**
+     * Failed and timed out attempts are retried with the next attempt number
+     */
+    @Test
+    public void testRetryClaim() {
+        AdyenModificationRecordModel latest = createRecord(1, AdyenModificationStatus.FAILED, new Date());
+        when(adyenModificationRecordRepositoryMock.getLatestRecord("123", AdyenModificationService.TYPE_CAPTURE, AMOUNT, "EUR")).thenReturn(latest);
+
+        AdyenModificationRecordModel record = adyenModificationService.claim("123", AdyenModificationService.TYPE_CAPTURE, AMOUNT, EUR);
+        assertEquals("123_capture_12.34_EUR_2", record.getCode());
+
+        latest = createRecord(2, AdyenModificationStatus.IN_FLIGHT, new Date(System.currentTimeMillis() - 120000));
+        when(adyenModificationRecordRepositoryMock.getLatestRecord("123", AdyenModificationService.TYPE_CAPTURE, AMOUNT, "EUR")).thenReturn(latest);
+        when(modelServiceMock.create(AdyenModificationRecordModel.class)).thenReturn(new AdyenModificationRecordModel());
+
+        record = adyenModificationService.claim("123", AdyenModificationService.TYPE_CAPTURE, AMOUNT, EUR);
+        assertEquals(Integer.valueOf(3), record.getAttempt());
+    }
+
+    /**
+     * A second capture of the same amount is claimed once the first one is confirmed or refused by notification
+     */
+    @Test
+    public void testClaimAfterOutcome() {
+        AdyenModificationRecordModel latest = createRecord(1, AdyenModificationStatus.CONFIRMED, new Date());
+        when(adyenModificationRecordRepositoryMock.getLatestRecord("123", AdyenModificationService.TYPE_CAPTURE, AMOUNT, "EUR")).thenReturn(latest);
+
+        AdyenModificationRecordModel record = adyenModificationService.claim("123", AdyenModificationService.TYPE_CAPTURE, AMOUNT, EUR);
+        assertEquals("123_capture_12.34_EUR_2", record.getCode());
+
+        latest.setStatus(AdyenModificationStatus.REFUSED);
+        when(modelServiceMock.create(AdyenModificationRecordModel.class)).thenReturn(new AdyenModificationRecordModel());
+
+        record = adyenModificationService.claim("123", AdyenModificationService.TYPE_CAPTURE, AMOUNT, EUR);
+        assertEquals(Integer.valueOf(2), record.getAttempt());
+    }
+
+    /**
+     * The code is the same regardless of the scale of the amount
+     */
+    @Test
+    public void testClaimNormalizedAmount() {
+        AdyenModificationRecordModel record = adyenModificationService.claim("123", AdyenModificationService.TYPE_CAPTURE, new BigDecimal("10.00"), EUR);
+
+        assertEquals("123_capture_10_EUR_1", record.getCode());
+    }
+
+    /**
+     * Concurrent claim of the same attempt
+     */
+    @Test
+    public void testConcurrentClaim() {
+        doThrow(new ModelSavingException("duplicate")).when(modelServiceMock).save(any());
+
+        assertNull(adyenModificationService.claim("123", AdyenModificationService.TYPE_CAPTURE, AMOUNT, EUR));
+    }
+
+    /**
+     * Attempt without a response keeps its status and records the error
+     */
+    @Test
+    public void testRecordError() {
+        AdyenModificationRecordModel record = createRecord(1, AdyenModificationStatus.IN_FLIGHT, new Date());
+
+        adyenModificationService.recordError(record, new RuntimeException("Read timed out"));
+
+        assertEquals(AdyenModificationStatus.IN_FLIGHT, record.getStatus());
+        assertEquals("java.lang.RuntimeException: Read timed out", record.getFailureReason());
+        verify(modelServiceMock).save(record);
+    }
+
+    /**
+     * Notified outcome is recorded on the received attempt
+     */
+    @Test
+    public void testRecordOutcome() {
+        AdyenModificationRecordModel record = createRecord(1, AdyenModificationStatus.RECEIVED, new Date());
+        when(adyenModificationRecordRepositoryMock.getRecordByPspReference("456")).thenReturn(record);
+
+        adyenModificationService.recordOutcome("456", false);
+        assertEquals(AdyenModificationStatus.REFUSED, record.getStatus());
+
+        adyenModificationService.recordOutcome("456", true);
+        assertEquals(AdyenModificationStatus.CONFIRMED, record.getStatus());
+
+        adyenModificationService.recordOutcome("789", true);
+    }
+
+    private AdyenModificationRecordModel createRecord(int attempt, AdyenModificationStatus status, Date modifiedTime) {
+        AdyenModificationRecordModel record = new AdyenModificationRecordModel();
+        record.setAttempt(attempt);
+        record.setStatus(status);
+        record.setModifiedtime(modifiedTime);
+        return record;
+    }
+}
@@ -22,6 +22,7 @@ package com.adyen.v6.service;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import org.junit.After;
 import org.junit.Before;
@@ -32,6 +33,7 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 import com.adyen.v6.model.NotificationItemModel;
+import com.adyen.v6.repository.BusinessProcessRepository;
 import com.adyen.v6.repository.OrderRepository;
 import com.adyen.v6.repository.PaymentTransactionRepository;
 import de.hybris.bootstrap.annotations.UnitTest;
@@ -46,6 +48,8 @@ import de.hybris.platform.servicelayer.model.ModelService;
 import static com.adyen.model.notification.NotificationRequestItem.EVENT_CODE_AUTHORISATION;
 import static com.adyen.model.notification.NotificationRequestItem.EVENT_CODE_CAPTURE;
 import static com.adyen.model.notification.NotificationRequestItem.EVENT_CODE_REFUND;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -58,6 +62,9 @@ public class AdyenNotificationServiceTest {
     @Mock
     private AdyenTransactionService adyenTransactionServiceMock;
 
+    @Mock
+    private AdyenModificationService adyenModificationServiceMock;
+
     @Mock
     private OrderRepository orderRepositoryMock;
 
@@ -67,6 +74,9 @@ public class AdyenNotificationServiceTest {
     @Mock
     private BusinessProcessService businessProcessServiceMock;
 
+    @Mock
+    private BusinessProcessRepository businessProcessRepositoryMock;
+
     @Mock
     private PaymentTransactionEntryModel paymentTransactionEntryModelMock;
 
@@ -79,6 +89,10 @@ public class AdyenNotificationServiceTest {
 
         DefaultAdyenBusinessProcessService adyenBusinessProcessService = new DefaultAdyenBusinessProcessService();
         adyenBusinessProcessService.setBusinessProcessService(businessProcessServiceMock);
+        adyenBusinessProcessService.setBusinessProcessRepository(businessProcessRepositoryMock);
+
+        when(businessProcessRepositoryMock.getActiveOrderProcessCodes(Mockito.any(String.class))).thenReturn(Collections.singletonList("order_process_code"));
+        when(businessProcessRepositoryMock.getActiveReturnProcessCodes(Mockito.any(String.class))).thenReturn(Collections.singletonList("return_process_code"));
 
         adyenNotificationService.setAdyenBusinessProcessService(adyenBusinessProcessService);
     }
@@ -117,7 +131,10 @@ public class AdyenNotificationServiceTest {
         verify(businessProcessServiceMock).triggerEvent("order_process_code_AdyenCaptured");
 
         //Verify that the capture transaction is saved
-        verify(modelServiceMock).save(paymentTransactionEntryModelMock);
+        verify(adyenTransactionServiceMock).saveWithRunningTotals(paymentTransactionEntryModelMock);
+
+        //Verify that the outcome is recorded on the capture attempt
+        verify(adyenModificationServiceMock).recordOutcome("456", true);
     }
 
     /**
@@ -225,9 +242,76 @@ public class AdyenNotificationServiceTest {
         verify(businessProcessServiceMock).triggerEvent("return_process_code_AdyenRefunded");
 
         //Verify that the capture transaction is saved
-        verify(modelServiceMock).save(paymentTransactionEntryModelMock);
+        verify(adyenTransactionServiceMock).saveWithRunningTotals(paymentTransactionEntryModelMock);
     }
 
+    /**
+     * Test notifications served from the prefetched page
+     * Prefetched transactions are used without querying, misses fall back to the repository
+     */
+    @Test
+    public void testPrefetchedCaptureNotification() {
+        PaymentTransactionModel paymentTransactionModel = new PaymentTransactionModel();
+        paymentTransactionModel.setRequestId("123");
+        paymentTransactionModel.setEntries(new ArrayList<PaymentTransactionEntryModel>());
+        paymentTransactionModel.setOrder(createDummyOrderModel());
+
+        NotificationItemModel notificationItemModel = new NotificationItemModel();
+        notificationItemModel.setOriginalReference("123");
+        notificationItemModel.setPspReference("456");
+        notificationItemModel.setEventCode(EVENT_CODE_CAPTURE);
+        notificationItemModel.setSuccess(true);
+
+        when(orderRepositoryMock.getOrderModels(Mockito.anyCollection())).thenReturn(Collections.emptyMap());
+        when(paymentTransactionRepositoryMock.getTransactionModels(Mockito.anyCollection())).thenReturn(Collections.singletonMap("123", paymentTransactionModel));
+        when(adyenTransactionServiceMock.createCapturedTransactionFromNotification(paymentTransactionModel, notificationItemModel)).thenReturn(paymentTransactionEntryModelMock);
+
+        NotificationPrefetchData prefetchData = adyenNotificationService.prefetch(Collections.singletonList(notificationItemModel));
+        adyenNotificationService.processNotification(notificationItemModel, prefetchData);
+
+        verify(paymentTransactionRepositoryMock, Mockito.never()).getTransactionModel(Mockito.any(String.class));
+        verify(businessProcessServiceMock).triggerEvent("order_process_code_AdyenCaptured");
+
+        //Not prefetched references are still resolved
+        notificationItemModel.setOriginalReference("789");
+        adyenNotificationService.processNotification(notificationItemModel, prefetchData);
+
+        verify(paymentTransactionRepositoryMock).getTransactionModel("789");
+    }
+
+    /**
+     * Test that events triggered within a batch are sent once, after the batch is flushed
+     */
+    @Test
+    public void testCoalescedEvents() {
+        PaymentTransactionModel paymentTransactionModel = new PaymentTransactionModel();
+        paymentTransactionModel.setEntries(new ArrayList<PaymentTransactionEntryModel>());
+        paymentTransactionModel.setOrder(createDummyOrderModel());
+
+        when(paymentTransactionRepositoryMock.getTransactionModel(Mockito.any(String.class))).thenReturn(paymentTransactionModel);
+        when(adyenTransactionServiceMock.createCapturedTransactionFromNotification(Mockito.eq(paymentTransactionModel), Mockito.any(NotificationItemModel.class)))
+                .thenReturn(paymentTransactionEntryModelMock);
+
+        AdyenBusinessProcessService adyenBusinessProcessService = adyenNotificationService.getAdyenBusinessProcessService();
+        adyenBusinessProcessService.beginEventBatch();
+        for (int i = 0; i < 3; i++) {
+            NotificationItemModel notificationItemModel = new NotificationItemModel();
+            notificationItemModel.setOriginalReference("123");
+            notificationItemModel.setPspReference("45" + i);
+            notificationItemModel.setEventCode(EVENT_CODE_CAPTURE);
+            notificationItemModel.setSuccess(true);
+
+            adyenNotificationService.processNotification(notificationItemModel);
+        }
+
+        verify(businessProcessServiceMock, Mockito.never()).triggerEvent(Mockito.anyString());
+        assertEquals(3, adyenBusinessProcessService.getBatchedEventCount());
+
+        adyenBusinessProcessService.flushEventBatch();
+        assertEquals(0, adyenBusinessProcessService.getBatchedEventCount());
+
+        verify(businessProcessServiceMock, times(1)).triggerEvent("order_process_code_AdyenCaptured");
+    }
 
     private OrderModel createDummyOrderModel() {
         Collection<OrderProcessModel> orderProcessModels = new ArrayList<OrderProcessModel>();
@@ -26,9 +26,11 @@ import de.hybris.platform.core.model.c2l.CurrencyModel;
 import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.core.model.order.payment.PaymentInfoModel;
 import de.hybris.platform.orderprocessing.model.OrderProcessModel;
+import de.hybris.platform.payment.enums.PaymentTransactionType;
 import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
 import de.hybris.platform.payment.model.PaymentTransactionModel;
 import de.hybris.platform.servicelayer.i18n.CommonI18NService;
+import de.hybris.platform.servicelayer.keygenerator.KeyGenerator;
 import de.hybris.platform.servicelayer.model.ModelService;
 import org.junit.Before;
 import org.junit.Test;
@@ -36,6 +38,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
 
@@ -44,6 +47,7 @@ import static com.adyen.model.notification.NotificationRequestItem.EVENT_CODE_CA
 import static de.hybris.platform.payment.dto.TransactionStatus.ACCEPTED;
 import static de.hybris.platform.payment.dto.TransactionStatus.REJECTED;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -56,6 +60,9 @@ public class AdyenTransactionServiceTest {
     @Mock
     private CommonI18NService commonI18NServiceMock;
 
+    @Mock
+    private KeyGenerator keyGeneratorMock;
+
     private DefaultAdyenTransactionService adyenTransactionService;
 
     @Before
@@ -68,10 +75,19 @@ public class AdyenTransactionServiceTest {
         when(modelServiceMock.create(PaymentTransactionModel.class))
                 .thenReturn(paymentTransactionModel);
 
-        adyenTransactionService = new DefaultAdyenTransactionService();
+        adyenTransactionService = new DefaultAdyenTransactionService() {
+            @Override
+            protected void executeLocked(PaymentTransactionModel paymentTransaction, Runnable update) {
+                //Row locks need a running platform
+                update.run();
+            }
+        };
 
         adyenTransactionService.setModelService(modelServiceMock);
         adyenTransactionService.setCommonI18NService(commonI18NServiceMock);
+        adyenTransactionService.setPaymentTransactionEntryCodeGenerator(keyGeneratorMock);
+
+        when(keyGeneratorMock.generate()).thenReturn("0000000001", "0000000002");
     }
 
     @Test
@@ -84,6 +100,7 @@ public class AdyenTransactionServiceTest {
         notificationItemModel.setSuccess(true);
 
         PaymentTransactionModel paymentTransactionModel = new PaymentTransactionModel();
+        paymentTransactionModel.setRequestId("789");
         paymentTransactionModel.setEntries(new ArrayList<PaymentTransactionEntryModel>());
 
         PaymentTransactionEntryModel paymentTransactionEntryModel = adyenTransactionService
@@ -91,6 +108,7 @@ public class AdyenTransactionServiceTest {
 
         assertEquals(pspReference, paymentTransactionEntryModel.getRequestId());
         assertEquals(ACCEPTED.name(), paymentTransactionEntryModel.getTransactionStatus());
+        assertEquals("789_0000000001", paymentTransactionEntryModel.getCode());
 
         //Test non-successful notification
         notificationItemModel.setSuccess(false);
@@ -138,6 +156,83 @@ public class AdyenTransactionServiceTest {
         verify(modelServiceMock).save(paymentTransactionModel);
     }
 
+    /**
+     * Test that CAPTURE and REFUND notifications update the running totals
+     */
+    @Test
+    public void testRunningTotals() {
+        PaymentTransactionModel paymentTransactionModel = adyenTransactionService
+                .authorizeOrderModel(createDummyOrderModel(), "001", "123");
+
+        assertEquals(new BigDecimal(1.23), paymentTransactionModel.getAdyenAuthorisedAmount());
+
+        NotificationItemModel notificationItemModel = new NotificationItemModel();
+        notificationItemModel.setPspReference("456");
+        notificationItemModel.setEventCode(EVENT_CODE_CAPTURE);
+        notificationItemModel.setAmountValue(new BigDecimal("1.00"));
+        notificationItemModel.setSuccess(true);
+
+        PaymentTransactionEntryModel capturedEntry = adyenTransactionService.createCapturedTransactionFromNotification(paymentTransactionModel, notificationItemModel);
+        PaymentTransactionEntryModel refundedEntry = adyenTransactionService.createRefundedTransactionFromNotification(paymentTransactionModel, notificationItemModel);
+
+        //Totals are only updated when the entries are saved
+        assertEquals(BigDecimal.ZERO, paymentTransactionModel.getAdyenCapturedAmount());
+
+        adyenTransactionService.saveWithRunningTotals(capturedEntry);
+        adyenTransactionService.saveWithRunningTotals(refundedEntry);
+
+        verify(modelServiceMock).saveAll(capturedEntry, paymentTransactionModel);
+        assertEquals(new BigDecimal("1.00"), paymentTransactionModel.getAdyenCapturedAmount());
+        assertEquals(new BigDecimal("1.00"), paymentTransactionModel.getAdyenRefundedAmount());
+        assertEquals(new BigDecimal(1.23).subtract(new BigDecimal("1.00")), AdyenTransactionService.getPendingCaptureAmount(paymentTransactionModel));
+
+        notificationItemModel.setSuccess(false);
+        adyenTransactionService.saveWithRunningTotals(adyenTransactionService.createCapturedTransactionFromNotification(paymentTransactionModel, notificationItemModel));
+
+        assertEquals(Boolean.TRUE, paymentTransactionModel.getAdyenCaptureFailed());
+        assertEquals(new BigDecimal("1.00"), paymentTransactionModel.getAdyenCapturedAmount());
+    }
+
+    /**
+     * Test that auto captures set the captured total once, even when repeated or followed by a CAPTURE notification
+     */
+    @Test
+    public void testAutoCaptureRunningTotals() {
+        PaymentTransactionModel paymentTransactionModel = adyenTransactionService
+                .authorizeOrderModel(createDummyOrderModel(), "001", "123");
+        paymentTransactionModel.setAdyenAuthorisedAmount(new BigDecimal("1.23"));
+
+        adyenTransactionService.markFullyCaptured(paymentTransactionModel);
+        adyenTransactionService.markFullyCaptured(paymentTransactionModel);
+
+        assertEquals(new BigDecimal("1.23"), paymentTransactionModel.getAdyenCapturedAmount());
+        assertEquals(null, paymentTransactionModel.getAdyenCaptureFailed());
+
+        NotificationItemModel notificationItemModel = new NotificationItemModel();
+        notificationItemModel.setPspReference("456");
+        notificationItemModel.setEventCode(EVENT_CODE_CAPTURE);
+        notificationItemModel.setAmountValue(new BigDecimal("1.23"));
+        notificationItemModel.setSuccess(true);
+        adyenTransactionService.saveWithRunningTotals(adyenTransactionService.createCapturedTransactionFromNotification(paymentTransactionModel, notificationItemModel));
+
+        assertEquals(new BigDecimal("1.23"), paymentTransactionModel.getAdyenCapturedAmount());
+    }
+
+    /**
+     * Test that a refused capture request marks the capture as failed
+     */
+    @Test
+    public void testRefusedCaptureRunningTotals() {
+        PaymentTransactionModel paymentTransactionModel = adyenTransactionService
+                .authorizeOrderModel(createDummyOrderModel(), "001", "123");
+
+        adyenTransactionService.updateRunningTotals(paymentTransactionModel, PaymentTransactionType.CAPTURE, new BigDecimal("1.23"), false);
+
+        assertEquals(Boolean.TRUE, paymentTransactionModel.getAdyenCaptureFailed());
+        assertEquals(BigDecimal.ZERO, paymentTransactionModel.getAdyenCapturedAmount());
+        verify(modelServiceMock, times(2)).save(paymentTransactionModel);
+    }
+
     private OrderModel createDummyOrderModel() {
         Collection<OrderProcessModel> orderProcessModels = new ArrayList<OrderProcessModel>();
         OrderProcessModel orderProcessModel = new OrderProcessModel();
@@ -0,0 +1,97 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.service;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static com.adyen.v6.service.PaymentMethodCapabilityRegistry.Capability.MANUAL_CAPTURE;
+import static com.adyen.v6.service.PaymentMethodCapabilityRegistry.Capability.OPEN_INVOICE;
+import static com.adyen.v6.service.PaymentMethodCapabilityRegistry.Capability.REFUND;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests PaymentMethodCapabilityRegistry
+ */
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class PaymentMethodCapabilityRegistryTest {
+    @Mock
+    private ConfigurationService configurationServiceMock;
+
+    @Mock
+    private Configuration configurationMock;
+
+    private PaymentMethodCapabilityRegistry paymentMethodCapabilityRegistry;
+
+    @Before
+    public void setUp() {
+        when(configurationServiceMock.getConfiguration()).thenReturn(configurationMock);
+        when(configurationMock.getString(anyString(), anyString())).thenAnswer(invocation -> invocation.getArguments()[1]);
+
+        paymentMethodCapabilityRegistry = new PaymentMethodCapabilityRegistry();
+        paymentMethodCapabilityRegistry.setConfigurationService(configurationServiceMock);
+    }
+
+    /**
+     * Built-in capabilities
+     */
+    @Test
+    public void testDefaults() {
+        assertTrue(paymentMethodCapabilityRegistry.supports("visa", MANUAL_CAPTURE));
+        assertTrue(paymentMethodCapabilityRegistry.supports("afterpay_default", MANUAL_CAPTURE));
+        assertTrue(paymentMethodCapabilityRegistry.supports("afterpay_b2b", MANUAL_CAPTURE));
+        assertFalse(paymentMethodCapabilityRegistry.supports("paysafe", MANUAL_CAPTURE));
+        assertFalse(paymentMethodCapabilityRegistry.supports(null, MANUAL_CAPTURE));
+
+        assertTrue(paymentMethodCapabilityRegistry.supports("klarna", OPEN_INVOICE));
+        assertFalse(paymentMethodCapabilityRegistry.supports("visa", OPEN_INVOICE));
+        assertEquals(2, paymentMethodCapabilityRegistry.getPaymentMethods(OPEN_INVOICE).size());
+
+        assertTrue(paymentMethodCapabilityRegistry.supports("paysafe", REFUND));
+    }
+
+    /**
+     * Configured capabilities, applied on refresh
+     */
+    @Test
+    public void testRefresh() {
+        assertFalse(paymentMethodCapabilityRegistry.supports("paysafe", MANUAL_CAPTURE));
+
+        when(configurationMock.getString(anyString(), anyString())).thenAnswer(invocation ->
+                invocation.getArguments()[0].equals(PaymentMethodCapabilityRegistry.PROPERTY_PREFIX + "manual_capture") ? "paysafe, ideal_*" : invocation.getArguments()[1]);
+        paymentMethodCapabilityRegistry.refresh();
+
+        assertTrue(paymentMethodCapabilityRegistry.supports("paysafe", MANUAL_CAPTURE));
+        assertTrue(paymentMethodCapabilityRegistry.supports("ideal_test", MANUAL_CAPTURE));
+        assertFalse(paymentMethodCapabilityRegistry.supports("visa", MANUAL_CAPTURE));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.util;
+
+import java.text.SimpleDateFormat;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.TimeZone;
+import org.junit.Test;
+import de.hybris.bootstrap.annotations.UnitTest;
+import static org.junit.Assert.assertEquals;
+
+@UnitTest
+public class AdyenDateUtilTest {
+    private static final Instant NOW = Instant.parse("2017-06-01T10:15:30Z");
+
+    @Test
+    public void testGenerationTime() {
+        assertEquals("2017-06-01T12:15:30+02:00", AdyenDateUtil.getGenerationTime(Clock.fixed(NOW, ZoneId.of("Europe/Amsterdam"))));
+        assertEquals("2017-06-01T10:15:30+00:00", AdyenDateUtil.getGenerationTime(Clock.fixed(NOW, ZoneOffset.UTC)));
+        assertEquals("2017-06-01T06:15:30-04:00", AdyenDateUtil.getGenerationTime(Clock.fixed(NOW, ZoneId.of("America/New_York"))));
+    }
+
+    /**
+     * Make sure the output matches the previous SimpleDateFormat based implementation
+     */
+    @Test
+    public void testGenerationTimeCompatibility() {
+        for (String zone : new String[]{"Europe/Amsterdam", "UTC", "America/Sao_Paulo", "Asia/Kolkata"}) {
+            SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
+            simpleDateFormat.setTimeZone(TimeZone.getTimeZone(zone));
+            String formatted = simpleDateFormat.format(Date.from(NOW));
+            String expected = formatted.substring(0, 22) + ":" + formatted.substring(22);
+
+            assertEquals(expected, AdyenDateUtil.getGenerationTime(Clock.fixed(NOW, ZoneId.of(zone))));
+        }
+    }
+
+    @Test
+    public void testDeviceFingerprintVersion() {
+        assertEquals("20170601", AdyenDateUtil.getDeviceFingerprintVersion(LocalDate.of(2017, 6, 1)));
+        assertEquals("20171231", AdyenDateUtil.getDeviceFingerprintVersion(LocalDate.of(2017, 12, 31)));
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.util;
+
+import java.util.Date;
+import org.junit.Test;
+import com.adyen.model.Address;
+import com.adyen.model.PaymentRequest;
+import de.hybris.bootstrap.annotations.UnitTest;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@UnitTest
+public class AdyenLoggerTest {
+    @Test
+    public void testRedactRequest() {
+        PaymentRequest paymentRequest = new PaymentRequest();
+        paymentRequest.setReference("00012345");
+        paymentRequest.setCSEToken("adyenjs_0_1_18$secret");
+        paymentRequest.setShopperEmail("jan@example.com");
+        paymentRequest.setDateOfBirth(new Date(0));
+        paymentRequest.setBillingAddress(new Address().street("Simon Carmiggeltstraat").city("Amsterdam"));
+
+        String redacted = AdyenLogger.redact(paymentRequest);
+
+        assertTrue(redacted.contains("\"reference\":\"00012345\""));
+        assertTrue(redacted.contains("\"city\":\"Amsterdam\""));
+        assertTrue(redacted.contains("\"card.encrypted.json\":\"***\""));
+        assertTrue(redacted.contains("\"shopperEmail\":\"***\""));
+        assertTrue(redacted.contains("\"dateOfBirth\":\"***\""));
+        assertFalse(redacted.contains("secret"));
+        assertFalse(redacted.contains("jan@example.com"));
+        assertFalse(redacted.contains("Carmiggeltstraat"));
+    }
+
+    @Test
+    public void testRedactNotificationJson() {
+        String notification = "{\"live\":\"false\",\"notificationItems\":[{\"NotificationRequestItem\":{\"pspReference\":\"8813\","
+                + "\"additionalData\":{\"shopperEmail\":\"jan@example.com\",\"billingAddress.street\":\"Street\",\"authCode\":\"123\"}}}]}";
+
+        String redacted = AdyenLogger.redact(notification);
+
+        assertTrue(redacted.contains("\"pspReference\":\"8813\""));
+        assertTrue(redacted.contains("\"authCode\":\"123\""));
+        assertTrue(redacted.contains("\"billingAddress.street\":\"***\""));
+        assertFalse(redacted.contains("jan@example.com"));
+    }
+
+    @Test
+    public void testRedactNonJson() {
+        assertEquals("<non-JSON payload of 8 characters>", AdyenLogger.redact("{invalid"));
+        assertEquals("null", AdyenLogger.redact(null));
+    }
+}
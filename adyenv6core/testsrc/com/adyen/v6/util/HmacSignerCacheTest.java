@@ -0,0 +1,89 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.util;
+
+import java.security.SignatureException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.junit.Before;
+import org.junit.Test;
+import com.adyen.Util.HMACValidator;
+import de.hybris.bootstrap.annotations.UnitTest;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@UnitTest
+public class HmacSignerCacheTest {
+    private static final String HMAC_KEY = "4468D9782DEF54FCD706C9100C71EC43932B1EBC2ACF6BA0560C05AAA7550C48";
+    private static final String ROTATED_HMAC_KEY = "DFB1EB5485895CFA84146406857104ABB4CBCABDC8AAF103A624C8F6A3EAAB00";
+
+    private HmacSignerCache hmacSignerCache;
+    private HMACValidator hmacValidator;
+
+    @Before
+    public void setUp() {
+        hmacSignerCache = new HmacSignerCache();
+        hmacValidator = new HMACValidator();
+    }
+
+    @Test
+    public void testSameSignatureAsHMACValidator() throws SignatureException {
+        SortedMap<String, String> hppFormData = new TreeMap<>();
+        hppFormData.put("merchantReference", "00012345");
+        hppFormData.put("paymentAmount", "1234");
+        hppFormData.put("currencyCode", "EUR");
+        hppFormData.put("resURL", "https://shop/checkout/multi/adyen/summary/hpp-result?a=b:c");
+        hppFormData.put("shopperLocale", "pt_BR");
+        hppFormData.put("merchantReturnData", "\u00e7\u00e3o\\escaped");
+        String dataToSign = hmacValidator.getDataToSign(hppFormData);
+
+        HmacSigner signer = hmacSignerCache.getSigner("electronics", HMAC_KEY);
+
+        assertEquals(hmacValidator.calculateHMAC(dataToSign, HMAC_KEY), signer.sign(dataToSign));
+        //the Mac is reset after each signature
+        assertEquals(hmacValidator.calculateHMAC(dataToSign, HMAC_KEY), signer.sign(dataToSign));
+        assertEquals(hmacValidator.calculateHMAC("", HMAC_KEY), signer.sign(""));
+    }
+
+    @Test
+    public void testKeyRotation() throws SignatureException {
+        HmacSigner signer = hmacSignerCache.getSigner("electronics", HMAC_KEY);
+        assertSame(signer, hmacSignerCache.getSigner("electronics", HMAC_KEY));
+
+        HmacSigner rotatedSigner = hmacSignerCache.getSigner("electronics", ROTATED_HMAC_KEY);
+        assertNotSame(signer, rotatedSigner);
+        assertEquals(hmacValidator.calculateHMAC("data", ROTATED_HMAC_KEY), rotatedSigner.sign("data"));
+
+        hmacSignerCache.invalidate("electronics");
+        assertNotSame(rotatedSigner, hmacSignerCache.getSigner("electronics", ROTATED_HMAC_KEY));
+    }
+
+    @Test(expected = SignatureException.class)
+    public void testInvalidKey() throws SignatureException {
+        hmacSignerCache.getSigner("electronics", "not hex");
+    }
+
+    @Test(expected = SignatureException.class)
+    public void testNullData() throws SignatureException {
+        hmacSignerCache.getSigner("electronics", HMAC_KEY).sign(null);
+    }
+}
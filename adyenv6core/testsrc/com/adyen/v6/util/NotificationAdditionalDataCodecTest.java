@@ -0,0 +1,75 @@
+/*
+ *                        ######
+ *                        ######
+ *  ############    ####( ######  #####. ######  ############   ############
+ *  #############  #####( ######  #####. ######  #############  #############
+ *         ######  #####( ######  #####. ######  #####  ######  #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####  #####   #####  ######
+ *  ###### ######  #####( ######  #####. ######  #####          #####  ######
+ *  #############  #############  #############  #############  #####  ######
+ *   ############   ############  #############   ############  #####  ######
+ *                                       ######
+ *                                #############
+ *                                ############
+ *
+ *  Adyen Hybris Extension
+ *
+ *  Copyright (c) 2017 Adyen B.V.
+ *  This file is open source and available under the MIT license.
+ *  See the LICENSE file for more info.
+ */
+package com.adyen.v6.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import de.hybris.bootstrap.annotations.UnitTest;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@UnitTest
+public class NotificationAdditionalDataCodecTest {
+    private NotificationAdditionalDataCodec notificationAdditionalDataCodec;
+
+    @Before
+    public void setUp() {
+        notificationAdditionalDataCodec = new NotificationAdditionalDataCodec();
+        notificationAdditionalDataCodec.setCompress(true);
+        notificationAdditionalDataCodec.setCompressThreshold(100);
+    }
+
+    /**
+     * Large payloads are compressed and decoded back to the same map
+     */
+    @Test
+    public void testCompressedRoundTrip() {
+        Map<String, String> additionalData = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            additionalData.put("key" + i, "value" + i);
+        }
+
+        String storedValue = notificationAdditionalDataCodec.encode(additionalData);
+
+        assertTrue(NotificationAdditionalDataCodec.isCompressed(storedValue));
+        assertEquals(additionalData, notificationAdditionalDataCodec.decode(storedValue));
+    }
+
+    /**
+     * Small payloads and payloads stored before enabling compression are kept as plain JSON
+     */
+    @Test
+    public void testPlainJson() {
+        Map<String, String> additionalData = new HashMap<>();
+        additionalData.put("authCode", "1234");
+
+        String storedValue = notificationAdditionalDataCodec.encode(additionalData);
+
+        assertFalse(NotificationAdditionalDataCodec.isCompressed(storedValue));
+        assertEquals("{\"authCode\":\"1234\"}", storedValue);
+        assertEquals(additionalData, notificationAdditionalDataCodec.decode(storedValue));
+        assertTrue(notificationAdditionalDataCodec.decode(null).isEmpty());
+        assertTrue(notificationAdditionalDataCodec.decode("null").isEmpty());
+    }
+}
@@ -21,11 +21,16 @@
 package com.adyen.v6.actions.returns;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
 import com.adyen.v6.actions.AbstractWaitableAction;
+import com.adyen.v6.commands.AdyenCommandContext;
+import com.adyen.v6.data.PaymentTransactionEntrySummaryData;
+import com.adyen.v6.repository.PaymentTransactionRepository;
+import com.adyen.v6.service.AdyenTransactionService;
 import de.hybris.platform.basecommerce.enums.ReturnStatus;
 import de.hybris.platform.payment.AdapterException;
 import de.hybris.platform.payment.PaymentService;
@@ -46,6 +51,7 @@ public class AdyenCaptureRefundAction extends AbstractWaitableAction<ReturnProce
 
     private PaymentService paymentService;
     private RefundAmountCalculationService refundAmountCalculationService;
+    private PaymentTransactionRepository paymentTransactionRepository;
 
     @Override
     public String execute(final ReturnProcessModel process) {
@@ -72,16 +78,27 @@ public class AdyenCaptureRefundAction extends AbstractWaitableAction<ReturnProce
         }
         LOG.debug("Amount to refund " + amountToRefund);
 
+        //A refund result in the running totals means the refund was sent, the entries don't need to be loaded
+        //New transactions start with a refunded amount of zero, only a positive amount is a result
+        final boolean hasRunningTotals = AdyenTransactionService.hasRunningTotals(transaction);
+        final boolean hasRefundResult = hasRunningTotals
+                && ((transaction.getAdyenRefundedAmount() != null && transaction.getAdyenRefundedAmount().signum() > 0)
+                || Boolean.TRUE.equals(transaction.getAdyenRefundFailed()));
+
         //Find all entries of type REFUND_FOLLOW_ON
-        List<PaymentTransactionEntryModel> refundTransactionEntries = transaction.getEntries().stream()
-                .filter(entry -> PaymentTransactionType.REFUND_FOLLOW_ON.equals(entry.getType()))
-                .collect(Collectors.toList());
+        List<PaymentTransactionEntrySummaryData> refundTransactionEntries = Collections.emptyList();
+        if (! hasRefundResult) {
+            refundTransactionEntries = paymentTransactionRepository.getEntrySummaries(transaction).stream()
+                    .filter(entry -> PaymentTransactionType.REFUND_FOLLOW_ON.equals(entry.getType()))
+                    .collect(Collectors.toList());
+        }
 
-        if (refundTransactionEntries.isEmpty()) {
+        if (! hasRefundResult && refundTransactionEntries.isEmpty()) {
             LOG.warn("No REFUND TXs found");
             try {
                 //Send the refund API request
-                PaymentTransactionEntryModel transactionEntry = getPaymentService().refundFollowOn(transaction, amountToRefund);
+                final BigDecimal refundAmount = amountToRefund;
+                PaymentTransactionEntryModel transactionEntry = AdyenCommandContext.withOrder(returnRequest.getOrder(), () -> getPaymentService().refundFollowOn(transaction, refundAmount));
 
                 LOG.info("Refund request status: " + transactionEntry.getTransactionStatus());
                 //Wait if it is accepted
@@ -98,25 +115,21 @@ public class AdyenCaptureRefundAction extends AbstractWaitableAction<ReturnProce
         }
 
         //Find erroneous refund transactions
-        boolean hasError = refundTransactionEntries.stream().anyMatch(
-                entry -> TransactionStatus.REJECTED.name().equals(entry.getTransactionStatus())
-                        || TransactionStatus.ERROR.name().equals(entry.getTransactionStatus())
-        );
+        boolean hasError;
+        BigDecimal refundedAmount;
+        if (hasRunningTotals) {
+            hasError = Boolean.TRUE.equals(transaction.getAdyenRefundFailed());
+            refundedAmount = transaction.getAdyenRefundedAmount() != null ? transaction.getAdyenRefundedAmount() : BigDecimal.ZERO;
+        } else {
+            hasError = hasRefundError(refundTransactionEntries);
+            refundedAmount = getRefundedAmount(refundTransactionEntries);
+        }
 
         if (hasError) {
             LOG.warn("Found failed REFUND transaction for ReturnRequest " + returnRequest.getCode());
             return fail(returnRequest);
         }
 
-        //Calculate already refunded amounts from transactions with ACCEPTED-SUCCESFULL status
-        BigDecimal refundedAmount = refundTransactionEntries.stream()
-                .filter(
-                        entry -> TransactionStatus.ACCEPTED.name().equals(entry.getTransactionStatus())
-                                && TransactionStatusDetails.SUCCESFULL.name().equals(entry.getTransactionStatusDetails())
-                )
-                .map(entry -> entry.getAmount())
-                .reduce(new BigDecimal(0), (x, y) -> x.add(y));
-
         //Lower the scale to avoid comparison issues
         refundedAmount.setScale(3, BigDecimal.ROUND_FLOOR);
         amountToRefund.setScale(3, BigDecimal.ROUND_FLOOR);
@@ -132,6 +145,29 @@ public class AdyenCaptureRefundAction extends AbstractWaitableAction<ReturnProce
         return success(returnRequest);
     }
 
+    /**
+     * Scan refund entries of transactions without running totals
+     */
+    private boolean hasRefundError(List<PaymentTransactionEntrySummaryData> refundTransactionEntries) {
+        return refundTransactionEntries.stream().anyMatch(
+                entry -> TransactionStatus.REJECTED.name().equals(entry.getTransactionStatus())
+                        || TransactionStatus.ERROR.name().equals(entry.getTransactionStatus())
+        );
+    }
+
+    /**
+     * Calculate already refunded amounts from transactions with ACCEPTED-SUCCESFULL status
+     */
+    private BigDecimal getRefundedAmount(List<PaymentTransactionEntrySummaryData> refundTransactionEntries) {
+        return refundTransactionEntries.stream()
+                .filter(
+                        entry -> TransactionStatus.ACCEPTED.name().equals(entry.getTransactionStatus())
+                                && TransactionStatusDetails.SUCCESFULL.name().equals(entry.getTransactionStatusDetails())
+                )
+                .map(entry -> entry.getAmount())
+                .reduce(new BigDecimal(0), (x, y) -> x.add(y));
+    }
+
     private String fail(ReturnRequestModel returnRequest) {
         setReturnRequestStatus(returnRequest, ReturnStatus.PAYMENT_REVERSAL_FAILED);
         return Transition.NOK.name();
@@ -174,4 +210,13 @@ public class AdyenCaptureRefundAction extends AbstractWaitableAction<ReturnProce
     public void setRefundAmountCalculationService(RefundAmountCalculationService refundAmountCalculationService) {
         this.refundAmountCalculationService = refundAmountCalculationService;
     }
+
+    protected PaymentTransactionRepository getPaymentTransactionRepository() {
+        return paymentTransactionRepository;
+    }
+
+    @Required
+    public void setPaymentTransactionRepository(PaymentTransactionRepository paymentTransactionRepository) {
+        this.paymentTransactionRepository = paymentTransactionRepository;
+    }
 }
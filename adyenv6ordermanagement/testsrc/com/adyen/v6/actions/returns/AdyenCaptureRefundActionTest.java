@@ -22,6 +22,8 @@ package com.adyen.v6.actions.returns;
 
 import com.adyen.v6.actions.AbstractWaitableAction;
 import com.adyen.v6.actions.order.AbstractActionTest;
+import com.adyen.v6.repository.PaymentTransactionRepository;
+import com.adyen.v6.service.DefaultAdyenTransactionService;
 import de.hybris.bootstrap.annotations.UnitTest;
 import de.hybris.platform.basecommerce.enums.ReturnStatus;
 import de.hybris.platform.core.model.order.OrderModel;
@@ -34,6 +36,7 @@ import de.hybris.platform.payment.model.PaymentTransactionModel;
 import de.hybris.platform.returns.model.ReturnEntryModel;
 import de.hybris.platform.returns.model.ReturnProcessModel;
 import de.hybris.platform.returns.model.ReturnRequestModel;
+import de.hybris.platform.servicelayer.keygenerator.KeyGenerator;
 import de.hybris.platform.servicelayer.model.ModelService;
 import de.hybris.platform.warehousing.returns.service.RefundAmountCalculationService;
 import org.junit.Before;
@@ -45,6 +48,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -77,6 +81,9 @@ public class AdyenCaptureRefundActionTest extends AbstractActionTest {
     @Mock
     private PaymentInfoModel paymentInfoModelMock;
 
+    @Mock
+    private PaymentTransactionRepository paymentTransactionRepositoryMock;
+
     private AdyenCaptureRefundAction adyenCaptureRefundAction;
 
     private BigDecimal originalRefundAmount;
@@ -105,6 +112,10 @@ public class AdyenCaptureRefundActionTest extends AbstractActionTest {
         adyenCaptureRefundAction.setPaymentService(paymentServiceMock);
         adyenCaptureRefundAction.setRefundAmountCalculationService(refundAmountCalculationServiceMock);
         adyenCaptureRefundAction.setModelService(modelServiceMock);
+        adyenCaptureRefundAction.setPaymentTransactionRepository(paymentTransactionRepositoryMock);
+
+        when(paymentTransactionRepositoryMock.getEntrySummaries(Mockito.any(PaymentTransactionModel.class)))
+                .thenAnswer(invocation -> createEntrySummaries(Collections.singletonList((PaymentTransactionModel) invocation.getArguments()[0])));
     }
 
     /**
@@ -209,4 +220,65 @@ public class AdyenCaptureRefundActionTest extends AbstractActionTest {
         Mockito.verify(returnRequestModelMock).setStatus(ReturnStatus.PAYMENT_REVERSED);
         Mockito.verify(modelServiceMock).save(returnRequestModelMock);
     }
+
+    /**
+     * Test that the entries are not loaded once the running totals have a refund result
+     */
+    @Test
+    public void testRunningTotals() {
+        PaymentTransactionModel adyenTransaction = createAdyenTransaction();
+        adyenTransaction.setAdyenAuthorisedAmount(new BigDecimal("12.34"));
+        adyenTransaction.setAdyenCapturedAmount(new BigDecimal("12.34"));
+        adyenTransaction.setAdyenRefundedAmount(new BigDecimal("12.33"));
+
+        when(orderModelMock.getPaymentTransactions()).thenReturn(Collections.singletonList(adyenTransaction));
+
+        assertEquals(
+                AbstractWaitableAction.Transition.WAIT.toString(),
+                adyenCaptureRefundAction.execute(returnProcessModelMock)
+        );
+
+        adyenTransaction.setAdyenRefundedAmount(new BigDecimal("12.34"));
+
+        assertEquals(
+                AbstractWaitableAction.Transition.OK.toString(),
+                adyenCaptureRefundAction.execute(returnProcessModelMock)
+        );
+
+        Mockito.verify(paymentTransactionRepositoryMock, Mockito.never()).getEntrySummaries(Mockito.any(PaymentTransactionModel.class));
+        Mockito.verify(paymentServiceMock, Mockito.never()).refundFollowOn(Mockito.any(PaymentTransactionModel.class), Mockito.any(BigDecimal.class));
+    }
+
+    /**
+     * Test that the refund is sent for a transaction created by the transaction service, starting with zero totals
+     */
+    @Test
+    public void testRefundOfNewTransaction() {
+        ModelService transactionModelServiceMock = Mockito.mock(ModelService.class);
+        when(transactionModelServiceMock.create(PaymentTransactionModel.class)).thenReturn(new PaymentTransactionModel());
+        when(transactionModelServiceMock.create(PaymentTransactionEntryModel.class)).thenReturn(new PaymentTransactionEntryModel());
+        KeyGenerator keyGeneratorMock = Mockito.mock(KeyGenerator.class);
+        when(keyGeneratorMock.generate()).thenReturn("1");
+
+        DefaultAdyenTransactionService adyenTransactionService = new DefaultAdyenTransactionService();
+        adyenTransactionService.setModelService(transactionModelServiceMock);
+        adyenTransactionService.setPaymentTransactionEntryCodeGenerator(keyGeneratorMock);
+
+        PaymentTransactionModel adyenTransaction = adyenTransactionService.authorizeOrderModel(orderModelMock, "merchantCode", "pspReference");
+        adyenTransaction.setEntries(new ArrayList<>());
+        assertEquals(BigDecimal.ZERO, adyenTransaction.getAdyenRefundedAmount());
+
+        when(orderModelMock.getPaymentTransactions()).thenReturn(Collections.singletonList(adyenTransaction));
+
+        PaymentTransactionEntryModel refundReceivedTransaction = new PaymentTransactionEntryModel();
+        refundReceivedTransaction.setTransactionStatus(TransactionStatus.ACCEPTED.name());
+        when(paymentServiceMock.refundFollowOn(adyenTransaction, originalRefundAmount)).thenReturn(refundReceivedTransaction);
+
+        assertEquals(
+                AbstractWaitableAction.Transition.WAIT.toString(),
+                adyenCaptureRefundAction.execute(returnProcessModelMock)
+        );
+
+        Mockito.verify(paymentServiceMock).refundFollowOn(adyenTransaction, originalRefundAmount);
+    }
 }